@@ -4,21 +4,28 @@ import com.example.boatroutes.boat.BoatManager;
 import com.example.boatroutes.commands.PortCommand;
 import com.example.boatroutes.commands.PortTabCompleter;
 import com.example.boatroutes.commands.ExportCommand;
+import com.example.boatroutes.debug.ParticleRenderer;
 import com.example.boatroutes.dock.DockManager;
 import com.example.boatroutes.gui.GUIListener;
 import com.example.boatroutes.gui.GUIManager;
+import com.example.boatroutes.listeners.BoatEntityListener;
 import com.example.boatroutes.listeners.NPCListener;
 import com.example.boatroutes.listeners.PlayerListener;
 import com.example.boatroutes.listeners.VehicleListener;
 import com.example.boatroutes.listeners.ChunkLoadListener;
+import com.example.boatroutes.listeners.WaterChangeListener;
 import com.example.boatroutes.navigation.NavigationManager;
 import com.example.boatroutes.npc.NPCManager;
 import com.example.boatroutes.pathfinding.PathfindingManager;
 import com.example.boatroutes.port.PortManager;
+import com.example.boatroutes.scheduler.TaskScheduler;
+import com.example.boatroutes.storage.StorageManager;
 import org.bukkit.plugin.java.JavaPlugin;
 
 public class BoatRoutesPlugin extends JavaPlugin {
     
+    private TaskScheduler taskScheduler;
+    private StorageManager storageManager;
     private PortManager portManager;
     private DockManager dockManager;
     private BoatManager boatManager;
@@ -26,6 +33,7 @@ public class BoatRoutesPlugin extends JavaPlugin {
     private NavigationManager navigationManager;
     private NPCManager npcManager;
     private GUIManager guiManager;
+    private ParticleRenderer particleRenderer;
     
     @Override
     public void onEnable() {
@@ -37,6 +45,8 @@ public class BoatRoutesPlugin extends JavaPlugin {
 
         getLogger().info("Initializing managers...");
 
+        taskScheduler = new TaskScheduler(this);
+        storageManager = new StorageManager(this);
         portManager = new PortManager(this);
         dockManager = new DockManager(this);
         npcManager = new NPCManager(this);
@@ -44,6 +54,7 @@ public class BoatRoutesPlugin extends JavaPlugin {
         boatManager = new BoatManager(this);
         navigationManager = new NavigationManager(this);
         guiManager = new GUIManager(this);
+        particleRenderer = new ParticleRenderer(this);
 
         getLogger().info("Registering commands...");
         getCommand("port").setExecutor(new PortCommand(this));
@@ -52,13 +63,17 @@ public class BoatRoutesPlugin extends JavaPlugin {
 
         getLogger().info("Registering listeners...");
         getServer().getPluginManager().registerEvents(new VehicleListener(this), this);
+        getServer().getPluginManager().registerEvents(new BoatEntityListener(this), this);
         getServer().getPluginManager().registerEvents(new PlayerListener(this), this);
         getServer().getPluginManager().registerEvents(new NPCListener(this), this);
         getServer().getPluginManager().registerEvents(new GUIListener(this), this);
+        ChunkLoadListener chunkLoadListener = new ChunkLoadListener(this, pathfindingManager.getCache());
+        getServer().getPluginManager().registerEvents(chunkLoadListener, this);
         getServer().getPluginManager().registerEvents(
-               new ChunkLoadListener(this, pathfindingManager.getCache()), this);
+               new WaterChangeListener(this, chunkLoadListener), this);
 
         getLogger().info("Loading data...");
+        storageManager.migrateFromYaml();
         portManager.loadAllPorts();
         boatManager.loadAllBoats();
         pathfindingManager.loadAllPaths();
@@ -74,13 +89,24 @@ public class BoatRoutesPlugin extends JavaPlugin {
         getLogger().info("Saving data...");
         
         if (portManager != null) portManager.saveAllPorts();
-        if (boatManager != null) boatManager.saveAllBoats();
+        if (boatManager != null) boatManager.shutdown();
         
         if (navigationManager != null) navigationManager.stopAllAutopilots();
+        if (pathfindingManager != null) pathfindingManager.shutdown();
+        
+        if (storageManager != null) storageManager.close();
         
         getLogger().info("BoatRoutes disabled!");
     }
     
+    public TaskScheduler getTaskScheduler() {
+        return taskScheduler;
+    }
+    
+    public StorageManager getStorageManager() {
+        return storageManager;
+    }
+    
     public PortManager getPortManager() {
         return portManager;
     }
@@ -109,4 +135,8 @@ public class BoatRoutesPlugin extends JavaPlugin {
     public GUIManager getGUIManager() {
         return guiManager;
     }
+    
+    public ParticleRenderer getParticleRenderer() {
+        return particleRenderer;
+    }
 }
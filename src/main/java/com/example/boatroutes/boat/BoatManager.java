@@ -1,16 +1,27 @@
 package com.example.boatroutes.boat;
 
 import com.example.boatroutes.BoatRoutesPlugin;
+import com.example.boatroutes.dock.Dock;
 import com.example.boatroutes.port.Port;
+import com.example.boatroutes.scheduler.TaskScheduler;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Boat;
 import org.bukkit.entity.Entity;
 
+import java.lang.ref.WeakReference;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Manages all player boats
  * NEW LOGIC: Players can create multiple boats (one per available dock)
+ * 
+ * Boat registry:
+ * - entity UUID -> PlayerBoat, entity UUID -> dock (PortIndex), dock -> PlayerBoat
+ * - Boat entities are held by weak references, refreshed when their
+ *   chunk entities load (EntitiesLoadEvent) - no Bukkit.getEntity per access
+ * - Changes are saved by a periodic task (boats.save-interval-ticks),
+ *   not only on shutdown
  */
 public class BoatManager {
     
@@ -20,6 +31,16 @@ public class BoatManager {
     // Track all player boats: playerUUID -> List of PlayerBoat
     private final Map<UUID, List<PlayerBoat>> playerBoats;
     
+    // Registry: boat entity UUID -> PlayerBoat
+    private final Map<UUID, PlayerBoat> boatsByEntity = new ConcurrentHashMap<>();
+    
+    // Loaded boat entities (cleared when their chunk unloads)
+    private final Map<UUID, WeakReference<Boat>> entities = new ConcurrentHashMap<>();
+    
+    // Boats changed since the last save
+    private volatile boolean dirty;
+    private TaskScheduler.Task saveTask;
+    
     // Track players waiting to name their boat
     private final Set<UUID> awaitingBoatName;
     
@@ -78,7 +99,9 @@ public class BoatManager {
         playerBoat.setCurrentPort(portName, findDockNumber(port, boat));
         
         // Store (allow multiple boats per player)
-        playerBoats.computeIfAbsent(playerUUID, k -> new ArrayList<>()).add(playerBoat);
+        register(playerBoat);
+        entities.put(boat.getUniqueId(), new WeakReference<>(boat));
+        dirty = true;
         
         return true;
     }
@@ -87,30 +110,109 @@ public class BoatManager {
      * Despawn a specific boat by UUID
      */
     public boolean despawnBoat(UUID boatEntityUUID) {
-        for (var entry : playerBoats.entrySet()) {
-            List<PlayerBoat> boats = entry.getValue();
-            
-            for (int i = 0; i < boats.size(); i++) {
-                PlayerBoat playerBoat = boats.get(i);
-                
-                if (playerBoat.getBoatEntityUUID() != null && 
-                    playerBoat.getBoatEntityUUID().equals(boatEntityUUID)) {
-                    
-                    // Find and remove boat entity
-                    Entity entity = Bukkit.getEntity(boatEntityUUID);
-                    if (entity instanceof Boat boat) {
-                        boatSpawner.despawnBoat(boat);
-                    }
-                    
-                    // Remove from tracking
-                    boats.remove(i);
-                    
-                    return true;
-                }
+        PlayerBoat playerBoat = boatsByEntity.remove(boatEntityUUID);
+        if (playerBoat == null) {
+            return false;
+        }
+        
+        // Find and remove boat entity (frees its dock)
+        Boat boat = getEntity(boatEntityUUID);
+        if (boat != null) {
+            boatSpawner.despawnBoat(boat);
+        } else {
+            // Entity not loaded - free the dock anyway
+            Dock dock = plugin.getPortManager().getIndex().releaseBoat(boatEntityUUID);
+            if (dock != null) {
+                plugin.getPortManager().savePort(dock.getPort());
             }
         }
+        entities.remove(boatEntityUUID);
+        
+        // Remove from tracking
+        List<PlayerBoat> boats = playerBoats.get(playerBoat.getOwnerUUID());
+        if (boats != null) {
+            boats.remove(playerBoat);
+        }
+        dirty = true;
+        
+        return true;
+    }
+    
+    // === REGISTRY ===
+    
+    private void register(PlayerBoat playerBoat) {
+        playerBoats.computeIfAbsent(playerBoat.getOwnerUUID(), k -> new ArrayList<>()).add(playerBoat);
+        if (playerBoat.getBoatEntityUUID() != null) {
+            boatsByEntity.put(playerBoat.getBoatEntityUUID(), playerBoat);
+        }
+    }
+    
+    /**
+     * Boat data by entity UUID
+     */
+    public PlayerBoat getBoatByEntity(UUID boatEntityUUID) {
+        return boatEntityUUID != null ? boatsByEntity.get(boatEntityUUID) : null;
+    }
+    
+    /**
+     * Dock the boat is parked at (null while sailing)
+     */
+    public Dock getDock(PlayerBoat playerBoat) {
+        return plugin.getPortManager().getIndex().getDockForBoat(playerBoat.getBoatEntityUUID());
+    }
+    
+    /**
+     * Boat parked at the dock
+     */
+    public PlayerBoat getBoatAtDock(Dock dock) {
+        return getBoatByEntity(dock.getCurrentBoatUUID());
+    }
+    
+    /**
+     * Loaded boat entity. Entities are cached by weak reference; only a
+     * cache miss (e.g. boats that loaded before the plugin) asks Bukkit.
+     */
+    public Boat getEntity(UUID boatEntityUUID) {
+        if (boatEntityUUID == null) return null;
+        
+        WeakReference<Boat> ref = entities.get(boatEntityUUID);
+        Boat boat = ref != null ? ref.get() : null;
+        if (boat != null && boat.isValid()) {
+            return boat;
+        }
+        
+        if (ref != null || !boatsByEntity.containsKey(boatEntityUUID)) {
+            // Known to be unloaded / not ours
+            return null;
+        }
         
-        return false;
+        Entity entity = Bukkit.getEntity(boatEntityUUID);
+        Boat found = entity instanceof Boat b ? b : null;
+        // Not loaded: remembered until EntitiesLoadEvent brings it in
+        entities.put(boatEntityUUID, new WeakReference<>(found));
+        return found;
+    }
+    
+    /**
+     * Chunk entities loaded (EntitiesLoadEvent)
+     */
+    public void onEntitiesLoad(List<Entity> loaded) {
+        for (Entity entity : loaded) {
+            if (entity instanceof Boat boat && boatsByEntity.containsKey(boat.getUniqueId())) {
+                entities.put(boat.getUniqueId(), new WeakReference<>(boat));
+            }
+        }
+    }
+    
+    /**
+     * Chunk entities unloaded (EntitiesUnloadEvent)
+     */
+    public void onEntitiesUnload(List<Entity> unloaded) {
+        for (Entity entity : unloaded) {
+            if (entity instanceof Boat) {
+                entities.computeIfPresent(entity.getUniqueId(), (k, v) -> new WeakReference<>(null));
+            }
+        }
     }
     
     // === BOAT QUERIES ===
@@ -143,16 +245,11 @@ public class BoatManager {
      */
     public Boat getBoatEntity(UUID playerUUID) {
         PlayerBoat playerBoat = getPlayerBoat(playerUUID);
-        if (playerBoat == null || playerBoat.getBoatEntityUUID() == null) {
+        if (playerBoat == null) {
             return null;
         }
         
-        Entity entity = Bukkit.getEntity(playerBoat.getBoatEntityUUID());
-        if (entity instanceof Boat boat) {
-            return boat;
-        }
-        
-        return null;
+        return getEntity(playerBoat.getBoatEntityUUID());
     }
     
     // === NAME INPUT TRACKING ===
@@ -196,19 +293,64 @@ public class BoatManager {
     // === STORAGE ===
     
     /**
-     * Load all boats from file
+     * Load all boats from storage (boats.yml or data.db)
      */
     public void loadAllBoats() {
-        // TODO: Implement file loading in future
-        plugin.getLogger().info("Boat loading not yet implemented");
+        playerBoats.clear();
+        boatsByEntity.clear();
+        entities.clear();
+        
+        List<PlayerBoat> loaded = plugin.getStorageManager().getBoatStore().loadAll();
+        for (PlayerBoat boat : loaded) {
+            register(boat);
+            
+            // Restore dock occupancy
+            if (boat.getCurrentPortName() != null && boat.getCurrentDockNumber() != null) {
+                Port port = plugin.getPortManager().getPort(boat.getCurrentPortName());
+                var dock = port != null ? port.getDock(boat.getCurrentDockNumber()) : null;
+                if (dock != null) {
+                    plugin.getPortManager().getIndex().assignBoat(dock, boat.getBoatEntityUUID());
+                }
+            }
+        }
+        
+        plugin.getLogger().info("Loaded " + loaded.size() + " boats");
+        
+        if (saveTask == null) {
+            long interval = Math.max(20, plugin.getConfig().getLong("boats.save-interval-ticks", 600));
+            saveTask = plugin.getTaskScheduler().runGlobalTimer(task -> saveIfDirty(), interval, interval);
+        }
     }
     
     /**
-     * Save all boats to file
+     * Save all boats to storage
      */
     public void saveAllBoats() {
-        // TODO: Implement file saving in future
-        plugin.getLogger().info("Boat saving not yet implemented");
+        dirty = false;
+        List<PlayerBoat> all = new ArrayList<>(boatsByEntity.values());
+        
+        plugin.getStorageManager().getBoatStore().saveAll(all);
+        plugin.getLogger().info("Saved " + all.size() + " boats");
+    }
+    
+    /**
+     * Periodic save: only when boats were created or removed
+     */
+    private void saveIfDirty() {
+        if (dirty) {
+            saveAllBoats();
+        }
+    }
+    
+    /**
+     * Stop the periodic save and write everything (plugin disable)
+     */
+    public void shutdown() {
+        if (saveTask != null) {
+            saveTask.cancel();
+            saveTask = null;
+        }
+        saveAllBoats();
     }
     
     // === UTILITY ===
@@ -217,7 +359,10 @@ public class BoatManager {
      * Find dock number where boat is spawned
      */
     private int findDockNumber(Port port, Boat boat) {
-        var dock = boatSpawner.getDockAtLocation(boat.getLocation());
+        var dock = plugin.getPortManager().getIndex().getDockForBoat(boat.getUniqueId());
+        if (dock == null) {
+            dock = boatSpawner.getDockAtLocation(boat.getLocation());
+        }
         return dock != null ? dock.getNumber() : 1;
     }
     
@@ -42,7 +42,7 @@ public class BoatSpawner {
         boat.setPersistent(true);
 
         // Mark dock as occupied
-        availableDock.setCurrentBoat(boat.getUniqueId());
+        plugin.getPortManager().getIndex().assignBoat(availableDock, boat.getUniqueId());
 
         // Save port state
         plugin.getPortManager().savePort(port);
@@ -57,15 +57,9 @@ public class BoatSpawner {
         if (boat == null || !boat.isValid()) return;
 
         // Find and free the dock
-        for (Port port : plugin.getPortManager().getAllPorts()) {
-            for (Dock dock : port.getDocks()) {
-                if (dock.getCurrentBoatUUID() != null &&
-                        dock.getCurrentBoatUUID().equals(boat.getUniqueId())) {
-                    dock.setCurrentBoat(null);
-                    plugin.getPortManager().savePort(port);
-                    break;
-                }
-            }
+        Dock dock = plugin.getPortManager().getIndex().releaseBoat(boat.getUniqueId());
+        if (dock != null) {
+            plugin.getPortManager().savePort(dock.getPort());
         }
 
         // Remove boat entity
@@ -85,31 +79,16 @@ public class BoatSpawner {
     }
 
     /**
-     * Get dock at location
+     * Get dock at location (spatial index lookup)
      */
     public Dock getDockAtLocation(Location location) {
-        for (Port port : plugin.getPortManager().getAllPorts()) {
-            for (Dock dock : port.getDocks()) {
-                if (dock.getLocation().distance(location) < 5) {
-                    return dock;
-                }
-            }
-        }
-        return null;
+        return plugin.getPortManager().getIndex().findDock(location);
     }
 
     /**
-     * Check if boat is part of port system
+     * Check if boat is part of port system (boat UUID -> dock map)
      */
     public boolean isPortBoat(Boat boat) {
-        for (Port port : plugin.getPortManager().getAllPorts()) {
-            for (Dock dock : port.getDocks()) {
-                if (dock.getCurrentBoatUUID() != null &&
-                        dock.getCurrentBoatUUID().equals(boat.getUniqueId())) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return plugin.getPortManager().getIndex().isPortBoat(boat.getUniqueId());
     }
 }
\ No newline at end of file
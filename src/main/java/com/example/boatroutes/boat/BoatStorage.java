@@ -0,0 +1,99 @@
+package com.example.boatroutes.boat;
+
+import com.example.boatroutes.BoatRoutesPlugin;
+import com.example.boatroutes.storage.BoatStore;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * YAML storage for player boats (boats.yml)
+ * Saves: owner, name, entity UUID, current port/dock, statistics
+ */
+public class BoatStorage implements BoatStore {
+    
+    private final BoatRoutesPlugin plugin;
+    private final File file;
+    
+    public BoatStorage(BoatRoutesPlugin plugin, File file) {
+        this.plugin = plugin;
+        this.file = file;
+    }
+    
+    /**
+     * Load all boats from file
+     */
+    @Override
+    public List<PlayerBoat> loadAll() {
+        List<PlayerBoat> boats = new ArrayList<>();
+        
+        if (!file.exists()) {
+            return boats;
+        }
+        
+        FileConfiguration config = YamlConfiguration.loadConfiguration(file);
+        ConfigurationSection boatsSection = config.getConfigurationSection("boats");
+        if (boatsSection == null) {
+            return boats;
+        }
+        
+        for (String entityId : boatsSection.getKeys(false)) {
+            ConfigurationSection section = boatsSection.getConfigurationSection(entityId);
+            if (section == null) continue;
+            
+            try {
+                PlayerBoat boat = new PlayerBoat(
+                    UUID.fromString(section.getString("owner")),
+                    section.getString("name")
+                );
+                boat.setBoatEntityUUID(UUID.fromString(entityId));
+                boat.setCreatedAt(section.getLong("created-at", System.currentTimeMillis()));
+                boat.setTotalTrips(section.getInt("trips", 0));
+                
+                if (section.contains("port")) {
+                    boat.setCurrentPort(section.getString("port"), section.getInt("dock", 1));
+                }
+                
+                boats.add(boat);
+            } catch (IllegalArgumentException | NullPointerException e) {
+                plugin.getLogger().warning("Invalid boat entry '" + entityId + "' in boats.yml");
+            }
+        }
+        
+        return boats;
+    }
+    
+    /**
+     * Save all boats to file
+     */
+    @Override
+    public void saveAll(Collection<PlayerBoat> boats) {
+        FileConfiguration config = new YamlConfiguration();
+        
+        for (PlayerBoat boat : boats) {
+            if (boat.getBoatEntityUUID() == null) continue;
+            
+            String path = "boats." + boat.getBoatEntityUUID();
+            config.set(path + ".owner", boat.getOwnerUUID().toString());
+            config.set(path + ".name", boat.getName());
+            config.set(path + ".created-at", boat.getCreatedAt());
+            config.set(path + ".trips", boat.getTotalTrips());
+            
+            if (boat.getCurrentPortName() != null) {
+                config.set(path + ".port", boat.getCurrentPortName());
+                config.set(path + ".dock", boat.getCurrentDockNumber());
+            }
+        }
+        
+        try {
+            file.getParentFile().mkdirs();
+            config.save(file);
+        } catch (IOException e) {
+            plugin.getLogger().severe("Failed to save boats.yml: " + e.getMessage());
+        }
+    }
+}
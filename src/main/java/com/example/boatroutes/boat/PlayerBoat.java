@@ -69,6 +69,14 @@ public class PlayerBoat {
         this.boatEntityUUID = boatEntityUUID;
     }
     
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public void setTotalTrips(int totalTrips) {
+        this.totalTrips = totalTrips;
+    }
+    
     public void setCurrentPort(String portName, int dockNumber) {
         this.currentPortName = portName;
         this.currentDockNumber = dockNumber;
@@ -7,17 +7,28 @@ import org.bukkit.configuration.file.YamlConfiguration;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Base64;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
- * WaterWorldCache v5.0 - Кеш с COST SYSTEM (Thread-Safe)
+ * WaterWorldCache v5.2 - Кеш с COST SYSTEM (Thread-Safe)
  * 
  * ИСПРАВЛЕНО: ConcurrentHashMap для thread-safety
  * 
+ * НОВОЕ v5.2:
+ * - Слой глубин: глубина воды под sea level, 4 бита на колонку,
+ *   128 байт на чанк (заполняется при сканировании чанка)
+ * 
+ * НОВОЕ v5.1:
+ * - CostChangeListener: уведомление когда уже известный блок меняет cost
+ *   (первичное заполнение кеша слушателей не будит)
+ * 
  * @author BoatRoutes Team
- * @version 5.0-FIXED
+ * @version 5.2-DEPTH-LAYER
  */
 public class WaterWorldCache {
     
@@ -28,6 +39,17 @@ public class WaterWorldCache {
     // Thread-safe кеш!
     private final Map<Long, BlockData> cache = new ConcurrentHashMap<>();
     
+    // Слой глубин: chunk key -> 256 колонок по 4 бита (0 = неизвестно, иначе глубина + 1)
+    private final Map<Long, byte[]> depthLayer = new ConcurrentHashMap<>();
+    
+    /**
+     * Максимальная глубина в слое (больше - хранится как MAX_DEPTH)
+     */
+    public static final int MAX_DEPTH = 14;
+    
+    // Слушатели изменений cost
+    private final List<CostChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    
     // Статистика
     private int cacheHits = 0;
     private int cacheMisses = 0;
@@ -82,7 +104,55 @@ public class WaterWorldCache {
      */
     public void setWater(int x, int z, boolean isWater, int cost) {
         long key = packCoords(x, z);
-        cache.put(key, new BlockData(isWater, cost));
+        BlockData old = cache.put(key, new BlockData(isWater, cost));
+        
+        if (old != null && old.cost != cost && !changeListeners.isEmpty()) {
+            for (CostChangeListener listener : changeListeners) {
+                listener.onCostChanged(x, z, old.cost, cost);
+            }
+        }
+    }
+    
+    /**
+     * Глубина воды в колонке (из слоя глубин)
+     * 
+     * @return глубина 0..MAX_DEPTH или -1 если неизвестна
+     */
+    public int getDepth(int x, int z) {
+        byte[] layer = depthLayer.get(packCoords(x >> 4, z >> 4));
+        if (layer == null) return -1;
+        
+        int index = ((z & 15) << 4) | (x & 15);
+        int nibble = (layer[index >> 1] >> ((index & 1) << 2)) & 0xF;
+        return nibble - 1;
+    }
+    
+    /**
+     * Записывает глубину колонки в слой глубин
+     */
+    public void setDepth(int x, int z, int depth) {
+        byte[] layer = depthLayer.computeIfAbsent(packCoords(x >> 4, z >> 4), k -> new byte[128]);
+        
+        int index = ((z & 15) << 4) | (x & 15);
+        int shift = (index & 1) << 2;
+        int nibble = Math.max(0, Math.min(depth, MAX_DEPTH)) + 1;
+        
+        // Две колонки делят байт - запись под блокировкой слоя чанка
+        synchronized (layer) {
+            layer[index >> 1] = (byte) ((layer[index >> 1] & ~(0xF << shift)) | (nibble << shift));
+        }
+    }
+    
+    /**
+     * Подписка на изменения cost уже закешированных блоков.
+     * Вызывается в потоке, который пишет в кеш - слушатель должен быть быстрым.
+     */
+    public void addChangeListener(CostChangeListener listener) {
+        changeListeners.add(listener);
+    }
+    
+    public void removeChangeListener(CostChangeListener listener) {
+        changeListeners.remove(listener);
     }
     
     /**
@@ -157,6 +227,7 @@ public class WaterWorldCache {
      */
     public void clearCache() {
         cache.clear();
+        depthLayer.clear();
         cacheHits = 0;
         cacheMisses = 0;
         
@@ -176,7 +247,7 @@ public class WaterWorldCache {
             cacheConfig = new YamlConfiguration();
             
             // Сохраняем метаданные
-            cacheConfig.set("meta.version", "5.0");
+            cacheConfig.set("meta.version", "5.2");
             cacheConfig.set("meta.blocks", cache.size());
             cacheConfig.set("meta.saved", System.currentTimeMillis());
             
@@ -211,9 +282,29 @@ public class WaterWorldCache {
             
             cacheConfig.set("meta.totalBlocks", blockCount);
             
+            // Слой глубин: cx,cz,base64(128 байт);...
+            int depthChunks = 0;
+            StringBuilder depth = new StringBuilder();
+            for (Map.Entry<Long, byte[]> entry : depthLayer.entrySet()) {
+                int[] coords = unpackCoords(entry.getKey());
+                depth.append(coords[0]).append(",")
+                     .append(coords[1]).append(",")
+                     .append(Base64.getEncoder().encodeToString(entry.getValue())).append(";");
+                
+                depthChunks++;
+                if (depthChunks % 500 == 0) {
+                    cacheConfig.set("depth.chunk" + (depthChunks / 500), depth.toString());
+                    depth = new StringBuilder();
+                }
+            }
+            if (depth.length() > 0) {
+                cacheConfig.set("depth.chunk" + ((depthChunks / 500) + 1), depth.toString());
+            }
+            
             cacheConfig.save(cacheFile);
             
-            plugin.getLogger().info("Water cache saved: " + blockCount + " blocks (v5.0 with costs)");
+            plugin.getLogger().info("Water cache saved: " + blockCount + " blocks, " +
+                depthChunks + " depth chunks (v5.2)");
             
         } catch (IOException e) {
             plugin.getLogger().warning("Could not save water cache: " + e.getMessage());
@@ -248,6 +339,11 @@ public class WaterWorldCache {
                 loadV4Format();
             }
             
+            // Слой глубин (v5.2+)
+            if (cacheConfig.contains("depth")) {
+                loadDepthLayer();
+            }
+            
         } catch (Exception e) {
             plugin.getLogger().warning("Could not load water cache: " + e.getMessage());
         }
@@ -286,6 +382,35 @@ public class WaterWorldCache {
         plugin.getLogger().info("Water cache loaded: " + loadedCount + " blocks (v5.0 with costs)");
     }
     
+    /**
+     * Загрузка слоя глубин (v5.2)
+     */
+    private void loadDepthLayer() {
+        int loadedChunks = 0;
+        
+        for (String chunkKey : cacheConfig.getConfigurationSection("depth").getKeys(false)) {
+            String data = cacheConfig.getString("depth." + chunkKey, "");
+            
+            for (String entry : data.split(";")) {
+                if (entry.isEmpty()) continue;
+                
+                String[] parts = entry.split(",");
+                if (parts.length < 3) continue;
+                
+                try {
+                    byte[] layer = Base64.getDecoder().decode(parts[2]);
+                    if (layer.length != 128) continue;
+                    
+                    depthLayer.put(packCoords(Integer.parseInt(parts[0]), Integer.parseInt(parts[1])), layer);
+                    loadedChunks++;
+                } catch (IllegalArgumentException ignored) {
+                }
+            }
+        }
+        
+        plugin.getLogger().info("Depth layer loaded: " + loadedChunks + " chunks");
+    }
+    
     /**
      * Загрузка v4.0 формата (без cost - backward compatibility)
      */
@@ -324,7 +449,7 @@ public class WaterWorldCache {
      */
     public long getMemoryUsage() {
         // Примерная оценка: 8 bytes ключ + 5 bytes BlockData + overhead
-        return cache.size() * 25L;
+        return cache.size() * 25L + depthLayer.size() * 160L;
     }
     
     /**
@@ -362,6 +487,13 @@ public class WaterWorldCache {
         return new CacheStats(cachedChunks, waterBlocks, fileSizeBytes);
     }
     
+    /**
+     * Слушатель изменений cost
+     */
+    public interface CostChangeListener {
+        void onCostChanged(int x, int z, int oldCost, int newCost);
+    }
+    
     /**
      * Класс для статистики кеша
      */
@@ -84,7 +84,7 @@ public class ExportCommand implements CommandExecutor {
         player.sendMessage("");
 
         // Экспорт в async потоке (безопасно - читаем только из памяти!)
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+        plugin.getTaskScheduler().runAsync(() -> {
             try {
                 long startTime = System.currentTimeMillis();
 
@@ -98,7 +98,7 @@ public class ExportCommand implements CommandExecutor {
 
                 long elapsed = System.currentTimeMillis() - startTime;
 
-                Bukkit.getScheduler().runTask(plugin, () -> {
+                plugin.getTaskScheduler().runAtEntity(player, () -> {
                     player.sendMessage("");
                     player.sendMessage("§a✓ Экспорт завершён успешно!");
                     player.sendMessage("");
@@ -118,7 +118,7 @@ public class ExportCommand implements CommandExecutor {
                     player.sendMessage("");
                 });
             } catch (Exception e) {
-                Bukkit.getScheduler().runTask(plugin, () -> {
+                plugin.getTaskScheduler().runAtEntity(player, () -> {
                     player.sendMessage("");
                     player.sendMessage("§c✗ Ошибка экспорта!");
                     player.sendMessage("§7" + e.getMessage());
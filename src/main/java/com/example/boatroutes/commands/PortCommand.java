@@ -1,6 +1,9 @@
 package com.example.boatroutes.commands;
 
 import com.example.boatroutes.BoatRoutesPlugin;
+import com.example.boatroutes.debug.ParticleRenderer;
+import com.example.boatroutes.pathfinding.NavAnchorManager;
+import com.example.boatroutes.pathfinding.PathfindingExecutor;
 import com.example.boatroutes.port.Port;
 import org.bukkit.Location;
 import org.bukkit.Particle;
@@ -9,6 +12,7 @@ import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
@@ -44,6 +48,7 @@ public class PortCommand implements CommandExecutor {
             case "info" -> handleInfo(player, args);
             case "fix" -> handleFix(player, args);
             case "connect" -> handleConnect(player, args);
+            case "connect-all" -> handleConnectAll(player, args);
             case "reconnect" -> handleReconnect(player, args);
             case "disconnect" -> handleDisconnect(player, args);
             case "routes" -> handleRoutes(player, args);
@@ -63,6 +68,7 @@ public class PortCommand implements CommandExecutor {
         player.sendMessage("§e/port list §7- List all ports");
         player.sendMessage("§e/port info <n> §7- Port information");
         player.sendMessage("§e/port connect <A> <B> §7- Calculate path");
+        player.sendMessage("§e/port connect-all [n] §7- Connect all ports (or one port to all)");
         player.sendMessage("§e/port reconnect <A> <B> §7- Recalculate path");
         player.sendMessage("§e/port visualize <n> §7- Visualize path");
         player.sendMessage("§e/port routes list §7- List routes");
@@ -187,6 +193,24 @@ public class PortCommand implements CommandExecutor {
         plugin.getPathfindingManager().findPathBetweenPortsAsync(port1, port2, player);
     }
 
+    private void handleConnectAll(Player player, String[] args) {
+        Port only = null;
+
+        if (args.length >= 2) {
+            only = plugin.getPortManager().getPort(args[1]);
+            if (only == null) {
+                player.sendMessage("§cPort '" + args[1] + "' does not exist!");
+                return;
+            }
+            if (!only.isFullySetup()) {
+                player.sendMessage("§cPort must be fully set up!");
+                return;
+            }
+        }
+
+        plugin.getPathfindingManager().getNetworkBuilder().connectAll(only, player);
+    }
+
     private void handleReconnect(Player player, String[] args) {
         if (args.length < 3) {
             player.sendMessage("§cUsage: §e/port reconnect <A> <B>");
@@ -359,44 +383,54 @@ public class PortCommand implements CommandExecutor {
         }
 
         Location convergence = port.getConvergencePoint();
+        NavAnchorManager anchors = plugin.getPathfindingManager().getAnchorManager();
+
+        // Якорь уже посчитан и актуален - ответ сразу
+        if (anchors.isValid(port)) {
+            player.sendMessage("§6⚓ Navigable water for §e" + portName + " §7(cached anchor)");
+            reportNavWater(player, convergence, port.getNavAnchor().clone(), port.getNavScore());
+            return;
+        }
 
         player.sendMessage("§6⚓ Searching for navigable water from §e" + portName + "§6...");
         player.sendMessage("§7This may take 5-10 seconds");
 
-        org.bukkit.Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            var navFinder = plugin.getPathfindingManager().getPathfinder().getNavFinder();
-            Location navWater = navFinder.findNavigableWater(convergence, 50);
-
-            org.bukkit.Bukkit.getScheduler().runTask(plugin, () -> {
-                if (navWater == null) {
-                    player.sendMessage("");
-                    player.sendMessage("§c✗ Cannot find navigable water within 50 blocks!");
-                    player.sendMessage("§7Port may be in closed bay");
-                    player.sendMessage("§7Try: Move port closer to open water");
-                } else {
-                    int distance = (int) convergence.distance(navWater);
-                    int score = navFinder.getNavigabilityScore(navWater);
-
-                    player.sendMessage("");
-                    player.sendMessage("§a✓ Found navigable water!");
-                    player.sendMessage("§7Location: §f" + formatLocation(navWater));
-                    player.sendMessage("§7Distance: §f" + distance + " blocks");
-                    player.sendMessage("§7Score: " + getScoreColor(score) + score + "/100");
-
-                    if (score >= 80) {
-                        player.sendMessage("§a✓ Excellent open water!");
-                    } else if (score >= 60) {
-                        player.sendMessage("§e⚡ Good navigable water");
+        anchors.recompute(port, PathfindingExecutor.Priority.INTERACTIVE).whenComplete((navWater, error) ->
+                plugin.getTaskScheduler().runAtEntity(player, () -> {
+                    if (error != null) {
+                        player.sendMessage("§c✗ Pathfinding queue is full, try again later");
+                    } else if (navWater == null) {
+                        player.sendMessage("");
+                        player.sendMessage("§c✗ Cannot find navigable water within 50 blocks!");
+                        player.sendMessage("§7Port may be in closed bay");
+                        player.sendMessage("§7Try: Move port closer to open water");
                     } else {
-                        player.sendMessage("§7⚠ Marginal water");
+                        var navFinder = plugin.getPathfindingManager().getPathfinder().getNavFinder();
+                        reportNavWater(player, convergence, navWater, navFinder.getNavigabilityScore(navWater));
                     }
+                }));
+    }
 
-                    Location tpLoc = navWater.clone().add(0, 5, 0);
-                    player.teleport(tpLoc);
-                    player.sendMessage("§7Teleported above navigable water");
-                }
-            });
-        });
+    private void reportNavWater(Player player, Location convergence, Location navWater, int score) {
+        int distance = (int) convergence.distance(navWater);
+
+        player.sendMessage("");
+        player.sendMessage("§a✓ Found navigable water!");
+        player.sendMessage("§7Location: §f" + formatLocation(navWater));
+        player.sendMessage("§7Distance: §f" + distance + " blocks");
+        player.sendMessage("§7Score: " + getScoreColor(score) + score + "/100");
+
+        if (score >= 80) {
+            player.sendMessage("§a✓ Excellent open water!");
+        } else if (score >= 60) {
+            player.sendMessage("§e⚡ Good navigable water");
+        } else {
+            player.sendMessage("§7⚠ Marginal water");
+        }
+
+        Location tpLoc = navWater.clone().add(0, 5, 0);
+        player.teleport(tpLoc);
+        player.sendMessage("§7Teleported above navigable water");
     }
 
     private void handleVisualize(Player player, String[] args) {
@@ -442,66 +476,32 @@ public class PortCommand implements CommandExecutor {
         // Телепортируем игрока к началу
         Location startLoc = path.get(0).clone();
         startLoc.setY(startLoc.getY() + 10);
-        player.teleport(startLoc);
-
-        // Показываем частицы постоянно в течение 30 секунд
-        final int DURATION_SECONDS = 30;
-        final int TICKS_PER_SPAWN = 20; // Каждую секунду
-
-        org.bukkit.scheduler.BukkitTask task = org.bukkit.Bukkit.getScheduler().runTaskTimer(plugin, () -> {
-            // Спавним частицы по всему пути
-            for (int i = 0; i < path.size(); i++) {
-                Location loc = path.get(i);
-
-                // Основные зеленые частицы
-                loc.getWorld().spawnParticle(
-                        Particle.HAPPY_VILLAGER,
-                        loc.clone().add(0.5, 0.5, 0.5),
-                        3,
-                        0.2, 0.2, 0.2,
-                        0
-                );
-
-                // Маркеры каждые 10 блоков
-                if (i % 10 == 0) {
-                    loc.getWorld().spawnParticle(
-                            Particle.SPLASH,
-                            loc.clone().add(0.5, 1, 0.5),
-                            10,
-                            0.3, 0.5, 0.3,
-                            0.1
-                    );
-                }
-
-                // Стартовая точка - яркая
-                if (i == 0) {
-                    loc.getWorld().spawnParticle(
-                            Particle.END_ROD,
-                            loc.clone().add(0.5, 2, 0.5),
-                            20,
-                            0.5, 1, 0.5,
-                            0.05
-                    );
-                }
-
-                // Конечная точка - яркая
-                if (i == path.size() - 1) {
-                    loc.getWorld().spawnParticle(
-                            Particle.TOTEM_OF_UNDYING,
-                            loc.clone().add(0.5, 2, 0.5),
-                            20,
-                            0.5, 1, 0.5,
-                            0.05
-                    );
-                }
-            }
-        }, 0L, TICKS_PER_SPAWN);
+        player.teleportAsync(startLoc);
+
+        // Показываем частицы 30 секунд - только этому игроку,
+        // в пределах бюджета частиц и видимой части пути
+        final int DURATION_TICKS = 30 * 20;
+
+        ParticleRenderer renderer = plugin.getParticleRenderer();
+        ParticleRenderer.Line line = renderer.line(path, Particle.HAPPY_VILLAGER, 0.5, 0.5, 0.5);
+
+        // Маркеры каждые 10 блоков
+        List<Location> marks = new ArrayList<>();
+        for (int i = 0; i < path.size(); i += 10) {
+            marks.add(path.get(i).clone().add(0.5, 1, 0.5));
+        }
+        ParticleRenderer.Line markers = renderer.points(marks, Particle.SPLASH);
+
+        Location start = path.get(0).clone().add(0.5, 2, 0.5);
+        Location end = path.get(path.size() - 1).clone().add(0.5, 2, 0.5);
 
-        // Останавливаем через 30 секунд
-        org.bukkit.Bukkit.getScheduler().runTaskLater(plugin, () -> {
-            task.cancel();
-            player.sendMessage("§7Path visualization ended");
-        }, DURATION_SECONDS * 20L);
+        renderer.render(player, DURATION_TICKS, frame -> {
+            // Старт и финиш - яркие, рисуются первыми
+            frame.marker(start, Particle.END_ROD, 20, 0.5, 1, 0.5, 0.05);
+            frame.marker(end, Particle.TOTEM_OF_UNDYING, 20, 0.5, 1, 0.5, 0.05);
+            frame.line(markers);
+            frame.line(line);
+        }, () -> player.sendMessage("§7Path visualization ended"));
 
         player.sendMessage("§a✓ Visualizing! §7(Press F to fly and explore)");
         player.sendMessage("§7Duration: §f30 seconds");
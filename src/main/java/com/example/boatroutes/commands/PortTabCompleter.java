@@ -10,7 +10,7 @@ import java.util.List;
 public class PortTabCompleter implements TabCompleter {
     private final BoatRoutesPlugin plugin;
     private static final List<String> SUBCOMMANDS = Arrays.asList(
-        "create", "delete", "list", "info", "connect", "visualize"
+        "create", "delete", "list", "info", "connect", "connect-all", "visualize"
     );
     
     public PortTabCompleter(BoatRoutesPlugin plugin) {
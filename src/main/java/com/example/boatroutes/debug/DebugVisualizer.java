@@ -8,21 +8,24 @@ import org.bukkit.Particle;
 import org.bukkit.Sound;
 import org.bukkit.World;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitRunnable;
 
 import java.util.List;
 
 /**
  * Debug visualization system
  * Shows ports, docks, paths, and pathfinding process
+ * Particles are drawn by ParticleRenderer: only the viewing player sees them,
+ * within a per-tick particle budget and the part of the route in view
  */
 public class DebugVisualizer {
     
     private final BoatRoutesPlugin plugin;
+    private final ParticleRenderer renderer;
     private static final int DURATION_TICKS = 600; // 30 seconds
     
     public DebugVisualizer(BoatRoutesPlugin plugin) {
         this.plugin = plugin;
+        this.renderer = plugin.getParticleRenderer();
     }
     
     /**
@@ -32,66 +35,49 @@ public class DebugVisualizer {
         player.sendMessage("§6=== Visualizing Port: " + port.getName() + " ===");
         player.sendMessage("§7Duration: 30 seconds");
         
-        World world = player.getWorld();
-        
-        new BukkitRunnable() {
-            int ticks = 0;
+        renderer.render(player, DURATION_TICKS, frame -> {
+            // NPC location (RED)
+            if (port.getNPCLocation() != null) {
+                Location npc = port.getNPCLocation();
+                frame.marker(npc.clone().add(0, 2, 0), Particle.FLAME, 5, 0.3, 0.3, 0.3, 0);
+            }
             
-            @Override
-            public void run() {
-                if (ticks >= DURATION_TICKS) {
-                    player.sendMessage("§7Visualization ended");
-                    cancel();
-                    return;
-                }
-                
-                // NPC location (RED)
-                if (port.getNPCLocation() != null) {
-                    Location npc = port.getNPCLocation();
-                    world.spawnParticle(Particle.FLAME, npc.clone().add(0, 2, 0), 5, 0.3, 0.3, 0.3, 0);
-                }
-                
-                // Convergence point (GREEN)
-                if (port.getConvergencePoint() != null) {
-                    Location conv = port.getConvergencePoint();
-                    world.spawnParticle(Particle.HAPPY_VILLAGER, conv, 10, 0.5, 0.5, 0.5, 0);
-                }
-                
-                // Split point (BLUE) - FIXED: SPLASH instead of WATER_SPLASH
-                if (port.getSplitPoint() != null) {
-                    Location split = port.getSplitPoint();
-                    world.spawnParticle(Particle.SPLASH, split, 10, 0.5, 0.5, 0.5, 0);
-                }
-                
-                // Docks (YELLOW)
-                for (Dock dock : port.getDocks()) {
-                    Location dockLoc = dock.getLocation();
-                    world.spawnParticle(Particle.END_ROD, dockLoc.clone().add(0, 1, 0), 3, 0.3, 0.3, 0.3, 0);
-                    
-                    // Exit point (ORANGE)
-                    if (dock.getExitPoint() != null) {
-                        world.spawnParticle(Particle.LAVA, dock.getExitPoint(), 3, 0.2, 0.2, 0.2, 0);
-                    }
-                    
-                    // Entry point (LIGHT BLUE)
-                    if (dock.getEntryPoint() != null) {
-                        world.spawnParticle(Particle.FALLING_WATER, dock.getEntryPoint(), 3, 0.2, 0.2, 0.2, 0);
-                    }
+            // Convergence point (GREEN)
+            if (port.getConvergencePoint() != null) {
+                frame.marker(port.getConvergencePoint(), Particle.HAPPY_VILLAGER, 10, 0.5, 0.5, 0.5, 0);
+            }
+            
+            // Split point (BLUE) - FIXED: SPLASH instead of WATER_SPLASH
+            if (port.getSplitPoint() != null) {
+                frame.marker(port.getSplitPoint(), Particle.SPLASH, 10, 0.5, 0.5, 0.5, 0);
+            }
+            
+            // Docks (YELLOW)
+            for (Dock dock : port.getDocks()) {
+                Location dockLoc = dock.getLocation();
+                frame.marker(dockLoc.clone().add(0, 1, 0), Particle.END_ROD, 3, 0.3, 0.3, 0.3, 0);
+                
+                // Exit point (ORANGE)
+                if (dock.getExitPoint() != null) {
+                    frame.marker(dock.getExitPoint(), Particle.LAVA, 3, 0.2, 0.2, 0.2, 0);
                 }
                 
-                // Sound effect every 2 seconds
-                if (ticks % 40 == 0) {
-                    player.playSound(player.getLocation(), Sound.BLOCK_NOTE_BLOCK_PLING, 0.5f, 2.0f);
+                // Entry point (LIGHT BLUE)
+                if (dock.getEntryPoint() != null) {
+                    frame.marker(dock.getEntryPoint(), Particle.FALLING_WATER, 3, 0.2, 0.2, 0.2, 0);
                 }
-                
-                ticks++;
             }
-        }.runTaskTimer(plugin, 0L, 1L);
+            
+            // Sound effect every 2 seconds
+            if (frame.every(40)) {
+                player.playSound(player.getLocation(), Sound.BLOCK_NOTE_BLOCK_PLING, 0.5f, 2.0f);
+            }
+        }, () -> player.sendMessage("§7Visualization ended"));
         
         // Teleport player above port
         if (port.getNPCLocation() != null) {
             Location tpLoc = port.getNPCLocation().clone().add(0, 20, 0);
-            player.teleport(tpLoc);
+            player.teleportAsync(tpLoc);
             player.sendMessage("§7Teleported above port for better view");
         }
         
@@ -125,33 +111,22 @@ public class DebugVisualizer {
         player.sendMessage("§7Distance: §f" + distance + " blocks");
         player.sendMessage("§7Duration: 30 seconds");
         
-        new BukkitRunnable() {
-            int ticks = 0;
+        ParticleRenderer.Line line = renderer.line(List.of(conv, split), Particle.END_ROD);
+        
+        renderer.render(player, DURATION_TICKS, frame -> {
+            // Convergence (GREEN)
+            frame.marker(conv, Particle.HAPPY_VILLAGER, 20, 1, 1, 1, 0);
             
-            @Override
-            public void run() {
-                if (ticks >= DURATION_TICKS) {
-                    player.sendMessage("§7Visualization ended");
-                    cancel();
-                    return;
-                }
-                
-                // Convergence (GREEN)
-                world.spawnParticle(Particle.HAPPY_VILLAGER, conv, 20, 1, 1, 1, 0);
-                
-                // Split (BLUE) - FIXED: SPLASH instead of WATER_SPLASH
-                world.spawnParticle(Particle.SPLASH, split, 20, 1, 1, 1, 0);
-                
-                // Line between them (WHITE)
-                drawLine(conv, split, world, Particle.END_ROD);
-                
-                if (ticks % 20 == 0) {
-                    player.playSound(player.getLocation(), Sound.BLOCK_NOTE_BLOCK_HARP, 0.5f, 1.5f);
-                }
-                
-                ticks++;
+            // Split (BLUE) - FIXED: SPLASH instead of WATER_SPLASH
+            frame.marker(split, Particle.SPLASH, 20, 1, 1, 1, 0);
+            
+            // Line between them (WHITE)
+            frame.line(line);
+            
+            if (frame.every(20)) {
+                player.playSound(player.getLocation(), Sound.BLOCK_NOTE_BLOCK_HARP, 0.5f, 1.5f);
             }
-        }.runTaskTimer(plugin, 0L, 2L);
+        }, () -> player.sendMessage("§7Visualization ended"));
         
         // Teleport between points
         Location midpoint = new Location(world,
@@ -159,7 +134,7 @@ public class DebugVisualizer {
             Math.max(conv.getY(), split.getY()) + 30,
             (conv.getZ() + split.getZ()) / 2
         );
-        player.teleport(midpoint);
+        player.teleportAsync(midpoint);
         player.sendMessage("§7Teleported to midpoint above");
     }
     
@@ -176,56 +151,32 @@ public class DebugVisualizer {
         player.sendMessage("§7Waypoints: §f" + path.size());
         player.sendMessage("§7Duration: 30 seconds");
         
-        World world = player.getWorld();
+        // Route line (AQUA) and waypoints (PURPLE), sampled once
+        ParticleRenderer.Line line = renderer.line(path, Particle.DOLPHIN);
+        ParticleRenderer.Line waypoints = renderer.points(path, Particle.WITCH);
         
-        new BukkitRunnable() {
-            int ticks = 0;
-            int waypointIndex = 0;
+        renderer.render(player, DURATION_TICKS, frame -> {
+            // Highlight moves along the path (GOLD)
+            int waypointIndex = (frame.getTick() / 10) % path.size();
+            Location current = path.get(waypointIndex);
+            frame.marker(current.clone().add(0, 2, 0), Particle.FLASH, 1, 0, 0, 0, 0);
+            frame.marker(current, Particle.END_ROD, 30, 1, 1, 1, 0.1);
             
-            @Override
-            public void run() {
-                if (ticks >= DURATION_TICKS) {
-                    player.sendMessage("§7Visualization ended");
-                    cancel();
-                    return;
-                }
-                
-                // Draw all waypoints (PURPLE)
-                for (int i = 0; i < path.size(); i++) {
-                    Location wp = path.get(i);
-                    
-                    // Highlight current waypoint (GOLD)
-                    if (i == waypointIndex) {
-                        world.spawnParticle(Particle.FLASH, wp.clone().add(0, 2, 0), 1);
-                        world.spawnParticle(Particle.END_ROD, wp, 30, 1, 1, 1, 0.1);
-                    } else {
-                        // Regular waypoint (PURPLE)
-                        world.spawnParticle(Particle.WITCH, wp, 2, 0.2, 0.2, 0.2, 0);
-                    }
-                    
-                    // Draw line to next waypoint
-                    if (i < path.size() - 1) {
-                        drawLine(wp, path.get(i + 1), world, Particle.DOLPHIN);
-                    }
-                }
-                
-                // Start and end markers
-                world.spawnParticle(Particle.HAPPY_VILLAGER, path.get(0), 10, 0.5, 0.5, 0.5, 0);
-                world.spawnParticle(Particle.HEART, path.get(path.size() - 1), 10, 0.5, 0.5, 0.5, 0);
-                
-                // Move highlight along path
-                if (ticks % 10 == 0) {
-                    waypointIndex = (waypointIndex + 1) % path.size();
-                    player.playSound(player.getLocation(), Sound.BLOCK_NOTE_BLOCK_HAT, 0.3f, 2.0f);
-                }
-                
-                ticks++;
+            // Start and end markers
+            frame.marker(path.get(0), Particle.HAPPY_VILLAGER, 10, 0.5, 0.5, 0.5, 0);
+            frame.marker(path.get(path.size() - 1), Particle.HEART, 10, 0.5, 0.5, 0.5, 0);
+            
+            frame.line(waypoints);
+            frame.line(line);
+            
+            if (frame.every(10)) {
+                player.playSound(player.getLocation(), Sound.BLOCK_NOTE_BLOCK_HAT, 0.3f, 2.0f);
             }
-        }.runTaskTimer(plugin, 0L, 1L);
+        }, () -> player.sendMessage("§7Visualization ended"));
         
         // Teleport to start of path
         Location startLoc = path.get(0).clone().add(0, 20, 0);
-        player.teleport(startLoc);
+        player.teleportAsync(startLoc);
         player.sendMessage("§7Teleported to path start");
     }
     
@@ -238,46 +189,13 @@ public class DebugVisualizer {
         player.sendMessage("§7To: §f" + formatLoc(end));
         player.sendMessage("§7Watch the search expand!");
         
-        World world = player.getWorld();
-        
-        new BukkitRunnable() {
-            int ticks = 0;
+        renderer.render(player, 200, frame -> {
+            // Start (GREEN)
+            frame.marker(start, Particle.HAPPY_VILLAGER, 10, 1, 1, 1, 0);
             
-            @Override
-            public void run() {
-                if (ticks >= 200) {
-                    cancel();
-                    return;
-                }
-                
-                // Start (GREEN)
-                world.spawnParticle(Particle.HAPPY_VILLAGER, start, 10, 1, 1, 1, 0);
-                
-                // End (RED)
-                world.spawnParticle(Particle.FLAME, end, 10, 1, 1, 1, 0);
-                
-                ticks++;
-            }
-        }.runTaskTimer(plugin, 0L, 2L);
-    }
-    
-    /**
-     * Draw a line between two points with particles
-     */
-    private void drawLine(Location start, Location end, World world, Particle particle) {
-        double distance = start.distance(end);
-        int points = (int) (distance * 2); // 2 particles per block
-        
-        for (int i = 0; i <= points; i++) {
-            double t = (double) i / points;
-            
-            double x = start.getX() + (end.getX() - start.getX()) * t;
-            double y = start.getY() + (end.getY() - start.getY()) * t;
-            double z = start.getZ() + (end.getZ() - start.getZ()) * t;
-            
-            Location point = new Location(world, x, y, z);
-            world.spawnParticle(particle, point, 1, 0, 0, 0, 0);
-        }
+            // End (RED)
+            frame.marker(end, Particle.FLAME, 10, 1, 1, 1, 0);
+        }, null);
     }
     
     private String formatLoc(Location loc) {
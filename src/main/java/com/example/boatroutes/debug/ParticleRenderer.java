@@ -0,0 +1,403 @@
+package com.example.boatroutes.debug;
+
+import com.example.boatroutes.BoatRoutesPlugin;
+import com.example.boatroutes.scheduler.TaskScheduler;
+import org.bukkit.Location;
+import org.bukkit.Particle;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.util.Vector;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * ParticleRenderer - Отрисовка маршрутов частицами для одного игрока
+ *
+ * - Частицы видит только зритель (Player.spawnParticle), не весь мир
+ * - Бюджет частиц на зрителя за тик: ближние участки рисуются первыми,
+ *   дальние отбрасываются, когда бюджет кончился; бюджет общий для всех
+ *   показов зрителя (visualize + debug не удваивают его)
+ * - Отсечение по дальности и по конусу обзора (участки за спиной не рисуются)
+ * - LOD: дальше lod-distance рисуется каждая 2-я, 4-я, ... точка линии
+ * - Линия сэмплируется один раз (Line) и делится на группы точек -
+ *   отсечение идёт по группам, а не по точкам
+ * - Таймер привязан к зрителю (Folia: поток региона игрока)
+ *
+ * @author BoatRoutes Team
+ * @version 1.0
+ */
+public class ParticleRenderer {
+
+    // Точек в группе отсечения (и наибольший шаг LOD)
+    private static final int GROUP = 16;
+    // Ближе этого группа рисуется даже вне конуса обзора
+    private static final double NEAR_RADIUS = 8.0;
+
+    private final BoatRoutesPlugin plugin;
+
+    private final int budgetPerTick;
+    private final int interval;
+    private final double viewDistance;
+    private final double halfFov;
+    private final double lodDistance;
+    private final double spacing;
+
+    // Бюджет зрителя - один на все его показы
+    private final Map<UUID, Budget> budgets = new ConcurrentHashMap<>();
+
+    public ParticleRenderer(BoatRoutesPlugin plugin) {
+        this.plugin = plugin;
+        this.budgetPerTick = Math.max(1, plugin.getConfig().getInt("visualization.budget-per-tick", 150));
+        this.interval = Math.max(1, plugin.getConfig().getInt("visualization.interval-ticks", 4));
+        this.viewDistance = Math.max(1.0, plugin.getConfig().getDouble("visualization.view-distance", 96.0));
+        double fov = plugin.getConfig().getDouble("visualization.fov", 110.0);
+        this.halfFov = Math.toRadians(Math.max(1.0, Math.min(360.0, fov)) / 2.0);
+        this.lodDistance = Math.max(1.0, plugin.getConfig().getDouble("visualization.lod-distance", 24.0));
+        this.spacing = Math.max(0.1, plugin.getConfig().getDouble("visualization.spacing", 0.5));
+    }
+
+    // ===== LINES =====
+
+    /**
+     * Линия через точки, частицы через каждые spacing блоков
+     */
+    public Line line(List<Location> points, Particle particle) {
+        return line(points, particle, 0, 0, 0);
+    }
+
+    /**
+     * Линия через точки со сдвигом (например, центр блока: 0.5, 0.5, 0.5)
+     */
+    public Line line(List<Location> points, Particle particle, double dx, double dy, double dz) {
+        return Line.build(points, particle, spacing, true, dx, dy, dz);
+    }
+
+    /**
+     * Только сами точки, без линий между ними
+     */
+    public Line points(List<Location> points, Particle particle) {
+        return Line.build(points, particle, spacing, false, 0, 0, 0);
+    }
+
+    // ===== RENDER =====
+
+    /**
+     * Перерисовывает кадр для зрителя каждые interval-ticks тиков
+     *
+     * @param durationTicks длительность показа
+     * @param drawer        рисует один кадр
+     * @param onEnd         по окончании (не вызывается, если игрок вышел)
+     */
+    public TaskScheduler.Task render(Player viewer, int durationTicks, Consumer<Frame> drawer, Runnable onEnd) {
+        int[] elapsed = {0};
+        Budget budget = budgets.computeIfAbsent(viewer.getUniqueId(), id -> new Budget());
+        synchronized (budget) {
+            budget.renders++;
+        }
+
+        return plugin.getTaskScheduler().runAtEntityTimer(viewer, task -> {
+            if (!viewer.isOnline()) {
+                task.cancel();
+                release(viewer.getUniqueId(), budget);
+                return;
+            }
+            if (elapsed[0] >= durationTicks) {
+                task.cancel();
+                release(viewer.getUniqueId(), budget);
+                if (onEnd != null) {
+                    onEnd.run();
+                }
+                return;
+            }
+
+            synchronized (budget) {
+                budget.refill(budgetPerTick, budgetPerTick * interval);
+                drawer.accept(new Frame(viewer, elapsed[0], budget));
+            }
+            elapsed[0] += interval;
+        }, () -> release(viewer.getUniqueId(), budget), 1L, interval);
+    }
+
+    private void release(UUID viewer, Budget budget) {
+        synchronized (budget) {
+            if (--budget.renders <= 0) {
+                budgets.remove(viewer, budget);
+            }
+        }
+    }
+
+    /**
+     * Частицы зрителя: пополняется на budget-per-tick за прошедший тик,
+     * не больше чем на один кадр (budget-per-tick * interval)
+     */
+    private static final class Budget {
+
+        private int renders;
+        private int remaining;
+        private long tick = Long.MIN_VALUE;
+
+        void refill(int perTick, int max) {
+            // Тики по часам: показы зрителя идут в разных таймерах
+            long now = System.currentTimeMillis() / 50;
+            if (tick == Long.MIN_VALUE) {
+                remaining = max;
+            } else if (now > tick) {
+                remaining = (int) Math.min(max, remaining + (now - tick) * perTick);
+            }
+            tick = now;
+        }
+    }
+
+    /**
+     * Один кадр: тратит общий бюджет частиц зрителя
+     */
+    public final class Frame {
+
+        private final Player viewer;
+        private final World world;
+        private final int tick;
+        private final Budget budget;
+
+        private final double ex;
+        private final double ey;
+        private final double ez;
+        private final double lx;
+        private final double ly;
+        private final double lz;
+
+        private Frame(Player viewer, int tick, Budget budget) {
+            this.viewer = viewer;
+            this.tick = tick;
+            this.budget = budget;
+
+            Location eye = viewer.getEyeLocation();
+            Vector look = eye.getDirection();
+            this.world = eye.getWorld();
+            this.ex = eye.getX();
+            this.ey = eye.getY();
+            this.ez = eye.getZ();
+            this.lx = look.getX();
+            this.ly = look.getY();
+            this.lz = look.getZ();
+        }
+
+        /**
+         * Тики с начала показа
+         */
+        public int getTick() {
+            return tick;
+        }
+
+        /**
+         * true в кадре, где прошла очередная граница периода (звуки, анимация)
+         */
+        public boolean every(int ticks) {
+            return tick == 0 || tick / ticks != (tick - interval) / ticks;
+        }
+
+        public int getRemaining() {
+            return budget.remaining;
+        }
+
+        /**
+         * Одиночный маркер (отсекается только по дальности)
+         */
+        public void marker(Location location, Particle particle, int count,
+                           double offsetX, double offsetY, double offsetZ, double extra) {
+            if (budget.remaining <= 0 || location.getWorld() != world) return;
+
+            double dx = location.getX() - ex;
+            double dy = location.getY() - ey;
+            double dz = location.getZ() - ez;
+            if (dx * dx + dy * dy + dz * dz > viewDistance * viewDistance) return;
+
+            viewer.spawnParticle(particle, location.getX(), location.getY(), location.getZ(),
+                    count, offsetX, offsetY, offsetZ, extra);
+            budget.remaining--;
+        }
+
+        /**
+         * Линия: видимые группы от ближней к дальней, пока есть бюджет
+         */
+        public void line(Line line) {
+            if (budget.remaining <= 0 || line.world != world || line.size == 0) return;
+
+            // (дистанция в 1/16 блока << 32) | группа - сортировка без объектов
+            long[] visible = new long[line.groups];
+            int count = 0;
+
+            for (int g = 0; g < line.groups; g++) {
+                double dx = line.cx[g] - ex;
+                double dy = line.cy[g] - ey;
+                double dz = line.cz[g] - ez;
+                double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+                double radius = line.radius[g];
+
+                if (distance - radius > viewDistance) continue;
+                if (distance - radius > NEAR_RADIUS && !inView(dx, dy, dz, distance, radius)) continue;
+
+                visible[count++] = ((long) (distance * 16) << 32) | g;
+            }
+
+            Arrays.sort(visible, 0, count);
+
+            for (int v = 0; v < count && budget.remaining > 0; v++) {
+                int g = (int) visible[v];
+                double distance = (visible[v] >>> 32) / 16.0;
+                int stride = lodStride(distance);
+
+                int from = g * GROUP;
+                int to = Math.min(line.size, from + GROUP);
+                for (int i = from; i < to && budget.remaining > 0; i += stride) {
+                    viewer.spawnParticle(line.particle, line.x[i], line.y[i], line.z[i], 1, 0, 0, 0, 0);
+                    budget.remaining--;
+                }
+            }
+        }
+
+        /**
+         * Сфера группы задевает конус обзора
+         */
+        private boolean inView(double dx, double dy, double dz, double distance, double radius) {
+            if (distance < 1.0E-6) return true;
+
+            double cos = (dx * lx + dy * ly + dz * lz) / distance;
+            double angle = Math.acos(Math.max(-1.0, Math.min(1.0, cos)));
+            double angularRadius = Math.asin(Math.min(1.0, radius / distance));
+            return angle <= halfFov + angularRadius;
+        }
+
+        /**
+         * Шаг по точкам группы: 1 вблизи, дальше - степени двойки до GROUP
+         */
+        private int lodStride(double distance) {
+            int stride = 1;
+            double limit = lodDistance;
+            while (distance > limit && stride < GROUP) {
+                stride <<= 1;
+                limit *= 2;
+            }
+            return stride;
+        }
+    }
+
+    /**
+     * Готовые точки линии и группы отсечения
+     */
+    public static final class Line {
+
+        private final Particle particle;
+        private final World world;
+        private final int size;
+        private final double[] x;
+        private final double[] y;
+        private final double[] z;
+
+        private final int groups;
+        // Центр и радиус ограничивающей сферы каждой группы
+        private final double[] cx;
+        private final double[] cy;
+        private final double[] cz;
+        private final double[] radius;
+
+        private Line(Particle particle, World world, double[] x, double[] y, double[] z, int size) {
+            this.particle = particle;
+            this.world = world;
+            this.size = size;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+
+            this.groups = (size + GROUP - 1) / GROUP;
+            this.cx = new double[groups];
+            this.cy = new double[groups];
+            this.cz = new double[groups];
+            this.radius = new double[groups];
+
+            for (int g = 0; g < groups; g++) {
+                int from = g * GROUP;
+                int to = Math.min(size, from + GROUP);
+
+                double minX = x[from], maxX = x[from];
+                double minY = y[from], maxY = y[from];
+                double minZ = z[from], maxZ = z[from];
+                for (int i = from + 1; i < to; i++) {
+                    minX = Math.min(minX, x[i]);
+                    maxX = Math.max(maxX, x[i]);
+                    minY = Math.min(minY, y[i]);
+                    maxY = Math.max(maxY, y[i]);
+                    minZ = Math.min(minZ, z[i]);
+                    maxZ = Math.max(maxZ, z[i]);
+                }
+
+                cx[g] = (minX + maxX) / 2;
+                cy[g] = (minY + maxY) / 2;
+                cz[g] = (minZ + maxZ) / 2;
+                radius[g] = Math.sqrt((maxX - minX) * (maxX - minX)
+                        + (maxY - minY) * (maxY - minY)
+                        + (maxZ - minZ) * (maxZ - minZ)) / 2;
+            }
+        }
+
+        private static Line build(List<Location> points, Particle particle, double spacing,
+                                  boolean connect, double ox, double oy, double oz) {
+            World world = points.isEmpty() ? null : points.get(0).getWorld();
+            if (!connect) {
+                int n = points.size();
+                double[] x = new double[n];
+                double[] y = new double[n];
+                double[] z = new double[n];
+                for (int i = 0; i < n; i++) {
+                    Location loc = points.get(i);
+                    x[i] = loc.getX() + ox;
+                    y[i] = loc.getY() + oy;
+                    z[i] = loc.getZ() + oz;
+                }
+                return new Line(particle, world, x, y, z, n);
+            }
+
+            double length = 0;
+            for (int i = 1; i < points.size(); i++) {
+                length += points.get(i - 1).distance(points.get(i));
+            }
+
+            int capacity = (int) Math.ceil(length / spacing) + points.size() + 1;
+            double[] x = new double[capacity];
+            double[] y = new double[capacity];
+            double[] z = new double[capacity];
+            int size = 0;
+
+            if (!points.isEmpty()) {
+                Location first = points.get(0);
+                x[0] = first.getX() + ox;
+                y[0] = first.getY() + oy;
+                z[0] = first.getZ() + oz;
+                size = 1;
+            }
+
+            for (int i = 1; i < points.size(); i++) {
+                Location a = points.get(i - 1);
+                Location b = points.get(i);
+                int steps = Math.max(1, (int) Math.ceil(a.distance(b) / spacing));
+                for (int k = 1; k <= steps; k++) {
+                    double t = (double) k / steps;
+                    x[size] = a.getX() + (b.getX() - a.getX()) * t + ox;
+                    y[size] = a.getY() + (b.getY() - a.getY()) * t + oy;
+                    z[size] = a.getZ() + (b.getZ() - a.getZ()) * t + oz;
+                    size++;
+                }
+            }
+
+            return new Line(particle, world, x, y, z, size);
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+}
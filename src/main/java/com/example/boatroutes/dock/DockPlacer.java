@@ -62,6 +62,7 @@ public class DockPlacer {
         
         // Add to port
         port.addDock(dock);
+        plugin.getPortManager().getIndex().updatePort(port);
         
         // Visual feedback
         visualizeDock(location);
@@ -249,6 +250,7 @@ public class DockPlacer {
         
         // Set point
         port.setNavigationPoint(location.clone());
+        plugin.getPathfindingManager().getAnchorManager().portChanged(port);
         
         // Save
         plugin.getPortManager().savePort(port);
@@ -0,0 +1,56 @@
+package com.example.boatroutes.gui;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * MenuHolder - Владелец инвентаря меню плагина
+ *
+ * - GUIListener отличает меню плагина одним instanceof
+ *   (без заголовков и имён предметов)
+ * - Таблица слот -> действие, клик обрабатывает само меню
+ *
+ * @author BoatRoutes Team
+ * @version 1.0
+ */
+public abstract class MenuHolder implements InventoryHolder {
+
+    private final Map<Integer, Consumer<Player>> actions = new HashMap<>();
+    private Inventory inventory;
+
+    /**
+     * Создаёт инвентарь меню, владелец - это меню
+     */
+    protected Inventory createInventory(int size, String title) {
+        inventory = Bukkit.createInventory(this, size, title);
+        return inventory;
+    }
+
+    /**
+     * Действие при клике по слоту
+     */
+    protected void setAction(int slot, Consumer<Player> action) {
+        actions.put(slot, action);
+    }
+
+    /**
+     * Клик по слоту меню (только слоты верхнего инвентаря)
+     */
+    public void onClick(Player player, int slot) {
+        Consumer<Player> action = actions.get(slot);
+        if (action != null) {
+            action.accept(player);
+        }
+    }
+
+    @Override
+    public Inventory getInventory() {
+        return inventory;
+    }
+}
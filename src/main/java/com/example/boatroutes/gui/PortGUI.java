@@ -2,7 +2,6 @@ package com.example.boatroutes.gui;
 
 import com.example.boatroutes.BoatRoutesPlugin;
 import com.example.boatroutes.port.Port;
-import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
@@ -11,8 +10,13 @@ import org.bukkit.inventory.ItemStack;
 /**
  * Main GUI for port interaction
  * Opens when player clicks on port NPC
+ * Clicks are routed by slot through MenuHolder (no title / item name parsing)
  */
-public class PortGUI {
+public class PortGUI extends MenuHolder {
+    
+    private static final int SLOT_CREATE = 13;
+    private static final int SLOT_NAVIGATE = 15;
+    private static final int SLOT_CLOSE = 22;
     
     private final BoatRoutesPlugin plugin;
     private final Port port;
@@ -30,7 +34,7 @@ public class PortGUI {
      * Create the GUI inventory
      */
     private void createInventory() {
-        inventory = Bukkit.createInventory(null, 27, "§6⚓ " + port.getName() + " Port");
+        inventory = createInventory(27, "§6⚓ " + port.getName() + " Port");
         
         // Fill background with gray glass
         ItemStack background = GUIUtils.createItem(
@@ -66,7 +70,8 @@ public class PortGUI {
                 "",
                 "§eClick to create!"
             );
-            inventory.setItem(13, createBoat);
+            inventory.setItem(SLOT_CREATE, createBoat);
+            setAction(SLOT_CREATE, this::createBoat);
         } else {
             ItemStack noSpace = GUIUtils.createItem(
                 Material.BARRIER,
@@ -76,7 +81,7 @@ public class PortGUI {
                 "§7Wait for boats to leave or",
                 "§7go to another port"
             );
-            inventory.setItem(13, noSpace);
+            inventory.setItem(SLOT_CREATE, noSpace);
         }
         
         // Navigate button (slot 15 - right)
@@ -87,7 +92,8 @@ public class PortGUI {
             "",
             "§7(Coming in next stage)"
         );
-        inventory.setItem(15, navigate);
+        inventory.setItem(SLOT_NAVIGATE, navigate);
+        setAction(SLOT_NAVIGATE, p -> p.sendMessage("§7Navigation will be available after Stage 5!"));
         
         // Close button (slot 22 - bottom center)
         ItemStack close = GUIUtils.createItem(
@@ -95,7 +101,36 @@ public class PortGUI {
             "§cClose",
             "§7Click to close menu"
         );
-        inventory.setItem(22, close);
+        inventory.setItem(SLOT_CLOSE, close);
+        setAction(SLOT_CLOSE, Player::closeInventory);
+    }
+    
+    /**
+     * Кнопка "Create New Boat": ждём имя лодки в чате
+     */
+    private void createBoat(Player clicker) {
+        plugin.getLogger().info("Player " + clicker.getName() + " clicked: Create New Boat");
+        
+        // Порт мог быть удалён, пока меню было открыто
+        if (plugin.getPortManager().getPort(port.getName()) != port) {
+            clicker.sendMessage("§c✗ Port not found!");
+            return;
+        }
+        
+        clicker.closeInventory();
+        
+        // Запрашиваем имя лодки
+        clicker.sendMessage("");
+        clicker.sendMessage("§a✓ Creating boat at §e" + port.getName());
+        clicker.sendMessage("§7Type a name for your boat in chat:");
+        clicker.sendMessage("§7(e.g. 'SeaBreeze', 'WaveRider', 'MyBoat')");
+        clicker.sendMessage("");
+        
+        // Помечаем что игрок ждёт ввода имени
+        plugin.getBoatManager().setAwaitingBoatName(clicker.getUniqueId(), true);
+        plugin.getBoatManager().setCreationPort(clicker.getUniqueId(), port.getName());
+        
+        plugin.getLogger().info("Player " + clicker.getName() + " is now awaiting boat name");
     }
     
     /**
@@ -124,11 +159,4 @@ public class PortGUI {
     public Port getPort() {
         return port;
     }
-    
-    /**
-     * Get the inventory (for event handling)
-     */
-    public Inventory getInventory() {
-        return inventory;
-    }
 }
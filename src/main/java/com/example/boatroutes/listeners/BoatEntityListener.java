@@ -0,0 +1,36 @@
+package com.example.boatroutes.listeners;
+
+import com.example.boatroutes.BoatRoutesPlugin;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.EntitiesLoadEvent;
+import org.bukkit.event.world.EntitiesUnloadEvent;
+
+/**
+ * BoatEntityListener - Ссылки на сущности лодок в реестре BoatManager
+ *
+ * - Чанк загрузил сущности: лодки из реестра получают свежую ссылку
+ * - Чанк выгружает сущности: ссылка сбрасывается до следующей загрузки
+ *
+ * @author BoatRoutes Team
+ * @version 1.0
+ */
+public class BoatEntityListener implements Listener {
+
+    private final BoatRoutesPlugin plugin;
+
+    public BoatEntityListener(BoatRoutesPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesLoad(EntitiesLoadEvent event) {
+        plugin.getBoatManager().onEntitiesLoad(event.getEntities());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesUnload(EntitiesUnloadEvent event) {
+        plugin.getBoatManager().onEntitiesUnload(event.getEntities());
+    }
+}
@@ -13,7 +13,14 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.world.ChunkLoadEvent;
 
 /**
- * ChunkLoadListener v2.0 - Shore Distance Cost System
+ * ChunkLoadListener v2.2 - Shore Distance Cost System
+ *
+ * НОВОЕ v2.2:
+ * - Глубина воды каждой колонки пишется в слой глубин кеша
+ * - updateDepth(): пересчёт только глубины (изменения ниже sea level)
+ *
+ * НОВОЕ v2.1:
+ * - updateColumn(): пересчёт одной колонки (для WaterChangeListener)
  *
  * НОВОЕ v2.0:
  * - Проверка расстояния до берега (1-5+ блоков)
@@ -22,7 +29,7 @@ import org.bukkit.event.world.ChunkLoadEvent;
  * - Тупики = 100 (очень дорого)
  *
  * @author BoatRoutes Team
- * @version 2.0-SHORE-DISTANCE
+ * @version 2.2-DEPTH-LAYER
  */
 public class ChunkLoadListener implements Listener {
 
@@ -67,7 +74,7 @@ public class ChunkLoadListener implements Listener {
         }
 
         // Кешируем ASYNC чтобы не лагать сервер
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+        plugin.getTaskScheduler().runAsync(() -> {
             cacheChunk(chunk);
         });
     }
@@ -87,8 +94,9 @@ public class ChunkLoadListener implements Listener {
                 int worldX = chunkX + x;
                 int worldZ = chunkZ + z;
 
-                // Пропускаем если уже в кеше
-                if (cache.isWater(worldX, worldZ) != null) {
+                // Пропускаем если уже в кеше (вместе с глубиной)
+                boolean cached = cache.isWater(worldX, worldZ) != null;
+                if (cached && cache.getDepth(worldX, worldZ) >= 0) {
                     continue;
                 }
 
@@ -96,12 +104,16 @@ public class ChunkLoadListener implements Listener {
                 Block block = chunk.getBlock(x, seaLevel, z);
                 boolean isWater = isWaterBlock(block);
 
-                // Вычисляем cost (shore distance + изолированность)
-                int cost = calculateCost(chunk, x, z, isWater, worldX, worldZ);
+                if (!cached) {
+                    // Вычисляем cost (shore distance + изолированность)
+                    int cost = calculateCost(chunk, x, z, isWater, worldX, worldZ);
+
+                    // Сохраняем в кеш
+                    cache.setWater(worldX, worldZ, isWater, cost);
+                    newBlocks++;
+                }
 
-                // Сохраняем в кеш
-                cache.setWater(worldX, worldZ, isWater, cost);
-                newBlocks++;
+                cache.setDepth(worldX, worldZ, isWater ? scanDepth(chunk, x, z) : 0);
             }
         }
 
@@ -116,6 +128,64 @@ public class ChunkLoadListener implements Listener {
         }
     }
 
+    /**
+     * Перечитывает одну колонку чанка и обновляет кеш.
+     * Вызывать в потоке, которому принадлежит чанк.
+     *
+     * @return true если закешированная колонка стала водой / сушей
+     */
+    public boolean updateColumn(Chunk chunk, int localX, int localZ) {
+        int worldX = chunk.getX() * 16 + localX;
+        int worldZ = chunk.getZ() * 16 + localZ;
+
+        Block block = chunk.getBlock(localX, seaLevel, localZ);
+        boolean isWater = isWaterBlock(block);
+        int cost = calculateCost(chunk, localX, localZ, isWater, worldX, worldZ);
+
+        Boolean wasWater = cache.isWater(worldX, worldZ);
+        cache.setWater(worldX, worldZ, isWater, cost);
+        cache.setDepth(worldX, worldZ, isWater ? scanDepth(chunk, localX, localZ) : 0);
+
+        return wasWater != null && wasWater != isWater;
+    }
+
+    /**
+     * Перечитывает только глубину колонки (блок изменён ниже sea level -
+     * вода / суша и cost не меняются). Вызывать в потоке чанка.
+     */
+    public void updateDepth(Chunk chunk, int localX, int localZ) {
+        int worldX = chunk.getX() * 16 + localX;
+        int worldZ = chunk.getZ() * 16 + localZ;
+
+        boolean isWater = isWaterBlock(chunk.getBlock(localX, seaLevel, localZ));
+        cache.setDepth(worldX, worldZ, isWater ? scanDepth(chunk, localX, localZ) : 0);
+    }
+
+    /**
+     * Глубина воды в колонке: блоков воды подряд вниз от sea level
+     */
+    private int scanDepth(Chunk chunk, int localX, int localZ) {
+        int depth = 0;
+        int minY = chunk.getWorld().getMinHeight();
+
+        for (int y = seaLevel; y >= minY && depth < WaterWorldCache.MAX_DEPTH; y--) {
+            if (!isWaterBlock(chunk.getBlock(localX, y, localZ))) {
+                break;
+            }
+            depth++;
+        }
+
+        return depth;
+    }
+
+    /**
+     * Радиус, в котором колонка влияет на cost соседей
+     * (расстояние до берега и проверка изолированности)
+     */
+    public static int getInfluenceRadius() {
+        return 5;
+    }
+
     /**
      * Вычисляет расстояние до ближайшего берега (1-6+ блоков)
      */
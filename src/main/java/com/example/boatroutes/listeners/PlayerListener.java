@@ -60,7 +60,7 @@ public class PlayerListener implements Listener {
         }
         
         // Create the boat (sync task required)
-        plugin.getServer().getScheduler().runTask(plugin, () -> {
+        plugin.getTaskScheduler().runAtEntity(player, () -> {
             boolean success = plugin.getBoatManager().createBoat(
                 player.getUniqueId(),
                 input,
@@ -10,13 +10,16 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.vehicle.*;
 
 /**
- * VehicleListener v2.0 - С AUTOPILOT INTEGRATION!
+ * VehicleListener v2.1 - С AUTOPILOT INTEGRATION!
+ * 
+ * НОВОЕ v2.1:
+ * - Порт лодки и "лодка порта" через PortIndex (без обхода всех портов)
  * 
  * НОВОЕ:
  * - Останавливает autopilot при выходе из лодки
  * 
  * @author BoatRoutes Team
- * @version 2.0-AUTOPILOT
+ * @version 2.1-AUTOPILOT
  */
 public class VehicleListener implements Listener {
     
@@ -91,13 +94,7 @@ public class VehicleListener implements Listener {
      * Найти порт для лодки (проверяет близость к порту)
      */
     private Port findPortForBoat(Boat boat) {
-        for (Port port : plugin.getPortManager().getAllPorts()) {
-            if (port.getNPCLocation() != null && 
-                port.getNPCLocation().getWorld() == boat.getWorld() &&
-                port.getNPCLocation().distance(boat.getLocation()) < 100) {
-                return port;
-            }
-        }
-        return null;
+        // Nearest port NPC within PortIndex.PORT_RADIUS
+        return plugin.getPortManager().getIndex().findPort(boat.getLocation());
     }
 }
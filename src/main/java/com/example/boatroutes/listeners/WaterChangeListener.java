@@ -0,0 +1,305 @@
+package com.example.boatroutes.listeners;
+
+import com.example.boatroutes.BoatRoutesPlugin;
+import com.example.boatroutes.cache.WaterWorldCache;
+import com.example.boatroutes.navigation.ChunkPreloader;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.*;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.player.PlayerBucketEmptyEvent;
+import org.bukkit.event.player.PlayerBucketFillEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * WaterChangeListener - Обновление кеша воды при изменении блоков
+ *
+ * - Установка / ломание блоков, ведро, течение воды, губка, лёд, взрывы,
+ *   поршни на уровне моря отмечают изменённую колонку
+ * - Те же изменения до MAX_DEPTH блоков ниже уровня моря (засыпка, углубление
+ *   дна) отмечают колонку для пересчёта только глубины
+ * - Раз в тик отмеченные колонки пересчитываются пачкой, по чанкам
+ *   (на Folia - в потоке региона чанка)
+ * - Если колонка стала водой / сушей, в следующем тике пересчитываются
+ *   соседи в радиусе влияния (расстояние до берега + изолированность)
+ * - Отметки в выгруженном чанке ждут его загрузки (ChunkLoadListener
+ *   не пересчитывает уже закешированные колонки)
+ * - Блок к этому моменту уже изменён - события можно ловить до применения
+ *
+ * @author BoatRoutes Team
+ * @version 1.0
+ */
+public class WaterChangeListener implements Listener {
+
+    private final BoatRoutesPlugin plugin;
+    private final ChunkLoadListener chunkListener;
+    private final int seaLevel;
+
+    // world UUID -> (chunk key -> 256 бит колонок + 256 бит колонок "только глубина")
+    private Map<UUID, Map<Long, long[]>> dirty = new HashMap<>();
+    private static final int DEPTH_WORDS = 4;
+
+    // Отметки выгруженных чанков - до ChunkLoadEvent (тот же формат)
+    private final Map<UUID, Map<Long, long[]>> unloaded = new HashMap<>();
+
+    // Статистика (пишется из потоков разных регионов)
+    private final AtomicInteger columnsUpdated = new AtomicInteger();
+    private final AtomicInteger chunksUpdated = new AtomicInteger();
+
+    public WaterChangeListener(BoatRoutesPlugin plugin, ChunkLoadListener chunkListener) {
+        this.plugin = plugin;
+        this.chunkListener = chunkListener;
+        this.seaLevel = plugin.getConfig().getInt("pathfinding.sea-level", 62);
+
+        plugin.getTaskScheduler().runGlobalTimer(task -> flush(), 1L, 1L);
+    }
+
+    // ===== EVENTS =====
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent event) {
+        mark(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent event) {
+        mark(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onFluidFlow(BlockFromToEvent event) {
+        mark(event.getToBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onSpongeAbsorb(SpongeAbsorbEvent event) {
+        for (BlockState state : event.getBlocks()) {
+            mark(state.getWorld(), state.getX(), state.getY(), state.getZ());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBucketEmpty(PlayerBucketEmptyEvent event) {
+        mark(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBucketFill(PlayerBucketFillEvent event) {
+        mark(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockForm(BlockFormEvent event) {
+        mark(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockFade(BlockFadeEvent event) {
+        mark(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent event) {
+        for (Block block : event.blockList()) {
+            mark(block);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent event) {
+        for (Block block : event.blockList()) {
+            mark(block);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonExtend(BlockPistonExtendEvent event) {
+        // Сдвинутый блок оказывается в соседней колонке
+        for (Block block : event.getBlocks()) {
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    mark(block.getWorld(), block.getX() + dx, block.getY(), block.getZ() + dz);
+                }
+            }
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        Chunk chunk = event.getChunk();
+        requeue(chunk.getWorld(), ChunkPreloader.chunkKey(chunk.getX(), chunk.getZ()));
+    }
+
+    // ===== QUEUE =====
+
+    private void mark(Block block) {
+        if (block != null) {
+            mark(block.getWorld(), block.getX(), block.getY(), block.getZ());
+        }
+    }
+
+    /**
+     * Уровень моря - полный пересчёт колонки, ниже (в пределах слоя глубин) -
+     * только глубина
+     */
+    private void mark(World world, int x, int y, int z) {
+        if (y == seaLevel) {
+            mark(world, x, z);
+        } else if (y < seaLevel && y >= seaLevel - WaterWorldCache.MAX_DEPTH) {
+            markBits(world, x, z, DEPTH_WORDS);
+        }
+    }
+
+    private void mark(World world, int x, int z) {
+        markBits(world, x, z, 0);
+    }
+
+    private synchronized void markBits(World world, int x, int z, int offset) {
+        if (world.getEnvironment() != World.Environment.NORMAL) return;
+
+        long[] bits = dirty.computeIfAbsent(world.getUID(), k -> new HashMap<>())
+                .computeIfAbsent(ChunkPreloader.chunkKey(x >> 4, z >> 4), k -> new long[8]);
+
+        int index = ((x & 15) << 4) | (z & 15);
+        bits[offset + (index >> 6)] |= 1L << (index & 63);
+    }
+
+    /**
+     * Отмечает все колонки в радиусе (соседи изменённой колонки)
+     */
+    private synchronized void markArea(World world, int centerX, int centerZ, int radius) {
+        for (int x = centerX - radius; x <= centerX + radius; x++) {
+            for (int z = centerZ - radius; z <= centerZ + radius; z++) {
+                mark(world, x, z);
+            }
+        }
+    }
+
+    /**
+     * Чанк выгружен - отметки ждут его загрузки
+     */
+    private synchronized void defer(World world, long chunkKey, long[] bits) {
+        long[] kept = unloaded.computeIfAbsent(world.getUID(), k -> new HashMap<>())
+                .computeIfAbsent(chunkKey, k -> new long[8]);
+        for (int i = 0; i < kept.length; i++) {
+            kept[i] |= bits[i];
+        }
+    }
+
+    /**
+     * Чанк загружен - отложенные отметки в очередь следующего тика
+     */
+    private synchronized void requeue(World world, long chunkKey) {
+        Map<Long, long[]> chunks = unloaded.get(world.getUID());
+        if (chunks == null) return;
+
+        long[] kept = chunks.remove(chunkKey);
+        if (chunks.isEmpty()) {
+            unloaded.remove(world.getUID());
+        }
+        if (kept == null) return;
+
+        long[] bits = dirty.computeIfAbsent(world.getUID(), k -> new HashMap<>())
+                .computeIfAbsent(chunkKey, k -> new long[8]);
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] |= kept[i];
+        }
+    }
+
+    private synchronized Map<UUID, Map<Long, long[]>> drain() {
+        if (dirty.isEmpty()) return null;
+
+        Map<UUID, Map<Long, long[]>> batch = dirty;
+        dirty = new HashMap<>();
+        return batch;
+    }
+
+    /**
+     * Раз в тик: по одной задаче на каждый изменённый чанк
+     */
+    private void flush() {
+        Map<UUID, Map<Long, long[]>> batch = drain();
+        if (batch == null) return;
+
+        for (Map.Entry<UUID, Map<Long, long[]>> worldEntry : batch.entrySet()) {
+            World world = plugin.getServer().getWorld(worldEntry.getKey());
+            if (world == null) continue;
+
+            for (Map.Entry<Long, long[]> chunkEntry : worldEntry.getValue().entrySet()) {
+                long key = chunkEntry.getKey();
+                int chunkX = (int) (key >> 32);
+                int chunkZ = (int) key;
+                long[] bits = chunkEntry.getValue();
+
+                if (plugin.getTaskScheduler().isFolia()) {
+                    plugin.getTaskScheduler().runAtChunk(world, chunkX, chunkZ,
+                            () -> updateChunk(world, chunkX, chunkZ, bits));
+                } else {
+                    updateChunk(world, chunkX, chunkZ, bits);
+                }
+            }
+        }
+    }
+
+    /**
+     * Пересчитывает отмеченные колонки одного чанка (поток чанка)
+     */
+    private void updateChunk(World world, int chunkX, int chunkZ, long[] bits) {
+        // Выгруженный чанк - пересчёт после загрузки (onChunkLoad)
+        if (!world.isChunkLoaded(chunkX, chunkZ)) {
+            defer(world, ChunkPreloader.chunkKey(chunkX, chunkZ), bits);
+            return;
+        }
+
+        Chunk chunk = world.getChunkAt(chunkX, chunkZ);
+        int radius = ChunkLoadListener.getInfluenceRadius();
+
+        for (int word = 0; word < 4; word++) {
+            long w = bits[word];
+            while (w != 0) {
+                int index = (word << 6) | Long.numberOfTrailingZeros(w);
+                w &= w - 1;
+
+                int localX = index >> 4;
+                int localZ = index & 15;
+
+                if (chunkListener.updateColumn(chunk, localX, localZ)) {
+                    // Вода <-> суша: cost соседей тоже изменился
+                    markArea(world, chunkX * 16 + localX, chunkZ * 16 + localZ, radius);
+                }
+                columnsUpdated.incrementAndGet();
+            }
+
+            // Только глубина (полный пересчёт выше её уже обновил)
+            long depthOnly = bits[DEPTH_WORDS + word] & ~bits[word];
+            while (depthOnly != 0) {
+                int index = (word << 6) | Long.numberOfTrailingZeros(depthOnly);
+                depthOnly &= depthOnly - 1;
+
+                chunkListener.updateDepth(chunk, index >> 4, index & 15);
+                columnsUpdated.incrementAndGet();
+            }
+        }
+        chunksUpdated.incrementAndGet();
+    }
+
+    // ===== STATS =====
+
+    public int getColumnsUpdated() {
+        return columnsUpdated.get();
+    }
+
+    public int getChunksUpdated() {
+        return chunksUpdated.get();
+    }
+}
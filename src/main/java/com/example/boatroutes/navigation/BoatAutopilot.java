@@ -1,18 +1,66 @@
 package com.example.boatroutes.navigation;
 
 import com.example.boatroutes.BoatRoutesPlugin;
-import org.bukkit.Bukkit;
+import com.example.boatroutes.pathfinding.PathfindingExecutor;
+import com.example.boatroutes.storage.RouteInfo;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.entity.Boat;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitTask;
 import org.bukkit.util.Vector;
 
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 
 /**
- * BoatAutopilot v3.1 - SMOOTH PHYSICS + STUCK DETECTION!
+ * BoatAutopilot v3.9 - SMOOTH PHYSICS + STUCK DETECTION!
+ *
+ * НОВОЕ v3.9:
+ * - Маршрут по гладкой кривой (RouteSpline, pathfinding.spline):
+ *   точка упреждения и курс по длине дуги за O(1)
+ * - Pure pursuit учитывает курс кривой в точке упреждения -
+ *   лодка начинает поворот заранее и не проскакивает изгибы
+ * - Плечо берёт готовую кривую; путь читается только без неё
+ *
+ * НОВОЕ v3.8:
+ * - Маршрут из нескольких плеч через промежуточные порты (RouteNetwork)
+ * - В конце плеча лодка без остановки переходит на следующее плечо
+ *   с ближайшего к ней waypoint
+ *
+ * НОВОЕ v3.7:
+ * - При застревании: асинхронный локальный A* в маленьком окне
+ *   от лодки до точки впереди по маршруту, объезд вклеивается в маршрут
+ * - /port reconnect нужен только если локальный объезд не найден
+ *
+ * НОВОЕ v3.6:
+ * - Асинхронная подгрузка чанков впереди по маршруту (autopilot.preload-distance)
+ * - Чанки позади лодки отпускаются
+ *
+ * НОВОЕ v3.5:
+ * - Режим PURE PURSUIT (autopilot.steering: pure-pursuit):
+ *   проекция лодки на ближайший сегмент (оконный поиск) и
+ *   курс на точку впереди по маршруту, дистанция ∝ скорости
+ * - Не нужно "собирать" waypoints по одному - работает на высоких скоростях
+ *
+ * НОВОЕ v3.4:
+ * - Маршрут в примитивных массивах (RouteGeometry)
+ * - Руление на double без new Vector/Location в тике
+ * - Прогресс, оставшееся расстояние и ETA за O(1)
+ *
+ * НОВОЕ v3.3:
+ * - Адаптивная частота руления: на прямых участках обновление раз в
+ *   несколько тиков, у поворотов и при развороте - каждый тик
+ * - Скорость задаётся каждый тик прежним курсом (иначе сопротивление
+ *   воды тормозит лодку между обновлениями), реже пересчитываются
+ *   только цель и точка упреждения
+ * - Расстояния до следующего поворота считаются один раз при старте
+ *
+ * НОВОЕ v3.2:
+ * - Нет собственной задачи: тикает общий драйвер NavigationManager
+ * - Интервал обновления лодки (autopilot.update-interval)
  *
  * НОВОЕ v3.1:
  * - Детекция застревания (10 секунд без прогресса)
@@ -20,7 +68,7 @@ import java.util.List;
  * - Улучшенное логирование
  *
  * @author BoatRoutes Team
- * @version 3.1-STUCK-FIX
+ * @version 3.9-SPLINE
  */
 public class BoatAutopilot {
 
@@ -30,13 +78,79 @@ public class BoatAutopilot {
     private final String fromPort;
     private final String toPort;
 
-    private List<Location> path;
+    // Порты маршрута: [fromPort, промежуточные..., toPort]
+    private final List<String> itinerary;
+    private int legIndex;
+    // Длина плеч после текущего (для оставшегося расстояния / ETA)
+    private double laterLegsLength;
+    private double journeyLength;
+
+    private RouteGeometry route;
     private int currentWaypointIndex;
-    private BukkitTask task;
+    private volatile boolean active;
+
+    // Тик драйвера, в который лодка обновится снова
+    private long nextUpdateTick;
+    private int updateInterval;
+    // Тиков до пересчёта курса; между пересчётами - только скорость
+    private int steerCountdown;
+    private boolean holdingCourse;
+
+    // Адаптивная частота обновления
+    private boolean adaptiveRate;
+    private int minUpdateInterval;
+    private int maxUpdateInterval;
+    private double turnAngleCos;
+    private double headingToleranceCos;
 
     // ✅ НОВОЕ: Отслеживание прогресса
     private long lastProgressTime;
 
+    // Переиспользуемые объекты (без мусора в тике)
+    private final Location boatLoc = new Location(null, 0, 0, 0);
+    private final Vector velocity = new Vector();
+    private final double[] scratch = new double[2];
+    private final double[] heading = new double[2];
+
+    // Pure pursuit
+    private boolean purePursuit;
+    private double lookaheadTicks;
+    private double minLookahead;
+    private double maxLookahead;
+    private int searchWindow;
+    private int segmentIndex;
+    private double projectedArc;
+    private double lastProgressArc;
+    private int lastReportedProgress;
+
+    // Подгрузка чанков по маршруту
+    private boolean preloadChunks;
+    private double preloadDistance;
+    private double preloadBehind;
+    private double lastPreloadArc = -Double.MAX_VALUE;
+    private final Set<Long> heldChunks = new HashSet<>();
+
+    // Локальный ремонт маршрута при застревании
+    private boolean replanEnabled;
+    private double replanDistance;
+    private int replanMargin;
+    private int replanMaxIterations;
+    private int maxReplans;
+    private int replanAttempts;
+    private volatile boolean replanning;
+
+    // Последнее известное состояние лодки
+    private double boatX;
+    private double boatZ;
+    private double distanceToTarget;
+    private double lastSpeed;
+    private double lastVelX;
+    private double lastVelZ;
+
+    // Направление руления, заполняется режимом
+    private double steerX;
+    private double steerZ;
+
     // Настройки движения
     private double baseSpeed;
     private double smoothness;
@@ -44,16 +158,51 @@ public class BoatAutopilot {
 
     public BoatAutopilot(BoatRoutesPlugin plugin, Boat boat, Player player,
                          String fromPort, String toPort) {
+        this(plugin, boat, player, List.of(fromPort, toPort));
+    }
+
+    /**
+     * Путешествие через промежуточные порты
+     *
+     * @param itinerary порты по порядку, минимум два
+     */
+    public BoatAutopilot(BoatRoutesPlugin plugin, Boat boat, Player player, List<String> itinerary) {
         this.plugin = plugin;
         this.boat = boat;
         this.player = player;
-        this.fromPort = fromPort;
-        this.toPort = toPort;
+        this.itinerary = new ArrayList<>(itinerary);
+        this.fromPort = itinerary.get(0);
+        this.toPort = itinerary.get(itinerary.size() - 1);
 
         // Загружаем настройки из config
         this.baseSpeed = plugin.getConfig().getDouble("boat.default-speed", 0.35);
         this.smoothness = plugin.getConfig().getDouble("boat.smoothness", 0.1);
         this.waypointRadius = plugin.getConfig().getDouble("boat.waypoint-radius", 3.0);
+        this.minUpdateInterval = Math.max(1, plugin.getConfig().getInt("autopilot.update-interval", 1));
+        this.maxUpdateInterval = Math.max(minUpdateInterval,
+                plugin.getConfig().getInt("autopilot.max-update-interval", 5));
+        this.adaptiveRate = plugin.getConfig().getBoolean("autopilot.adaptive-rate", true);
+        this.turnAngleCos = Math.cos(Math.toRadians(plugin.getConfig().getDouble("autopilot.turn-angle", 20.0)));
+        this.headingToleranceCos = Math.cos(Math.toRadians(
+                plugin.getConfig().getDouble("autopilot.heading-tolerance", 8.0)));
+        this.updateInterval = minUpdateInterval;
+
+        this.purePursuit = plugin.getConfig().getString("autopilot.steering", "pure-pursuit")
+                .equalsIgnoreCase("pure-pursuit");
+        this.lookaheadTicks = plugin.getConfig().getDouble("autopilot.lookahead-ticks", 12.0);
+        this.minLookahead = plugin.getConfig().getDouble("autopilot.min-lookahead", 3.0);
+        this.maxLookahead = Math.max(minLookahead, plugin.getConfig().getDouble("autopilot.max-lookahead", 16.0));
+        this.searchWindow = Math.max(2, plugin.getConfig().getInt("autopilot.search-window", 24));
+
+        this.preloadChunks = plugin.getConfig().getBoolean("autopilot.preload-chunks", true);
+        this.preloadDistance = plugin.getConfig().getDouble("autopilot.preload-distance", 96.0);
+        this.preloadBehind = plugin.getConfig().getDouble("autopilot.preload-behind", 16.0);
+
+        this.replanEnabled = plugin.getConfig().getBoolean("autopilot.replan.enabled", true);
+        this.replanDistance = plugin.getConfig().getDouble("autopilot.replan.distance", 24.0);
+        this.replanMargin = plugin.getConfig().getInt("autopilot.replan.margin", 12);
+        this.replanMaxIterations = plugin.getConfig().getInt("autopilot.replan.max-iterations", 20000);
+        this.maxReplans = plugin.getConfig().getInt("autopilot.replan.max-attempts", 3);
 
         this.currentWaypointIndex = 0;
         this.lastProgressTime = System.currentTimeMillis();
@@ -63,57 +212,139 @@ public class BoatAutopilot {
      * Начинает путешествие С BIDIRECTIONAL SUPPORT!
      */
     public boolean startJourney() {
-        // Пытаемся загрузить путь в обе стороны
-        path = plugin.getPathfindingManager().getPath(fromPort, toPort);
+        legIndex = 0;
 
-        if (path == null || path.isEmpty()) {
-            plugin.getLogger().info("Path " + fromPort + " → " + toPort + " not found, trying reverse...");
-
-            // Пробуем обратный путь
-            path = plugin.getPathfindingManager().getPath(toPort, fromPort);
+        // Готовая кривая (строится в фоне при сохранении / загрузке пути);
+        // путь читается, только если кривой нет
+        RouteSpline spline = plugin.getPathfindingManager().getSpline(legFrom(), legTo());
+        if (spline != null) {
+            route = new RouteGeometry(spline, 0, turnAngleCos);
+        } else {
+            // Путь хранится один раз для A->B и B->A, getPath() сам разворачивает
+            List<Location> path = plugin.getPathfindingManager().getPath(legFrom(), legTo());
 
-            if (path != null && !path.isEmpty()) {
-                // РАЗВОРАЧИВАЕМ путь!
-                Collections.reverse(path);
-                plugin.getLogger().info("✓ Using reversed path: " + toPort + " → " + fromPort);
-            } else {
+            if (path == null || path.isEmpty()) {
                 plugin.getLogger().warning("✗ No path found in either direction!");
-                player.sendMessage("§c✗ No path found to " + toPort + "!");
+                player.sendMessage("§c✗ No path found to " + legTo() + "!");
                 return false;
             }
-        } else {
-            plugin.getLogger().info("✓ Using forward path: " + fromPort + " → " + toPort);
-        }
 
-        // Проверяем что путь не пустой
-        if (path.size() < 2) {
-            plugin.getLogger().warning("✗ Path too short: " + path.size() + " waypoints");
-            player.sendMessage("§c✗ Invalid path!");
-            return false;
+            // Проверяем что путь не пустой
+            if (path.size() < 2) {
+                plugin.getLogger().warning("✗ Path too short: " + path.size() + " waypoints");
+                player.sendMessage("§c✗ Invalid path!");
+                return false;
+            }
+
+            route = new RouteGeometry(path, turnAngleCos);
+        }
+        laterLegsLength = 0;
+        for (int i = 1; i < itinerary.size() - 1; i++) {
+            RouteInfo info = plugin.getPathfindingManager().getStorage()
+                    .getRouteInfo(itinerary.get(i), itinerary.get(i + 1));
+            if (info != null) {
+                laterLegsLength += info.length;
+            }
         }
 
+        journeyLength = route.getLength() + laterLegsLength;
+
         player.sendMessage("§a✓ Autopilot engaged!");
         player.sendMessage("§7Destination: §e" + toPort);
-        player.sendMessage("§7Waypoints: §f" + path.size());
+        if (itinerary.size() > 2) {
+            player.sendMessage("§7Route: §e" + String.join(" §7→ §e", itinerary));
+        }
+        player.sendMessage("§7Waypoints: §f" + route.size());
+        player.sendMessage("§7Distance: §f" + (int) journeyLength + " blocks");
         player.sendMessage("§7Speed: §f" + String.format("%.2f", baseSpeed) + " blocks/tick");
         player.sendMessage("");
         player.sendMessage("§7Exit boat to cancel autopilot");
 
-        currentWaypointIndex = 0;
-        lastProgressTime = System.currentTimeMillis();
+        resetRouteState();
 
-        // Запускаем движение (каждый тик = 0.05 секунды)
-        task = Bukkit.getScheduler().runTaskTimer(plugin, this::updateBoatMovement, 0L, 1L);
+        // Движение обновляет общий драйвер NavigationManager (addAutopilot)
+        active = true;
 
-        plugin.getLogger().info("Autopilot task started for " + player.getName());
+        plugin.getLogger().info("Autopilot started for " + player.getName());
 
         return true;
     }
 
     /**
-     * Обновляет движение лодки каждый тик (ПЛАВНОЕ ДВИЖЕНИЕ + STUCK DETECTION!)
+     * Вызывается драйвером NavigationManager
+     */
+    void tick() {
+        if (!active) {
+            return;
+        }
+
+        if (--steerCountdown <= 0) {
+            updateBoatMovement();
+            steerCountdown = updateInterval;
+        } else if (holdingCourse && boat.isValid()) {
+            // Между пересчётами - тот же курс, скорость каждый тик
+            applySteering();
+        }
+    }
+
+    /**
+     * Выбирает интервал до следующего обновления:
+     * - поворот близко или лодка не на курсе -> каждый тик
+     * - длинный прямой участок -> до max-update-interval
+     */
+    private int chooseUpdateInterval(double dirX, double dirZ, double velX, double velZ) {
+        if (!adaptiveRate) {
+            return minUpdateInterval;
+        }
+
+        double speed = Math.sqrt(velX * velX + velZ * velZ);
+        if (speed < baseSpeed * 0.5) {
+            // Разгон - рулим каждый тик
+            return minUpdateInterval;
+        }
+
+        // Скорость поворота: насколько текущий курс отличается от нужного
+        double headingCos = (velX * dirX + velZ * dirZ) / speed;
+        if (headingCos < headingToleranceCos) {
+            return minUpdateInterval;
+        }
+
+        double distanceToTurn = distanceToTarget + route.turnDistance[currentWaypointIndex];
+
+        // Оставляем запас: успеть обновиться минимум 3 раза до поворота
+        int ticksToTurn = (int) (distanceToTurn / speed);
+        int interval = ticksToTurn / 3;
+
+        return Math.max(minUpdateInterval, Math.min(maxUpdateInterval, interval));
+    }
+
+    /**
+     * Драйвер тикает лодку каждый тик: скорость задаётся всегда,
+     * курс пересчитывается раз в updateInterval тиков (steerCountdown)
+     */
+    void scheduleNextUpdate(long currentTick) {
+        nextUpdateTick = currentTick + 1;
+    }
+
+    long getNextUpdateTick() {
+        return nextUpdateTick;
+    }
+
+    /**
+     * Расстояние XZ от последней позиции лодки до waypoint
+     */
+    private double distanceTo(int index) {
+        double dx = route.x[index] - boatX;
+        double dz = route.z[index] - boatZ;
+        return Math.sqrt(dx * dx + dz * dz);
+    }
+
+    /**
+     * Обновляет движение лодки (ПЛАВНОЕ ДВИЖЕНИЕ + STUCK DETECTION!)
      */
     private void updateBoatMovement() {
+        holdingCourse = false;
+
         // === SAFETY CHECKS ===
 
         // Проверка что лодка еще существует
@@ -123,97 +354,519 @@ public class BoatAutopilot {
         }
 
         // Проверка что игрок все еще в лодке
-        if (!boat.getPassengers().contains(player)) {
+        if (player.getVehicle() != boat) {
             stopJourney("Player exited boat");
             return;
         }
 
         // Проверка что не достигли конца пути
-        if (currentWaypointIndex >= path.size()) {
+        if (currentWaypointIndex >= route.size()) {
             arriveAtDestination();
             return;
         }
 
         // === NAVIGATION ===
 
-        // Текущий waypoint
-        Location target = path.get(currentWaypointIndex);
-        Location boatLoc = boat.getLocation();
+        // Позиция лодки в переиспользуемый Location
+        boat.getLocation(boatLoc);
+        boatX = boatLoc.getX();
+        boatZ = boatLoc.getZ();
 
+        // Ждём результат локального поиска объезда
+        if (replanning) {
+            return;
+        }
+
+        boolean steering = purePursuit ? updatePurePursuit() : updateWaypointHopping();
+        if (!steering) {
+            return;
+        }
+
+        applySteering();
+        updateInterval = chooseUpdateInterval(steerX, steerZ, lastVelX, lastVelZ);
+        holdingCourse = true;
+        updateChunkPreload();
+    }
+
+    /**
+     * Текущая позиция на маршруте по длине дуги
+     */
+    private double currentArc() {
+        if (currentWaypointIndex >= route.size()) {
+            return route.getLength();
+        }
+        return Math.max(0, route.cumulative[currentWaypointIndex] - distanceToTarget);
+    }
+
+    /**
+     * Держит чанки маршрута на [arc - preload-behind, arc + preload-distance].
+     * Пересчёт только после продвижения на 8 блоков.
+     */
+    private void updateChunkPreload() {
+        if (!preloadChunks || route.getWorld() == null) {
+            return;
+        }
+
+        double arc = currentArc();
+        if (arc - lastPreloadArc < 8.0) {
+            return;
+        }
+        lastPreloadArc = arc;
+
+        Set<Long> needed = new HashSet<>();
+        double end = Math.min(route.getLength(), arc + preloadDistance);
+        int hint = 0;
+        for (double s = Math.max(0, arc - preloadBehind); ; s += 8.0) {
+            double sample = Math.min(s, end);
+            hint = route.pointAtDistance(sample, hint, scratch);
+            needed.add(ChunkPreloader.chunkKey((int) Math.floor(scratch[0]) >> 4,
+                    (int) Math.floor(scratch[1]) >> 4));
+            if (sample >= end) break;
+        }
+
+        ChunkPreloader preloader = plugin.getNavigationManager().getChunkPreloader();
+
+        // Отпускаем чанки позади
+        heldChunks.removeIf(key -> {
+            if (needed.contains(key)) return false;
+            preloader.release(route.getWorld(), key);
+            return true;
+        });
+
+        // Запрашиваем новые впереди
+        for (long key : needed) {
+            if (heldChunks.add(key)) {
+                preloader.acquire(route.getWorld(), key);
+            }
+        }
+    }
+
+    private void releaseChunks() {
+        if (heldChunks.isEmpty()) return;
+
+        ChunkPreloader preloader = plugin.getNavigationManager().getChunkPreloader();
+        for (long key : heldChunks) {
+            preloader.release(route.getWorld(), key);
+        }
+        heldChunks.clear();
+    }
+
+    /**
+     * Режим waypoint hopping: курс на текущий waypoint
+     *
+     * @return false если путешествие закончилось
+     */
+    private boolean updateWaypointHopping() {
         // Вычисляем дистанцию до waypoint (только XZ, игнорируем Y)
-        double dx = target.getX() - boatLoc.getX();
-        double dz = target.getZ() - boatLoc.getZ();
-        double distance = Math.sqrt(dx * dx + dz * dz);
+        double distance = distanceTo(currentWaypointIndex);
 
         // Если близко к waypoint - переходим к следующему
-        if (distance < waypointRadius) {
+        // (при редких обновлениях лодка может пройти несколько waypoints за раз)
+        while (distance < waypointRadius) {
             currentWaypointIndex++;
             lastProgressTime = System.currentTimeMillis(); // ✅ Обновляем время прогресса
 
             // Показываем прогресс каждые 10 waypoints
             if (currentWaypointIndex % 10 == 0 || currentWaypointIndex < 3) {
-                int progress = (currentWaypointIndex * 100) / path.size();
+                int progress = (currentWaypointIndex * 100) / route.size();
                 player.sendActionBar("§6⚓ Progress: §e" + progress + "% §7(" +
-                        currentWaypointIndex + "/" + path.size() + ")");
+                        currentWaypointIndex + "/" + route.size() + ")");
 
-                plugin.getLogger().info("Progress: " + currentWaypointIndex + "/" + path.size() +
+                plugin.getLogger().info("Progress: " + currentWaypointIndex + "/" + route.size() +
                         " (" + progress + "%)");
             }
 
-            return;
+            if (currentWaypointIndex >= route.size()) {
+                distanceToTarget = 0;
+                arriveAtDestination();
+                return false;
+            }
+
+            distance = distanceTo(currentWaypointIndex);
         }
 
+        distanceToTarget = distance;
+
         // ✅ НОВОЕ: ДЕТЕКЦИЯ ЗАСТРЕВАНИЯ
         // Если нет прогресса 10 секунд - лодка застряла (тупик!)
         if (System.currentTimeMillis() - lastProgressTime > 10000) {
             plugin.getLogger().warning("⚠ Boat stuck at waypoint " + currentWaypointIndex + "!");
             plugin.getLogger().warning("  Boat location: " + boatLoc.getBlockX() + "," +
                     boatLoc.getBlockY() + "," + boatLoc.getBlockZ());
-            plugin.getLogger().warning("  Target: " + target.getBlockX() + "," +
-                    target.getBlockY() + "," + target.getBlockZ());
+            plugin.getLogger().warning("  Target: " + (int) Math.floor(route.x[currentWaypointIndex]) + "," +
+                    (int) Math.floor(route.y[currentWaypointIndex]) + "," +
+                    (int) Math.floor(route.z[currentWaypointIndex]));
             plugin.getLogger().warning("  Distance: " + String.format("%.2f", distance));
 
+            if (requestLocalReplan()) {
+                return false;
+            }
+
             player.sendMessage("");
             player.sendMessage("§c✗ Navigation error: Boat stuck!");
             player.sendMessage("§7Possible dead end detected");
-            player.sendMessage("§7Try: §e/port reconnect " + fromPort + " " + toPort);
+            player.sendMessage("§7Try: §e/port reconnect " + legFrom() + " " + legTo());
             player.sendMessage("");
 
             stopJourney("Boat stuck - possible dead end");
+            return false;
+        }
+
+        // Направление к waypoint (нормализованное XZ)
+        steerX = (route.x[currentWaypointIndex] - boatX) / distance;
+        steerZ = (route.z[currentWaypointIndex] - boatZ) / distance;
+        return true;
+    }
+
+    /**
+     * Режим pure pursuit: проекция на маршрут + точка впереди на lookahead
+     *
+     * @return false если путешествие закончилось
+     */
+    private boolean updatePurePursuit() {
+        // Проекция лодки на ближайший сегмент (только вперёд, в окне)
+        segmentIndex = route.projectOnto(boatX, boatZ, segmentIndex, searchWindow, scratch);
+        projectedArc = Math.max(projectedArc, scratch[0]);
+
+        // Для прогресса / адаптивной частоты: следующий waypoint = конец сегмента
+        currentWaypointIndex = segmentIndex + 1;
+        distanceToTarget = route.cumulative[currentWaypointIndex] - projectedArc;
+
+        // Прибытие: конец маршрута рядом
+        double remaining = route.getLength() - projectedArc;
+        if (remaining < waypointRadius && distanceTo(route.size() - 1) < waypointRadius * 2) {
+            currentWaypointIndex = route.size();
+            distanceToTarget = 0;
+            arriveAtDestination();
+            return false;
+        }
+
+        // Прогресс = продвижение по длине дуги
+        if (projectedArc > lastProgressArc + 1.0) {
+            lastProgressArc = projectedArc;
+            lastProgressTime = System.currentTimeMillis();
+
+            int progress = getProgress();
+            if (progress / 10 != lastReportedProgress / 10) {
+                lastReportedProgress = progress;
+                player.sendActionBar("§6⚓ Progress: §e" + progress + "% §7(" +
+                        (int) projectedArc + "/" + (int) route.getLength() + " blocks)");
+            }
+        }
+
+        // ✅ ДЕТЕКЦИЯ ЗАСТРЕВАНИЯ
+        if (System.currentTimeMillis() - lastProgressTime > 10000) {
+            plugin.getLogger().warning("⚠ Boat stuck at " + (int) projectedArc + "/" +
+                    (int) route.getLength() + " blocks of route!");
+            plugin.getLogger().warning("  Boat location: " + boatLoc.getBlockX() + "," +
+                    boatLoc.getBlockY() + "," + boatLoc.getBlockZ());
+            plugin.getLogger().warning("  Off-route distance: " + String.format("%.2f", Math.sqrt(scratch[1])));
+
+            if (requestLocalReplan()) {
+                return false;
+            }
+
+            player.sendMessage("");
+            player.sendMessage("§c✗ Navigation error: Boat stuck!");
+            player.sendMessage("§7Possible dead end detected");
+            player.sendMessage("§7Try: §e/port reconnect " + legFrom() + " " + legTo());
+            player.sendMessage("");
+
+            stopJourney("Boat stuck - possible dead end");
+            return false;
+        }
+
+        // Дистанция упреждения пропорциональна скорости (с прошлого обновления)
+        double lookahead = Math.max(minLookahead, Math.min(maxLookahead,
+                Math.max(lastSpeed, baseSpeed) * lookaheadTicks));
+
+        route.pointAtDistance(projectedArc + lookahead, segmentIndex, scratch);
+
+        double dx = scratch[0] - boatX;
+        double dz = scratch[1] - boatZ;
+        double distance = Math.sqrt(dx * dx + dz * dz);
+        if (distance < 1.0E-6) {
+            return false;
+        }
+
+        dx /= distance;
+        dz /= distance;
+
+        // Кривая: добавляем курс маршрута в точке упреждения
+        if (route.isSpline()) {
+            route.headingAtDistance(projectedArc + lookahead, segmentIndex, heading);
+            double sumX = dx + heading[0];
+            double sumZ = dz + heading[1];
+            double sum = Math.sqrt(sumX * sumX + sumZ * sumZ);
+            // Курсы почти противоположны (лодка развернулась) - только на точку
+            if (sum > 0.5) {
+                dx = sumX / sum;
+                dz = sumZ / sum;
+            }
+        }
+
+        steerX = dx;
+        steerZ = dz;
+        return true;
+    }
+
+    // ===== LOCAL REPLAN =====
+
+    /**
+     * Запускает асинхронный поиск объезда от лодки до точки
+     * replan.distance впереди по маршруту.
+     *
+     * @return true если поиск запущен (путешествие продолжается)
+     */
+    private boolean requestLocalReplan() {
+        if (!replanEnabled || replanAttempts >= maxReplans || route.getWorld() == null) {
+            return false;
+        }
+        replanAttempts++;
+        replanning = true;
+
+        RouteGeometry base = route;
+        World world = base.getWorld();
+
+        // Waypoint позади лодки остаётся, дальше - объезд до resumeFrom
+        int keepUntil = Math.max(0, Math.min(currentWaypointIndex - 1, base.size() - 2));
+        int resumeFrom = Math.max(keepUntil + 1,
+                Math.min(base.size() - 1, base.indexAtDistance(currentArc() + replanDistance)));
+
+        Location start = new Location(world, boatX, base.y[keepUntil], boatZ);
+        Location goal = new Location(world, base.x[resumeFrom], base.y[resumeFrom], base.z[resumeFrom]);
+
+        player.sendActionBar("§e⚠ Boat stuck - searching for a detour...");
+        plugin.getLogger().info("Local replan #" + replanAttempts + " for " + player.getName() +
+                ": waypoints " + keepUntil + " -> " + resumeFrom);
+
+        boolean queued = plugin.getPathfindingManager().getExecutor().execute(
+                PathfindingExecutor.Priority.INTERACTIVE, () -> {
+            long startTime = System.nanoTime();
+            List<Location> detour = plugin.getPathfindingManager().getPathfinder()
+                    .findLocalPath(start, goal, world, replanMargin, replanMaxIterations);
+            long micros = (System.nanoTime() - startTime) / 1000;
+
+            plugin.getTaskScheduler().runAtEntity(boat, () ->
+                    applyLocalReplan(base, keepUntil, detour, resumeFrom, micros));
+        });
+
+        if (!queued) {
+            replanning = false;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Вклеивает найденный объезд (поток лодки)
+     */
+    private void applyLocalReplan(RouteGeometry base, int keepUntil, List<Location> detour,
+                                  int resumeFrom, long micros) {
+        replanning = false;
+
+        // Путешествие закончилось или маршрут уже заменён
+        if (!active || route != base) {
             return;
         }
 
-        // === SMOOTH MOVEMENT ===
+        if (detour == null || detour.size() < 2) {
+            plugin.getLogger().warning("✗ Local replan failed (" + micros + "µs)");
+
+            player.sendMessage("");
+            player.sendMessage("§c✗ Navigation error: Boat stuck!");
+            player.sendMessage("§7No detour found around the obstacle");
+            player.sendMessage("§7Try: §e/port reconnect " + legFrom() + " " + legTo());
+            player.sendMessage("");
 
-        // Вычисляем направление к waypoint (нормализованный вектор XZ)
-        Vector direction = new Vector(dx, 0, dz).normalize();
+            stopJourney("Boat stuck - possible dead end");
+            return;
+        }
+
+        // Последняя точка объезда = waypoint resumeFrom, он уже есть в маршруте
+        detour.remove(detour.size() - 1);
+
+        route = base.splice(keepUntil, detour, resumeFrom, turnAngleCos);
+
+        // Лодка стоит в первой точке объезда
+        int first = keepUntil + 1;
+        currentWaypointIndex = first;
+        segmentIndex = Math.min(first, route.size() - 2);
+        projectedArc = route.cumulative[first];
+        lastProgressArc = projectedArc;
+        distanceToTarget = 0;
+        lastProgressTime = System.currentTimeMillis();
+        lastPreloadArc = -Double.MAX_VALUE;
+        updateInterval = minUpdateInterval;
+        steerCountdown = 0;
+
+        plugin.getLogger().info("✓ Local replan: " + detour.size() + " waypoints spliced in " + micros + "µs");
+        player.sendActionBar("§a✓ Detour found, continuing to §e" + toPort);
+    }
 
-        // Целевая скорость в направлении waypoint
-        Vector targetVelocity = direction.multiply(baseSpeed);
+    /**
+     * Плавное изменение скорости в направлении (steerX, steerZ)
+     */
+    private void applySteering() {
+        // === SMOOTH MOVEMENT ===
 
-        // Текущая скорость лодки
-        Vector currentVelocity = boat.getVelocity();
+        double dirX = steerX;
+        double dirZ = steerZ;
 
-        // ПЛАВНАЯ ИНТЕРПОЛЯЦИЯ
-        Vector velocityDiff = targetVelocity.subtract(currentVelocity);
-        Vector force = velocityDiff.multiply(smoothness);
+        // Текущая скорость лодки (getVelocity() - единственная копия от Bukkit)
+        Vector current = boat.getVelocity();
+        double velX = current.getX();
+        double velY = current.getY();
+        double velZ = current.getZ();
+        lastSpeed = Math.sqrt(velX * velX + velZ * velZ);
+        lastVelX = velX;
+        lastVelZ = velZ;
 
-        // Применяем новую скорость
-        Vector newVelocity = currentVelocity.add(force);
+        // ПЛАВНАЯ ИНТЕРПОЛЯЦИЯ к целевой скорости (dir * baseSpeed)
+        double newX = velX + (dirX * baseSpeed - velX) * smoothness;
+        double newY = velY + (0 - velY) * smoothness;
+        double newZ = velZ + (dirZ * baseSpeed - velZ) * smoothness;
 
         // Ограничиваем максимальную скорость
         double maxSpeed = baseSpeed * 1.5;
-        if (newVelocity.length() > maxSpeed) {
-            newVelocity = newVelocity.normalize().multiply(maxSpeed);
+        double lengthSq = newX * newX + newY * newY + newZ * newZ;
+        if (lengthSq > maxSpeed * maxSpeed) {
+            double scale = maxSpeed / Math.sqrt(lengthSq);
+            newX *= scale;
+            newY *= scale;
+            newZ *= scale;
+        }
+
+        boat.setVelocity(velocity.setX(newX).setY(newY).setZ(newZ));
+    }
+
+    /**
+     * Сброс состояния движения на начало route
+     */
+    private void resetRouteState() {
+        currentWaypointIndex = 0;
+        lastProgressTime = System.currentTimeMillis();
+        updateInterval = minUpdateInterval;
+        steerCountdown = 0;
+
+        boat.getLocation(boatLoc);
+        boatX = boatLoc.getX();
+        boatZ = boatLoc.getZ();
+        distanceToTarget = distanceTo(0);
+
+        segmentIndex = 0;
+        projectedArc = 0;
+        lastProgressArc = 0;
+        lastReportedProgress = 0;
+        replanAttempts = 0;
+
+        lastPreloadArc = -Double.MAX_VALUE;
+        updateChunkPreload();
+    }
+
+    private String legFrom() {
+        return itinerary.get(legIndex);
+    }
+
+    private String legTo() {
+        return itinerary.get(legIndex + 1);
+    }
+
+    /**
+     * Конец плеча: переходим на следующее без остановки
+     *
+     * @return false если следующее плечо не загрузилось
+     */
+    private boolean startNextLeg() {
+        String from = itinerary.get(legIndex + 1);
+        String to = itinerary.get(legIndex + 2);
+
+        RouteSpline spline = plugin.getPathfindingManager().getSpline(from, to);
+        List<Location> path = spline == null ? plugin.getPathfindingManager().getPath(from, to) : null;
+        if (spline == null && (path == null || path.size() < 2)) {
+            player.sendMessage("§c✗ Route " + from + " → " + to + " is no longer available!");
+            return false;
+        }
+
+        legIndex++;
+        RouteInfo info = plugin.getPathfindingManager().getStorage().getRouteInfo(from, to);
+        double legLength = info != null ? info.length
+                : spline != null ? spline.getLength() : RouteInfo.calculateLength(path);
+        laterLegsLength = Math.max(0, laterLegsLength - legLength);
+
+        if (spline != null) {
+            startSplineLeg(spline);
+        } else {
+            startPolylineLeg(path);
+        }
+
+        player.sendActionBar("§6⚓ Leg " + (legIndex + 1) + "/" + (itinerary.size() - 1) +
+                ": §e" + from + " §7→ §e" + to);
+        plugin.getLogger().info("Autopilot " + player.getName() + ": leg " + (legIndex + 1) +
+                " " + from + " → " + to + " (" + route.size() + " waypoints)");
+        return true;
+    }
+
+    /**
+     * Плечо по кривой: с ближайшей к лодке точки в начале кривой
+     * (лодку на кривую выводит pure pursuit)
+     */
+    private void startSplineLeg(RouteSpline spline) {
+        int nearest = 0;
+        double nearestSq = Double.MAX_VALUE;
+        // Точки плавания разных портов не совпадают: ищем в начале кривой
+        int limit = Math.min(spline.size() - 2, (int) Math.ceil(searchWindow * 4 / spline.getStep()));
+        for (int i = 0; i <= limit; i++) {
+            double dx = spline.x[i] - boatX;
+            double dz = spline.z[i] - boatZ;
+            double distSq = dx * dx + dz * dz;
+            if (distSq < nearestSq) {
+                nearestSq = distSq;
+                nearest = i;
+            }
+        }
+
+        route = new RouteGeometry(spline, nearest, turnAngleCos);
+        resetRouteState();
+    }
+
+    private void startPolylineLeg(List<Location> path) {
+        // Точки плавания разных портов не совпадают:
+        // начинаем с ближайшего к лодке waypoint в начале плеча
+        int nearest = 0;
+        double nearestSq = Double.MAX_VALUE;
+        int limit = Math.min(path.size() - 2, searchWindow * 4);
+        for (int i = 0; i <= limit; i++) {
+            double dx = path.get(i).getX() - boatX;
+            double dz = path.get(i).getZ() - boatZ;
+            double distSq = dx * dx + dz * dz;
+            if (distSq < nearestSq) {
+                nearestSq = distSq;
+                nearest = i;
+            }
         }
 
-        boat.setVelocity(newVelocity);
+        List<Location> leg = new ArrayList<>(path.size() - nearest + 1);
+        leg.add(new Location(route.getWorld(), boatX, path.get(nearest).getY(), boatZ));
+        leg.addAll(path.subList(nearest, path.size()));
+
+        route = new RouteGeometry(leg, turnAngleCos);
+        resetRouteState();
     }
 
     /**
      * Прибытие в пункт назначения
      */
     private void arriveAtDestination() {
+        // Промежуточный порт - сразу следующее плечо
+        if (legIndex < itinerary.size() - 2) {
+            if (startNextLeg()) {
+                return;
+            }
+            stopJourney("Route interrupted at " + legTo());
+            return;
+        }
+
         stopJourney(null);
 
         player.sendMessage("");
@@ -232,10 +885,10 @@ public class BoatAutopilot {
      * Останавливает путешествие
      */
     public void stopJourney(String reason) {
-        if (task != null) {
-            task.cancel();
-            task = null;
-        }
+        // Драйвер NavigationManager уберёт autopilot на следующем тике
+        active = false;
+
+        releaseChunks();
 
         // Плавная остановка лодки
         if (boat != null && !boat.isDead()) {
@@ -253,33 +906,54 @@ public class BoatAutopilot {
      * Проверяет, активен ли autopilot
      */
     public boolean isActive() {
-        return task != null;
+        return active;
+    }
+
+    public UUID getPlayerUUID() {
+        return player.getUniqueId();
+    }
+
+    public Boat getBoat() {
+        return boat;
     }
 
     /**
-     * Получить текущий прогресс (0-100)
+     * Интервал обновления в тиках
+     */
+    public int getUpdateInterval() {
+        return updateInterval;
+    }
+
+    public void setUpdateInterval(int updateInterval) {
+        this.updateInterval = Math.max(1, updateInterval);
+    }
+
+    /**
+     * Получить текущий прогресс по расстоянию (0-100), O(1)
      */
     public int getProgress() {
-        if (path == null || path.isEmpty()) return 0;
-        return (currentWaypointIndex * 100) / path.size();
+        if (route == null || journeyLength <= 0) return 0;
+
+        double travelled = journeyLength - getRemainingDistance();
+        return (int) Math.max(0, Math.min(100, travelled * 100 / journeyLength));
     }
 
     /**
-     * Получить оставшееся расстояние
+     * Получить оставшееся расстояние, O(1):
+     * до текущего waypoint + накопленная длина от него до конца
      */
     public double getRemainingDistance() {
-        if (path == null || currentWaypointIndex >= path.size()) return 0;
+        if (route == null || currentWaypointIndex >= route.size()) return laterLegsLength;
 
-        double distance = 0;
-        Location current = boat.getLocation();
-
-        for (int i = currentWaypointIndex; i < path.size(); i++) {
-            Location waypoint = path.get(i);
-            distance += current.distance(waypoint);
-            current = waypoint;
-        }
+        return distanceToTarget + route.remainingFrom(currentWaypointIndex) + laterLegsLength;
+    }
 
-        return distance;
+    /**
+     * Примерное время до прибытия (секунды) при базовой скорости
+     */
+    public int getEtaSeconds() {
+        if (baseSpeed <= 0) return 0;
+        return (int) (getRemainingDistance() / baseSpeed / 20.0);
     }
 
     /**
@@ -289,4 +963,4 @@ public class BoatAutopilot {
         if (boat == null || boat.isDead()) return 0;
         return boat.getVelocity().length();
     }
-}
\ No newline at end of file
+}
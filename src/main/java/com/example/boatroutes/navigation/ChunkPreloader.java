@@ -0,0 +1,118 @@
+package com.example.boatroutes.navigation;
+
+import com.example.boatroutes.BoatRoutesPlugin;
+import org.bukkit.World;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * ChunkPreloader - Асинхронная подгрузка чанков впереди лодок
+ *
+ * - Чанк грузится через Paper getChunkAtAsync (без синхронной загрузки)
+ * - Пока чанк нужен хоть одной лодке, на нём висит plugin chunk ticket
+ * - Тикеты плагина не считают ссылки, поэтому счётчик ведётся здесь:
+ *   две лодки на одном маршруте не снимут тикет друг у друга
+ * - Методы synchronized: на Folia лодки тикают в разных потоках регионов
+ *
+ * @author BoatRoutes Team
+ * @version 1.0
+ */
+public class ChunkPreloader {
+
+    private final BoatRoutesPlugin plugin;
+
+    // world UUID -> (chunk key -> сколько лодок держат чанк)
+    private final Map<UUID, Map<Long, Integer>> refCounts = new HashMap<>();
+
+    public ChunkPreloader(BoatRoutesPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    public static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    private static int keyX(long key) {
+        return (int) (key >> 32);
+    }
+
+    private static int keyZ(long key) {
+        return (int) key;
+    }
+
+    /**
+     * Лодке нужен чанк: грузим асинхронно и ставим тикет
+     */
+    public synchronized void acquire(World world, long key) {
+        Map<Long, Integer> counts = refCounts.computeIfAbsent(world.getUID(), k -> new HashMap<>());
+        int count = counts.merge(key, 1, Integer::sum);
+        if (count > 1) {
+            return;
+        }
+
+        int chunkX = keyX(key);
+        int chunkZ = keyZ(key);
+
+        if (world.isChunkLoaded(chunkX, chunkZ)) {
+            world.addPluginChunkTicket(chunkX, chunkZ, plugin);
+            return;
+        }
+
+        world.getChunkAtAsync(chunkX, chunkZ).thenAccept(chunk -> {
+            // Пока грузился - лодка могла уплыть. Проверка и тикет под одним
+            // монитором: release() из другого региона не вклинится между ними
+            synchronized (this) {
+                if (isHeld(world, key)) {
+                    world.addPluginChunkTicket(chunkX, chunkZ, plugin);
+                }
+            }
+        });
+    }
+
+    /**
+     * Лодке чанк больше не нужен: снимаем тикет, если он последний
+     */
+    public synchronized void release(World world, long key) {
+        Map<Long, Integer> counts = refCounts.get(world.getUID());
+        if (counts == null) return;
+
+        Integer count = counts.get(key);
+        if (count == null) return;
+
+        if (count > 1) {
+            counts.put(key, count - 1);
+            return;
+        }
+
+        counts.remove(key);
+        world.removePluginChunkTicket(keyX(key), keyZ(key), plugin);
+    }
+
+    private synchronized boolean isHeld(World world, long key) {
+        Map<Long, Integer> counts = refCounts.get(world.getUID());
+        return counts != null && counts.containsKey(key);
+    }
+
+    /**
+     * Снимает все тикеты плагина (выключение сервера)
+     */
+    public synchronized void releaseAll() {
+        for (World world : plugin.getServer().getWorlds()) {
+            world.removePluginChunkTickets(plugin);
+        }
+        refCounts.clear();
+    }
+
+    /**
+     * Сколько чанков сейчас удерживается
+     */
+    public synchronized int getHeldCount() {
+        int total = 0;
+        for (Map<Long, Integer> counts : refCounts.values()) {
+            total += counts.size();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.boatroutes.navigation;
+
+import com.example.boatroutes.BoatRoutesPlugin;
+import com.example.boatroutes.gui.GUIUtils;
+import com.example.boatroutes.pathfinding.RouteNetwork;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * DestinationMenuCache - Готовые страницы меню назначения для каждого порта
+ *
+ * - Список достижимых портов считается один раз (RouteNetwork, один Dijkstra)
+ *   и раскладывается по страницам готовых ItemStack
+ * - Кеш порта сбрасывается, когда меняется версия сети путей
+ * - Открытие меню копирует одну страницу - время не зависит от числа портов
+ *
+ * @author BoatRoutes Team
+ * @version 1.0
+ */
+public class DestinationMenuCache {
+
+    public static final int SIZE = 54;
+    public static final int PER_PAGE = 45;
+
+    public static final int SLOT_PREVIOUS = 45;
+    public static final int SLOT_INFO = 49;
+    public static final int SLOT_NEXT = 53;
+    public static final int SLOT_EMPTY = 22;
+
+    private final BoatRoutesPlugin plugin;
+
+    // порт (lowercase) -> страницы
+    private final Map<String, Menu> menus = new ConcurrentHashMap<>();
+
+    public DestinationMenuCache(BoatRoutesPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Страницы меню порта (пересобираются, если сеть путей изменилась)
+     */
+    public Menu getMenu(String currentPort) {
+        RouteNetwork network = plugin.getPathfindingManager().getNetwork();
+        long version = network.getVersion();
+
+        Menu menu = menus.get(currentPort.toLowerCase());
+        if (menu == null || menu.version != version) {
+            menu = build(currentPort, network, version);
+            menus.put(currentPort.toLowerCase(), menu);
+        }
+        return menu;
+    }
+
+    /**
+     * Сбросить все меню (порт создан / удалён)
+     */
+    public void invalidate() {
+        menus.clear();
+    }
+
+    private Menu build(String currentPort, RouteNetwork network, long version) {
+        List<RouteNetwork.Destination> destinations = new ArrayList<>();
+        for (RouteNetwork.Destination destination : network.getDestinations(currentPort)) {
+            // Пути удалённого порта могут остаться в сети
+            if (destination.port.equalsIgnoreCase(currentPort)) continue;
+            if (!plugin.getPortManager().portExists(destination.port)) continue;
+            destinations.add(destination);
+        }
+
+        List<ItemStack[]> pages = new ArrayList<>();
+        List<List<RouteNetwork.Destination>> slots = new ArrayList<>();
+
+        if (destinations.isEmpty()) {
+            ItemStack[] page = new ItemStack[SIZE];
+            page[SLOT_EMPTY] = GUIUtils.createItem(Material.BARRIER, "§c✗ No destinations available",
+                    "§7No connected ports found", "§7Use §e/port connect §7to create routes");
+            pages.add(page);
+            slots.add(new ArrayList<>());
+            return new Menu(version, pages, slots);
+        }
+
+        int pageCount = (destinations.size() + PER_PAGE - 1) / PER_PAGE;
+        for (int p = 0; p < pageCount; p++) {
+            ItemStack[] page = new ItemStack[SIZE];
+            List<RouteNetwork.Destination> pageSlots = new ArrayList<>();
+
+            int from = p * PER_PAGE;
+            int to = Math.min(destinations.size(), from + PER_PAGE);
+            for (int i = from; i < to; i++) {
+                RouteNetwork.Destination destination = destinations.get(i);
+                page[i - from] = createDestinationItem(destination);
+                pageSlots.add(destination);
+            }
+
+            if (p > 0) {
+                page[SLOT_PREVIOUS] = GUIUtils.createItem(Material.ARROW, "§e← Page " + p);
+            }
+            if (p < pageCount - 1) {
+                page[SLOT_NEXT] = GUIUtils.createItem(Material.ARROW, "§ePage " + (p + 2) + " →");
+            }
+            page[SLOT_INFO] = GUIUtils.createItem(Material.PAPER, "§7Page §f" + (p + 1) + "§7/§f" + pageCount,
+                    "§7Destinations: §f" + destinations.size());
+
+            pages.add(page);
+            slots.add(pageSlots);
+        }
+
+        plugin.getLogger().info("Built destination menu for " + currentPort + ": " +
+                destinations.size() + " destinations, " + pageCount + " pages");
+        return new Menu(version, pages, slots);
+    }
+
+    private ItemStack createDestinationItem(RouteNetwork.Destination destination) {
+        List<String> lore = new ArrayList<>();
+        lore.add("§7Click to navigate");
+        lore.add("");
+        lore.add("§7Distance: §f" + (int) destination.distance + " blocks");
+
+        if (destination.isDirect()) {
+            lore.add("§aDirect route ✓");
+        } else {
+            List<String> legs = destination.route;
+            lore.add("§eVia: §f" + String.join(" §7→ §f", legs.subList(1, legs.size() - 1)));
+            lore.add("§7Legs: §f" + (legs.size() - 1));
+        }
+
+        return GUIUtils.createItem(Material.MAP, "§e⚓ " + destination.port, lore.toArray(new String[0]));
+    }
+
+    /**
+     * Готовые страницы меню одного порта
+     */
+    public static final class Menu {
+        final long version;
+        // Шаблоны: Inventory.setContents копирует предметы
+        private final List<ItemStack[]> pages;
+        // Назначения по слотам каждой страницы
+        private final List<List<RouteNetwork.Destination>> slots;
+
+        Menu(long version, List<ItemStack[]> pages, List<List<RouteNetwork.Destination>> slots) {
+            this.version = version;
+            this.pages = pages;
+            this.slots = slots;
+        }
+
+        public int getPageCount() {
+            return pages.size();
+        }
+
+        public ItemStack[] getPage(int page) {
+            return pages.get(page);
+        }
+
+        /**
+         * Назначение в слоте страницы или null
+         */
+        public RouteNetwork.Destination getDestination(int page, int slot) {
+            List<RouteNetwork.Destination> pageSlots = slots.get(page);
+            return slot >= 0 && slot < pageSlots.size() ? pageSlots.get(slot) : null;
+        }
+    }
+}
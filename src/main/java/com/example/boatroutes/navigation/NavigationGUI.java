@@ -1,20 +1,30 @@
 package com.example.boatroutes.navigation;
 
 import com.example.boatroutes.BoatRoutesPlugin;
-import com.example.boatroutes.port.Port;
-import org.bukkit.Bukkit;
-import org.bukkit.Material;
+import com.example.boatroutes.gui.MenuHolder;
+import com.example.boatroutes.pathfinding.RouteNetwork;
+import org.bukkit.entity.Boat;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
-import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.ItemMeta;
 
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 
 /**
- * NavigationGUI v2.0 - С BIDIRECTIONAL PATH SUPPORT!
+ * NavigationGUI v2.3 - С BIDIRECTIONAL PATH SUPPORT!
+ * 
+ * НОВОЕ v2.3:
+ * - Меню - владелец своего инвентаря (MenuHolder): клик по слоту
+ *   сразу даёт порт назначения из таблицы страницы, без разбора имени предмета
+ * - Запуск autopilot перенесён сюда из GUIListener
+ * 
+ * НОВОЕ v2.2:
+ * - Страницы по 45 портов вместо обрезки на 14-м порту
+ * - Список назначений и ItemStack готовятся заранее (DestinationMenuCache)
+ *   и пересобираются только после изменения путей - открытие за O(1)
+ * 
+ * НОВОЕ v2.1:
+ * - Показывает все порты, достижимые по сети путей (RouteNetwork),
+ *   включая маршруты с пересадками через промежуточные порты
  * 
  * НОВОЕ:
  * - Проверяет путь в ОБЕ стороны (A→B и B→A)
@@ -22,14 +32,20 @@ import java.util.List;
  * - Автореверс в autopilot
  * 
  * @author BoatRoutes Team
- * @version 2.0-BIDIRECTIONAL
+ * @version 2.3-HOLDER
  */
-public class NavigationGUI {
+public class NavigationGUI extends MenuHolder {
+    
+    public static final String TITLE = "§6§l⚓ Select Destination";
     
     private final BoatRoutesPlugin plugin;
     private final Player player;
     private final String currentPort;
     
+    // Открытая страница и её таблица назначений
+    private DestinationMenuCache.Menu menu;
+    private int page;
+    
     public NavigationGUI(BoatRoutesPlugin plugin, Player player, String currentPort) {
         this.plugin = plugin;
         this.player = player;
@@ -37,67 +53,97 @@ public class NavigationGUI {
     }
     
     public void open() {
-        Inventory inv = Bukkit.createInventory(null, 27, "§6§l⚓ Select Destination");
+        open(0);
+    }
+    
+    /**
+     * Открыть страницу меню (с нуля)
+     */
+    public void open(int page) {
+        menu = plugin.getNavigationManager().getDestinationMenus().getMenu(currentPort);
         
-        Collection<Port> allPorts = plugin.getPortManager().getAllPorts();
-        int slot = 10;
+        int pages = menu.getPageCount();
+        this.page = Math.max(0, Math.min(page, pages - 1));
         
-        for (Port port : allPorts) {
-            // Skip current port
-            if (port.getName().equalsIgnoreCase(currentPort)) continue;
-            
-            // НОВОЕ: Проверяем путь В ОБЕ СТОРОНЫ!
-            boolean hasPathForward = plugin.getPathfindingManager().hasPath(currentPort, port.getName());
-            boolean hasPathReverse = plugin.getPathfindingManager().hasPath(port.getName(), currentPort);
-            
-            boolean hasPath = hasPathForward || hasPathReverse;
-            
-            if (hasPath) {
-                ItemStack item = new ItemStack(Material.MAP);
-                ItemMeta meta = item.getItemMeta();
-                
-                meta.setDisplayName("§e⚓ " + port.getName());
-                
-                List<String> lore = new ArrayList<>();
-                lore.add("§7Click to navigate");
-                lore.add("");
-                
-                // Показываем в какую сторону путь существует
-                if (hasPathForward && hasPathReverse) {
-                    lore.add("§aPath available (both ways) ✓✓");
-                } else if (hasPathForward) {
-                    lore.add("§aPath available (→) ✓");
-                } else {
-                    lore.add("§aPath available (←) ✓");
-                }
-                
-                meta.setLore(lore);
-                item.setItemMeta(meta);
-                
-                inv.setItem(slot, item);
-                slot++;
-                
-                if (slot == 17) slot = 19; // Next row
-                if (slot >= 26) break; // Inventory full
-            }
-        }
+        String title = pages > 1 ? TITLE + " §7(" + (this.page + 1) + "/" + pages + ")" : TITLE;
+        Inventory inv = createInventory(DestinationMenuCache.SIZE, title);
+        inv.setContents(menu.getPage(this.page));
         
-        // Если нет доступных портов
-        if (slot == 10) {
-            ItemStack noPortsItem = new ItemStack(Material.BARRIER);
-            ItemMeta meta = noPortsItem.getItemMeta();
-            meta.setDisplayName("§c✗ No destinations available");
-            
-            List<String> lore = new ArrayList<>();
-            lore.add("§7No connected ports found");
-            lore.add("§7Use §e/port connect §7to create routes");
-            
-            meta.setLore(lore);
-            noPortsItem.setItemMeta(meta);
-            
-            inv.setItem(13, noPortsItem);
+        if (this.page > 0) {
+            setAction(DestinationMenuCache.SLOT_PREVIOUS,
+                    p -> new NavigationGUI(plugin, p, currentPort).open(this.page - 1));
+        }
+        if (this.page < pages - 1) {
+            setAction(DestinationMenuCache.SLOT_NEXT,
+                    p -> new NavigationGUI(plugin, p, currentPort).open(this.page + 1));
         }
         
         player.openInventory(inv);
     }
+    
+    /**
+     * Слот назначения - из таблицы страницы, остальные - кнопки
+     */
+    @Override
+    public void onClick(Player clicker, int slot) {
+        RouteNetwork.Destination destination = menu.getDestination(page, slot);
+        if (destination == null) {
+            super.onClick(clicker, slot);
+            return;
+        }
+        
+        clicker.closeInventory();
+        
+        // Запускаем autopilot
+        startAutopilot(clicker, destination.port);
+    }
+    
+    /**
+     * Запуск автопилота
+     */
+    private void startAutopilot(Player player, String destinationPort) {
+        // Проверяем что игрок в лодке
+        if (!(player.getVehicle() instanceof Boat boat)) {
+            player.sendMessage("§c✗ You must be in a boat to navigate!");
+            return;
+        }
+        
+        // Проверяем что не пытаемся плыть в тот же порт
+        if (currentPort.equalsIgnoreCase(destinationPort)) {
+            player.sendMessage("§c✗ You are already at " + destinationPort + "!");
+            return;
+        }
+        
+        // Маршрут по сети портов (сеть могла измениться, пока меню было открыто)
+        List<String> itinerary = plugin.getPathfindingManager().getNetwork()
+                .findRoute(currentPort, destinationPort);
+        
+        if (itinerary == null) {
+            player.sendMessage("§c✗ No route to " + destinationPort + "!");
+            return;
+        }
+        
+        plugin.getLogger().info("Starting autopilot: " + player.getName() +
+                " from " + currentPort + " to " + destinationPort +
+                " (" + (itinerary.size() - 1) + " legs)");
+        
+        // Создаём и запускаем autopilot
+        BoatAutopilot autopilot = new BoatAutopilot(
+                plugin,
+                boat,
+                player,
+                itinerary
+        );
+        
+        boolean started = autopilot.startJourney();
+        
+        if (started) {
+            // Сохраняем autopilot в NavigationManager
+            plugin.getNavigationManager().addAutopilot(player.getUniqueId(), autopilot);
+            
+            plugin.getLogger().info("✓ Autopilot started successfully!");
+        } else {
+            plugin.getLogger().warning("✗ Failed to start autopilot!");
+        }
+    }
 }
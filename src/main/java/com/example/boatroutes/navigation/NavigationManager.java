@@ -1,22 +1,35 @@
 package com.example.boatroutes.navigation;
 
 import com.example.boatroutes.BoatRoutesPlugin;
+import com.example.boatroutes.scheduler.TaskScheduler;
 import org.bukkit.entity.Player;
 
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * NavigationManager v2.0 - Управление автопилотами
+ * NavigationManager v3.0 - Управление автопилотами
  * 
  * Отвечает за:
  * - Хранение активных autopilots
  * - Остановка autopilots при выходе из лодки
  * - Остановка всех autopilots при выключении сервера
  * 
+ * НОВОЕ v3.0:
+ * - ОДНА задача на тик для всех autopilots (вместо задачи на каждую лодку)
+ * - Компактный массив активных autopilots
+ * - Интервал обновления для каждой лодки
+ * - Лимит времени на тик (autopilot.tick-budget-ms), остаток - в следующем тике
+ * - Общий ChunkPreloader для асинхронной подгрузки чанков по маршрутам
+ * 
+ * НОВОЕ v3.1:
+ * - На Folia каждая лодка тикает на EntityScheduler своего региона
+ *   (общий драйвер - только на Paper)
+ * 
  * @author BoatRoutes Team
- * @version 2.0
+ * @version 3.1-FOLIA
  */
 public class NavigationManager {
     
@@ -25,9 +38,34 @@ public class NavigationManager {
     // Активные автопилоты: UUID игрока → BoatAutopilot
     private final Map<UUID, BoatAutopilot> activeAutopilots;
     
+    // Компактный массив для тика (без итераторов и аллокаций)
+    private BoatAutopilot[] ticking = new BoatAutopilot[16];
+    private int tickingCount = 0;
+    
+    // С какого индекса продолжить, если прошлый тик упёрся в лимит
+    private int cursor = 0;
+    
+    // Тикеты чанков впереди лодок (общие для всех autopilots)
+    private final ChunkPreloader chunkPreloader;
+    
+    // Готовые страницы меню назначения по портам
+    private final DestinationMenuCache destinationMenus;
+    
+    private TaskScheduler.Task driverTask;
+    private long currentTick = 0;
+    private final long tickBudgetNanos;
+    
+    // Статистика драйвера
+    private long lastTickNanos = 0;
+    private double averageTickNanos = 0;
+    private long budgetOverruns = 0;
+    
     public NavigationManager(BoatRoutesPlugin plugin) {
         this.plugin = plugin;
-        this.activeAutopilots = new HashMap<>();
+        this.activeAutopilots = new ConcurrentHashMap<>();
+        this.chunkPreloader = new ChunkPreloader(plugin);
+        this.destinationMenus = new DestinationMenuCache(plugin);
+        this.tickBudgetNanos = (long) (plugin.getConfig().getDouble("autopilot.tick-budget-ms", 2.0) * 1_000_000L);
     }
     
     /**
@@ -41,6 +79,7 @@ public class NavigationManager {
         }
         
         activeAutopilots.put(playerUUID, autopilot);
+        register(autopilot);
         plugin.getLogger().info("Active autopilots: " + activeAutopilots.size());
     }
     
@@ -99,9 +138,179 @@ public class NavigationManager {
         
         activeAutopilots.clear();
         
+        Arrays.fill(ticking, 0, tickingCount, null);
+        tickingCount = 0;
+        cursor = 0;
+        stopDriver();
+        
+        chunkPreloader.releaseAll();
+        
         plugin.getLogger().info("All autopilots stopped");
     }
     
+    // ===== ОБЩИЙ ТИК =====
+    
+    /**
+     * Добавляет autopilot в массив тика и запускает драйвер
+     */
+    private void register(BoatAutopilot autopilot) {
+        TaskScheduler scheduler = plugin.getTaskScheduler();
+        
+        if (scheduler.isFolia()) {
+            registerOnEntityScheduler(autopilot);
+            return;
+        }
+        
+        if (tickingCount == ticking.length) {
+            ticking = Arrays.copyOf(ticking, ticking.length * 2);
+        }
+        ticking[tickingCount++] = autopilot;
+        autopilot.scheduleNextUpdate(currentTick);
+        
+        if (driverTask == null) {
+            driverTask = scheduler.runGlobalTimer(t -> tickAll(), 1L, 1L);
+        }
+    }
+    
+    /**
+     * Folia: лодка тикает в потоке своего региона (EntityScheduler)
+     */
+    private void registerOnEntityScheduler(BoatAutopilot autopilot) {
+        long[] localTick = {0};
+        autopilot.scheduleNextUpdate(0);
+        
+        plugin.getTaskScheduler().runAtEntityTimer(autopilot.getBoat(), task -> {
+            localTick[0]++;
+            
+            if (autopilot.isActive() && localTick[0] >= autopilot.getNextUpdateTick()) {
+                try {
+                    autopilot.tick();
+                } catch (RuntimeException e) {
+                    plugin.getLogger().severe("Autopilot error: " + e.getMessage());
+                    autopilot.stopJourney("Internal error");
+                }
+                autopilot.scheduleNextUpdate(localTick[0]);
+            }
+            
+            if (!autopilot.isActive()) {
+                task.cancel();
+                activeAutopilots.remove(autopilot.getPlayerUUID(), autopilot);
+            }
+        }, () -> {
+            // Лодка удалена из мира
+            autopilot.stopJourney("Boat destroyed");
+            activeAutopilots.remove(autopilot.getPlayerUUID(), autopilot);
+        }, 1L, 1L);
+    }
+    
+    private void stopDriver() {
+        if (driverTask != null) {
+            driverTask.cancel();
+            driverTask = null;
+        }
+    }
+    
+    /**
+     * Один тик всех autopilots с лимитом времени
+     */
+    private void tickAll() {
+        currentTick++;
+        long start = System.nanoTime();
+        long deadline = start + tickBudgetNanos;
+        
+        int processed = 0;
+        int total = tickingCount;
+        int i = cursor < tickingCount ? cursor : 0;
+        
+        while (processed < total && tickingCount > 0) {
+            if (i >= tickingCount) {
+                i = 0;
+            }
+            
+            BoatAutopilot autopilot = ticking[i];
+            processed++;
+            
+            if (!autopilot.isActive()) {
+                removeAt(i);
+                continue; // на место i встал последний элемент
+            }
+            
+            if (currentTick >= autopilot.getNextUpdateTick()) {
+                try {
+                    autopilot.tick();
+                } catch (RuntimeException e) {
+                    plugin.getLogger().severe("Autopilot error: " + e.getMessage());
+                    autopilot.stopJourney("Internal error");
+                }
+                autopilot.scheduleNextUpdate(currentTick);
+                
+                if (!autopilot.isActive()) {
+                    removeAt(i);
+                    continue;
+                }
+            }
+            
+            i++;
+            
+            if (System.nanoTime() > deadline && processed < total) {
+                budgetOverruns++;
+                break;
+            }
+        }
+        
+        cursor = i;
+        
+        lastTickNanos = System.nanoTime() - start;
+        averageTickNanos = averageTickNanos * 0.95 + lastTickNanos * 0.05;
+        
+        if (tickingCount == 0) {
+            cursor = 0;
+            stopDriver();
+        }
+    }
+    
+    /**
+     * Удаление swap-with-last (O(1)) + очистка карты игроков
+     */
+    private void removeAt(int index) {
+        BoatAutopilot autopilot = ticking[index];
+        
+        tickingCount--;
+        ticking[index] = ticking[tickingCount];
+        ticking[tickingCount] = null;
+        
+        activeAutopilots.remove(autopilot.getPlayerUUID(), autopilot);
+    }
+    
+    public ChunkPreloader getChunkPreloader() {
+        return chunkPreloader;
+    }
+    
+    public DestinationMenuCache getDestinationMenus() {
+        return destinationMenus;
+    }
+    
+    /**
+     * Время последнего тика драйвера (нс)
+     */
+    public long getLastTickNanos() {
+        return lastTickNanos;
+    }
+    
+    /**
+     * Среднее время тика драйвера (нс, скользящее)
+     */
+    public double getAverageTickNanos() {
+        return averageTickNanos;
+    }
+    
+    /**
+     * Сколько раз тик упёрся в лимит времени
+     */
+    public long getBudgetOverruns() {
+        return budgetOverruns;
+    }
+    
     /**
      * Получить количество активных автопилотов
      */
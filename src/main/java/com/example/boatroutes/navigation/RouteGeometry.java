@@ -0,0 +1,334 @@
+package com.example.boatroutes.navigation;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * RouteGeometry - Маршрут в примитивных массивах
+ *
+ * Строится один раз при старте путешествия:
+ * - x[], y[], z[] координаты waypoints
+ * - cumulative[i] = длина пути (XZ) от начала до waypoint i
+ * - turnDistance[i] = расстояние от waypoint i до ближайшего поворота
+ *
+ * Прогресс, оставшееся расстояние и ETA - O(1) без обхода пути.
+ *
+ * НОВОЕ v1.3:
+ * - Маршрут из RouteSpline: точки с постоянным шагом по длине дуги,
+ *   точка и курс по расстоянию за O(1) (индекс = arc / step)
+ * - Поворот на кривой ищется по смене курса на отрезке ~4 блока,
+ *   а не между соседними точками
+ *
+ * НОВОЕ v1.2:
+ * - splice(): замена участка маршрута (локальный ремонт)
+ *
+ * НОВОЕ v1.1:
+ * - Проекция точки на ближайший сегмент (оконный поиск)
+ * - Точка на маршруте по длине дуги (для pure pursuit)
+ *
+ * @author BoatRoutes Team
+ * @version 1.3
+ */
+public final class RouteGeometry {
+
+    // Длина дуги, на которой ищется поворот кривой (блоки)
+    private static final double TURN_SPAN = 4.0;
+
+    private final World world;
+    private final int size;
+    // Шаг по длине дуги для маршрута из RouteSpline, 0 - обычный путь
+    private final double uniformStep;
+
+    final double[] x;
+    final double[] y;
+    final double[] z;
+    final double[] cumulative;
+    final double[] turnDistance;
+    // Курс в точке (только для маршрута из RouteSpline)
+    final double[] headingX;
+    final double[] headingZ;
+
+    public RouteGeometry(List<Location> path, double turnAngleCos) {
+        this.world = path.get(0).getWorld();
+        this.size = path.size();
+        this.uniformStep = 0;
+        this.headingX = null;
+        this.headingZ = null;
+
+        this.x = new double[size];
+        this.y = new double[size];
+        this.z = new double[size];
+        this.cumulative = new double[size];
+        this.turnDistance = new double[size];
+
+        for (int i = 0; i < size; i++) {
+            Location loc = path.get(i);
+            x[i] = loc.getX();
+            y[i] = loc.getY();
+            z[i] = loc.getZ();
+
+            if (i > 0) {
+                cumulative[i] = cumulative[i - 1] + segmentLength(i - 1);
+            }
+        }
+
+        computeTurnDistances(turnAngleCos, 1);
+    }
+
+    /**
+     * Маршрут по точкам кривой, начиная с точки from
+     */
+    public RouteGeometry(RouteSpline spline, int from, double turnAngleCos) {
+        this.world = spline.getWorld();
+        this.size = spline.size() - from;
+        this.uniformStep = spline.getStep();
+
+        this.x = Arrays.copyOfRange(spline.x, from, spline.size());
+        this.y = Arrays.copyOfRange(spline.y, from, spline.size());
+        this.z = Arrays.copyOfRange(spline.z, from, spline.size());
+        this.headingX = Arrays.copyOfRange(spline.headingX, from, spline.size());
+        this.headingZ = Arrays.copyOfRange(spline.headingZ, from, spline.size());
+        this.cumulative = new double[size];
+        this.turnDistance = new double[size];
+
+        // Длина дуги кривой, а не хорды между точками: индекс = arc / step
+        for (int i = 1; i < size; i++) {
+            cumulative[i] = i * uniformStep;
+        }
+        cumulative[size - 1] = spline.getLength() - from * uniformStep;
+
+        computeTurnDistances(turnAngleCos, Math.max(1, (int) Math.round(TURN_SPAN / uniformStep)));
+    }
+
+    /**
+     * Для каждого waypoint - расстояние до следующей смены курса больше порога.
+     * Один проход с конца пути.
+     *
+     * @param span через сколько сегментов сравнивается курс
+     */
+    private void computeTurnDistances(double turnAngleCos, int span) {
+        // Последний waypoint считаем "поворотом" (там нужно остановиться)
+        turnDistance[size - 1] = 0;
+
+        for (int i = size - 2; i >= 0; i--) {
+            double segX = x[i + 1] - x[i];
+            double segZ = z[i + 1] - z[i];
+            double segLength = segmentLength(i);
+
+            boolean turnAtNext = true;
+            if (i + 2 < size && segLength > 0) {
+                int next = Math.min(i + span, size - 2);
+                double nextX = x[next + 1] - x[next];
+                double nextZ = z[next + 1] - z[next];
+                double nextLength = segmentLength(next);
+
+                if (nextLength > 0) {
+                    double cos = (segX * nextX + segZ * nextZ) / (segLength * nextLength);
+                    turnAtNext = cos < turnAngleCos;
+                }
+            }
+
+            turnDistance[i] = segLength + (turnAtNext ? 0 : turnDistance[i + 1]);
+        }
+    }
+
+    /**
+     * Длина сегмента i -> i+1 по XZ
+     */
+    public double segmentLength(int i) {
+        double dx = x[i + 1] - x[i];
+        double dz = z[i + 1] - z[i];
+        return Math.sqrt(dx * dx + dz * dz);
+    }
+
+    /**
+     * Ищет ближайший сегмент к точке (px, pz) в окне [fromSegment, fromSegment + window].
+     * Результат: out[0] = длина дуги проекции, out[1] = квадрат расстояния до неё.
+     *
+     * @return индекс ближайшего сегмента
+     */
+    public int projectOnto(double px, double pz, int fromSegment, int window, double[] out) {
+        int last = Math.min(size - 2, fromSegment + window);
+        int best = fromSegment;
+        double bestDistSq = Double.MAX_VALUE;
+        double bestArc = cumulative[fromSegment];
+
+        for (int i = Math.max(0, fromSegment); i <= last; i++) {
+            double segX = x[i + 1] - x[i];
+            double segZ = z[i + 1] - z[i];
+            double lengthSq = segX * segX + segZ * segZ;
+
+            double t = 0;
+            if (lengthSq > 0) {
+                t = ((px - x[i]) * segX + (pz - z[i]) * segZ) / lengthSq;
+                t = Math.max(0, Math.min(1, t));
+            }
+
+            double projX = x[i] + segX * t;
+            double projZ = z[i] + segZ * t;
+            double distSq = (px - projX) * (px - projX) + (pz - projZ) * (pz - projZ);
+
+            if (distSq < bestDistSq) {
+                bestDistSq = distSq;
+                best = i;
+                bestArc = cumulative[i] + (cumulative[i + 1] - cumulative[i]) * t;
+            }
+        }
+
+        out[0] = bestArc;
+        out[1] = bestDistSq;
+        return best;
+    }
+
+    /**
+     * Точка маршрута на длине дуги arc (поиск вперёд от сегмента hint;
+     * для маршрута из RouteSpline - сразу по индексу).
+     * Результат: out[0] = x, out[1] = z.
+     *
+     * @return индекс сегмента, на котором лежит точка
+     */
+    public int pointAtDistance(double arc, int hint, double[] out) {
+        if (arc >= cumulative[size - 1]) {
+            out[0] = x[size - 1];
+            out[1] = z[size - 1];
+            return size - 2;
+        }
+
+        int i = segmentAt(arc, hint);
+
+        double segLength = cumulative[i + 1] - cumulative[i];
+        double t = segLength > 0 ? (arc - cumulative[i]) / segLength : 0;
+        t = Math.max(0, Math.min(1, t));
+
+        out[0] = x[i] + (x[i + 1] - x[i]) * t;
+        out[1] = z[i] + (z[i + 1] - z[i]) * t;
+        return i;
+    }
+
+    /**
+     * Курс маршрута на длине дуги arc (единичный вектор XZ).
+     * Результат: out[0] = x, out[1] = z.
+     *
+     * @return индекс сегмента, на котором лежит точка
+     */
+    public int headingAtDistance(double arc, int hint, double[] out) {
+        int i = segmentAt(Math.max(0, Math.min(arc, cumulative[size - 1])), hint);
+
+        double hx;
+        double hz;
+        if (headingX != null) {
+            double segLength = cumulative[i + 1] - cumulative[i];
+            double t = segLength > 0 ? Math.max(0, Math.min(1, (arc - cumulative[i]) / segLength)) : 0;
+            hx = headingX[i] + (headingX[i + 1] - headingX[i]) * t;
+            hz = headingZ[i] + (headingZ[i + 1] - headingZ[i]) * t;
+        } else {
+            hx = x[i + 1] - x[i];
+            hz = z[i + 1] - z[i];
+        }
+
+        double length = Math.sqrt(hx * hx + hz * hz);
+        if (length > 1.0E-9) {
+            out[0] = hx / length;
+            out[1] = hz / length;
+        } else {
+            out[0] = 0;
+            out[1] = 0;
+        }
+        return i;
+    }
+
+    /**
+     * Сегмент, на котором лежит длина дуги arc
+     */
+    private int segmentAt(double arc, int hint) {
+        if (uniformStep > 0) {
+            return Math.max(0, Math.min(size - 2, (int) (arc / uniformStep)));
+        }
+
+        int i = Math.max(0, Math.min(hint, size - 2));
+        while (i < size - 2 && cumulative[i + 1] < arc) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Маршрут построен по гладкой кривой (есть курс в точках)
+     */
+    public boolean isSpline() {
+        return headingX != null;
+    }
+
+    /**
+     * Новый маршрут: waypoints [0..keepUntil] + replacement + [resumeFrom..конец]
+     */
+    public RouteGeometry splice(int keepUntil, List<Location> replacement, int resumeFrom, double turnAngleCos) {
+        List<Location> path = new ArrayList<>(keepUntil + 1 + replacement.size() + (size - resumeFrom));
+
+        for (int i = 0; i <= keepUntil; i++) {
+            path.add(new Location(world, x[i], y[i], z[i]));
+        }
+        path.addAll(replacement);
+        for (int i = resumeFrom; i < size; i++) {
+            path.add(new Location(world, x[i], y[i], z[i]));
+        }
+
+        return new RouteGeometry(path, turnAngleCos);
+    }
+
+    /**
+     * Первый waypoint, до которого по маршруту не меньше arc
+     */
+    public int indexAtDistance(double arc) {
+        int low = 0;
+        int high = size - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] < arc) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * Полная длина маршрута
+     */
+    public double getLength() {
+        return cumulative[size - 1];
+    }
+
+    /**
+     * Длина пути от waypoint index до конца
+     */
+    public double remainingFrom(int index) {
+        if (index >= size) return 0;
+        return cumulative[size - 1] - cumulative[index];
+    }
+
+    public double getX(int i) {
+        return x[i];
+    }
+
+    public double getY(int i) {
+        return y[i];
+    }
+
+    public double getZ(int i) {
+        return z[i];
+    }
+}
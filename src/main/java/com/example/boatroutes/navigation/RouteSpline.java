@@ -0,0 +1,291 @@
+package com.example.boatroutes.navigation;
+
+import com.example.boatroutes.cache.WaterWorldCache;
+import com.example.boatroutes.pathfinding.PathValidator;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * RouteSpline - Гладкая кривая маршрута с параметризацией по длине дуги
+ *
+ * - Centripetal Catmull-Rom (alpha = 0.5) через waypoints сжатого пути:
+ *   без петель и острых выбросов на неравных сегментах
+ * - Кривая плотно сэмплируется и пересэмплируется с постоянным шагом step:
+ *   точка i лежит на длине дуги i * step - позиция и курс по расстоянию за O(1)
+ * - Участок кривой, задевший сушу, неизвестную воду, клетку ближе
+ *   к берегу, чем его концы (coast buffer), или мель мельче
+ *   pathfinding.min-depth, заменяется прямым отрезком - то же правило,
+ *   что у GridLineOfSight
+ * - Строится один раз при сохранении пути (PathfindingManager)
+ *
+ * @author BoatRoutes Team
+ * @version 1.0
+ */
+public final class RouteSpline {
+
+    private static final double ALPHA = 0.5;
+    private static final double MIN_KNOT = 1.0E-4;
+    private static final int BLOCKED_COST = 999;
+
+    // Плотность промежуточного сэмплирования: точек на один шаг
+    private static final int DENSITY = 4;
+
+    private final World world;
+    private final double step;
+    private final double length;
+    private final int size;
+
+    final double[] x;
+    final double[] y;
+    final double[] z;
+    // Единичный вектор курса в точке i
+    final double[] headingX;
+    final double[] headingZ;
+
+    private RouteSpline(World world, double step, double length, int size) {
+        this.world = world;
+        this.step = step;
+        this.length = length;
+        this.size = size;
+        this.x = new double[size];
+        this.y = new double[size];
+        this.z = new double[size];
+        this.headingX = new double[size];
+        this.headingZ = new double[size];
+    }
+
+    /**
+     * Строит кривую по waypoints пути
+     *
+     * @param step  расстояние по дуге между точками результата (блоки)
+     * @param validator кеш воды и глубин для проверки отклонения кривой от отрезков
+     * @return кривая или null если путь короче двух точек
+     */
+    public static RouteSpline build(List<Location> path, double step, PathValidator validator) {
+        if (path == null || path.size() < 2 || step <= 0) {
+            return null;
+        }
+
+        WaterWorldCache cache = validator.getCache();
+
+        int n = path.size();
+        double[] px = new double[n];
+        double[] py = new double[n];
+        double[] pz = new double[n];
+        for (int i = 0; i < n; i++) {
+            Location loc = path.get(i);
+            px[i] = loc.getX();
+            py[i] = loc.getY();
+            pz[i] = loc.getZ();
+        }
+
+        // ===== Плотная кривая =====
+        Dense dense = new Dense(n * DENSITY);
+        dense.add(px[0], py[0], pz[0]);
+
+        double denseStep = step / DENSITY;
+        double[] point = new double[2];
+        for (int i = 0; i < n - 1; i++) {
+            // Концы пути продолжаем отражением соседней точки
+            double x0 = i > 0 ? px[i - 1] : 2 * px[i] - px[i + 1];
+            double z0 = i > 0 ? pz[i - 1] : 2 * pz[i] - pz[i + 1];
+            double x3 = i + 2 < n ? px[i + 2] : 2 * px[i + 1] - px[i];
+            double z3 = i + 2 < n ? pz[i + 2] : 2 * pz[i + 1] - pz[i];
+
+            double chord = Math.hypot(px[i + 1] - px[i], pz[i + 1] - pz[i]);
+            int samples = Math.max(2, (int) Math.ceil(chord / denseStep));
+
+            int mark = dense.size;
+            boolean clear = true;
+            int maxCost = spanMaxCost(cache, px[i], pz[i], px[i + 1], pz[i + 1]);
+
+            for (int k = 1; k <= samples; k++) {
+                double u = (double) k / samples;
+                if (clear && k < samples) {
+                    catmullRom(x0, z0, px[i], pz[i], px[i + 1], pz[i + 1], x3, z3, u, point);
+                    clear = isPassable(validator, cache, point[0], point[1], maxCost);
+                } else {
+                    point[0] = px[i + 1];
+                    point[1] = pz[i + 1];
+                }
+                dense.add(point[0], py[i] + (py[i + 1] - py[i]) * u, point[1]);
+            }
+
+            // Кривая задела берег - этот участок идёт по прямой
+            if (!clear) {
+                dense.size = mark;
+                for (int k = 1; k <= samples; k++) {
+                    double u = (double) k / samples;
+                    dense.add(px[i] + (px[i + 1] - px[i]) * u,
+                            py[i] + (py[i + 1] - py[i]) * u,
+                            pz[i] + (pz[i + 1] - pz[i]) * u);
+                }
+            }
+        }
+
+        return resample(dense, step, path.get(0).getWorld());
+    }
+
+    /**
+     * Пересэмплирование плотной кривой с постоянным шагом по длине дуги
+     */
+    private static RouteSpline resample(Dense dense, double step, World world) {
+        double[] arc = new double[dense.size];
+        for (int i = 1; i < dense.size; i++) {
+            arc[i] = arc[i - 1] + Math.hypot(dense.x[i] - dense.x[i - 1], dense.z[i] - dense.z[i - 1]);
+        }
+        double total = arc[dense.size - 1];
+
+        int count = (int) Math.floor(total / step) + 1;
+        // Последняя точка - ровно конец пути (последний шаг короче)
+        if (total - (count - 1) * step > 1.0E-6 || count < 2) {
+            count++;
+        }
+
+        RouteSpline spline = new RouteSpline(world, step, total, count);
+
+        int j = 0;
+        for (int i = 0; i < count; i++) {
+            double s = Math.min(total, i * step);
+            while (j < dense.size - 2 && arc[j + 1] < s) {
+                j++;
+            }
+
+            double segment = arc[j + 1] - arc[j];
+            double t = segment > 0 ? Math.max(0, Math.min(1, (s - arc[j]) / segment)) : 0;
+            spline.x[i] = dense.x[j] + (dense.x[j + 1] - dense.x[j]) * t;
+            spline.y[i] = dense.y[j] + (dense.y[j + 1] - dense.y[j]) * t;
+            spline.z[i] = dense.z[j] + (dense.z[j + 1] - dense.z[j]) * t;
+        }
+
+        // Курс: центральная разность (на концах - односторонняя)
+        for (int i = 0; i < count; i++) {
+            int a = Math.max(0, i - 1);
+            int b = Math.min(count - 1, i + 1);
+            double dx = spline.x[b] - spline.x[a];
+            double dz = spline.z[b] - spline.z[a];
+            double len = Math.hypot(dx, dz);
+            if (len > 1.0E-9) {
+                spline.headingX[i] = dx / len;
+                spline.headingZ[i] = dz / len;
+            } else if (i > 0) {
+                spline.headingX[i] = spline.headingX[i - 1];
+                spline.headingZ[i] = spline.headingZ[i - 1];
+            }
+        }
+
+        return spline;
+    }
+
+    /**
+     * Точка centripetal Catmull-Rom на участке p1 -> p2 (u от 0 до 1),
+     * формулировка Barry-Goldman
+     */
+    private static void catmullRom(double x0, double z0, double x1, double z1,
+                                   double x2, double z2, double x3, double z3,
+                                   double u, double[] out) {
+        double t0 = 0;
+        double t1 = t0 + knot(x0, z0, x1, z1);
+        double t2 = t1 + knot(x1, z1, x2, z2);
+        double t3 = t2 + knot(x2, z2, x3, z3);
+        double t = t1 + (t2 - t1) * u;
+
+        double a1x = ((t1 - t) * x0 + (t - t0) * x1) / (t1 - t0);
+        double a1z = ((t1 - t) * z0 + (t - t0) * z1) / (t1 - t0);
+        double a2x = ((t2 - t) * x1 + (t - t1) * x2) / (t2 - t1);
+        double a2z = ((t2 - t) * z1 + (t - t1) * z2) / (t2 - t1);
+        double a3x = ((t3 - t) * x2 + (t - t2) * x3) / (t3 - t2);
+        double a3z = ((t3 - t) * z2 + (t - t2) * z3) / (t3 - t2);
+
+        double b1x = ((t2 - t) * a1x + (t - t0) * a2x) / (t2 - t0);
+        double b1z = ((t2 - t) * a1z + (t - t0) * a2z) / (t2 - t0);
+        double b2x = ((t3 - t) * a2x + (t - t1) * a3x) / (t3 - t1);
+        double b2z = ((t3 - t) * a2z + (t - t1) * a3z) / (t3 - t1);
+
+        out[0] = ((t2 - t) * b1x + (t - t1) * b2x) / (t2 - t1);
+        out[1] = ((t2 - t) * b1z + (t - t1) * b2z) / (t2 - t1);
+    }
+
+    private static double knot(double xa, double za, double xb, double zb) {
+        double distSq = (xb - xa) * (xb - xa) + (zb - za) * (zb - za);
+        return Math.max(MIN_KNOT, Math.pow(distSq, ALPHA * 0.5));
+    }
+
+    /**
+     * Допустимый cost на участке: худший из его концов.
+     * Концы неизвестны кешу - кривую не проверить (-1)
+     */
+    private static int spanMaxCost(WaterWorldCache cache, double xa, double za, double xb, double zb) {
+        Integer a = cache.getCost((int) Math.floor(xa), (int) Math.floor(za));
+        Integer b = cache.getCost((int) Math.floor(xb), (int) Math.floor(zb));
+        if (a == null || b == null) return -1;
+        return Math.min(BLOCKED_COST - 1, Math.max(a, b));
+    }
+
+    /**
+     * Как GridLineOfSight.isPassable: известна кешу, cost не выше maxCost,
+     * глубина не меньше pathfinding.min-depth
+     */
+    private static boolean isPassable(PathValidator validator, WaterWorldCache cache,
+                                      double px, double pz, int maxCost) {
+        if (maxCost < 0) return false;
+        int x = (int) Math.floor(px);
+        int z = (int) Math.floor(pz);
+        Integer cost = cache.getCost(x, z);
+        return cost != null && cost <= maxCost && validator.isDeepEnough(x, z);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * Шаг по длине дуги между соседними точками
+     */
+    public double getStep() {
+        return step;
+    }
+
+    /**
+     * Полная длина кривой
+     */
+    public double getLength() {
+        return length;
+    }
+
+    /**
+     * Растущий буфер точек плотной кривой
+     */
+    private static final class Dense {
+        double[] x;
+        double[] y;
+        double[] z;
+        int size;
+
+        Dense(int capacity) {
+            x = new double[Math.max(16, capacity)];
+            y = new double[x.length];
+            z = new double[x.length];
+        }
+
+        void add(double px, double py, double pz) {
+            if (size == x.length) {
+                int capacity = x.length * 2;
+                x = Arrays.copyOf(x, capacity);
+                y = Arrays.copyOf(y, capacity);
+                z = Arrays.copyOf(z, capacity);
+            }
+            x[size] = px;
+            y[size] = py;
+            z[size] = pz;
+            size++;
+        }
+    }
+}
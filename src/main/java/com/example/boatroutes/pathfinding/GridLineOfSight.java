@@ -0,0 +1,90 @@
+package com.example.boatroutes.pathfinding;
+
+import com.example.boatroutes.cache.WaterWorldCache;
+
+/**
+ * GridLineOfSight - Прямая видимость по сетке cost (только кеш)
+ *
+ * - Supercover: все клетки, которые задевает отрезок; если отрезок
+ *   проходит ровно через угол - обе клетки по сторонам угла
+ * - Клетка проходима: известна кешу, не суша, cost не выше maxCost
+ *   (coast buffer), глубина не меньше pathfinding.min-depth
+ * - Общая для сжатия пути (PathOptimizer) и any-angle поиска (Theta*)
+ *
+ * @author BoatRoutes Team
+ * @version 1.0
+ */
+final class GridLineOfSight {
+
+    private static final int BLOCKED_COST = 999;
+
+    private final PathValidator validator;
+    private final WaterWorldCache cache;
+
+    GridLineOfSight(PathValidator validator) {
+        this.validator = validator;
+        this.cache = validator.getCache();
+    }
+
+    /**
+     * Видимость между точками (x0,z0) и (x1,z1) в координатах блоков
+     *
+     * @param maxCost максимально допустимый cost клетки
+     */
+    boolean isClear(double x0, double z0, double x1, double z1, int maxCost) {
+        double dx = x1 - x0;
+        double dz = z1 - z0;
+
+        int cx = (int) Math.floor(x0);
+        int cz = (int) Math.floor(z0);
+        int endX = (int) Math.floor(x1);
+        int endZ = (int) Math.floor(z1);
+
+        int stepX = dx > 0 ? 1 : (dx < 0 ? -1 : 0);
+        int stepZ = dz > 0 ? 1 : (dz < 0 ? -1 : 0);
+
+        double tDeltaX = stepX != 0 ? 1.0 / Math.abs(dx) : Double.POSITIVE_INFINITY;
+        double tDeltaZ = stepZ != 0 ? 1.0 / Math.abs(dz) : Double.POSITIVE_INFINITY;
+        double tMaxX = stepX > 0 ? (cx + 1 - x0) / dx : (stepX < 0 ? (x0 - cx) / -dx : Double.POSITIVE_INFINITY);
+        double tMaxZ = stepZ > 0 ? (cz + 1 - z0) / dz : (stepZ < 0 ? (z0 - cz) / -dz : Double.POSITIVE_INFINITY);
+
+        if (!isPassable(cx, cz, maxCost)) return false;
+
+        int steps = Math.abs(endX - cx) + Math.abs(endZ - cz);
+        while ((cx != endX || cz != endZ) && steps-- >= 0) {
+            if (Math.abs(tMaxX - tMaxZ) < 1e-9) {
+                // Ровно через угол - лодка задевает обе соседние клетки
+                if (!isPassable(cx + stepX, cz, maxCost) || !isPassable(cx, cz + stepZ, maxCost)) {
+                    return false;
+                }
+                cx += stepX;
+                cz += stepZ;
+                tMaxX += tDeltaX;
+                tMaxZ += tDeltaZ;
+                steps--;
+            } else if (tMaxX < tMaxZ) {
+                cx += stepX;
+                tMaxX += tDeltaX;
+            } else {
+                cz += stepZ;
+                tMaxZ += tDeltaZ;
+            }
+
+            if (!isPassable(cx, cz, maxCost)) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Клетка проходима: известна кешу, не суша,
+     * не ближе к берегу чем maxCost, достаточно глубокая
+     */
+    boolean isPassable(int x, int z, int maxCost) {
+        Integer cost = cache.getCost(x, z);
+        if (cost == null || cost >= BLOCKED_COST || cost > maxCost) {
+            return false;
+        }
+        return validator.isDeepEnough(x, z);
+    }
+}
@@ -0,0 +1,317 @@
+package com.example.boatroutes.pathfinding;
+
+import com.example.boatroutes.BoatRoutesPlugin;
+import com.example.boatroutes.cache.WaterWorldCache;
+import com.example.boatroutes.port.Port;
+import com.example.boatroutes.scheduler.TaskScheduler;
+import org.bukkit.Location;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * NavAnchorManager - Якоря навигационной воды портов
+ *
+ * - Открытая вода у точки навигации считается один раз и хранится в Port
+ *   (вместе с оценкой и версией алгоритма), /port connect пропускает Phase 1
+ * - Индекс: чанк -> порты, на поиск которых влияют его блоки
+ * - WaterWorldCache сообщает о смене вода/суша; задетые порты
+ *   пересчитываются в фоне (PathfindingExecutor, BACKGROUND)
+ * - Якорь другой версии или ставший сушей считается устаревшим
+ * - Результат поиска для прежней точки навигации (порт сдвинут во время
+ *   пересчёта) отбрасывается
+ * - В потоке пула поиск и оценка идут только по WaterWorldCache
+ *   (со слоем глубин), блоки мира читаются только в resolve()
+ *
+ * @author BoatRoutes Team
+ * @version 1.0
+ */
+public class NavAnchorManager implements WaterWorldCache.CostChangeListener {
+
+    /**
+     * Версия алгоритма поиска - при изменении NavigableWaterFinder
+     * сохранённые якоря пересчитываются
+     */
+    public static final int ANCHOR_VERSION = 2;
+
+    private static final int BLOCKED_COST = 999;
+
+    private final BoatRoutesPlugin plugin;
+    private final WaterPathfinderAStar pathfinder;
+    private final PathfindingExecutor executor;
+
+    // chunk key -> имена портов (lowercase)
+    private final Map<Long, Set<String>> cellIndex = new HashMap<>();
+    // порт -> чанки (для удаления из индекса)
+    private final Map<String, long[]> portCells = new HashMap<>();
+
+    // Порты, якорь которых нужно пересчитать
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    private TaskScheduler.Task timer;
+
+    // Статистика
+    private int recomputed = 0;
+
+    public NavAnchorManager(BoatRoutesPlugin plugin, WaterPathfinderAStar pathfinder,
+                            PathfindingExecutor executor, WaterWorldCache cache) {
+        this.plugin = plugin;
+        this.pathfinder = pathfinder;
+        this.executor = executor;
+
+        cache.addChangeListener(this);
+    }
+
+    /**
+     * Индексирует все порты, ставит в очередь порты без актуального якоря
+     * и запускает периодическую обработку изменений
+     */
+    public void start() {
+        for (Port port : plugin.getPortManager().getAllPorts()) {
+            if (!port.isFullySetup()) continue;
+
+            indexPort(port);
+            if (!isValid(port)) {
+                dirty.add(port.getName().toLowerCase());
+            }
+        }
+
+        if (timer == null) {
+            long interval = Math.max(1, plugin.getConfig().getLong("navigable-water.anchor-interval-ticks", 40));
+            timer = plugin.getTaskScheduler().runGlobalTimer(task -> processDirty(), interval, interval);
+        }
+    }
+
+    public void stop() {
+        if (timer != null) {
+            timer.cancel();
+            timer = null;
+        }
+    }
+
+    // ===== ANCHORS =====
+
+    /**
+     * Якорь актуален: есть, текущей версии и всё ещё вода
+     */
+    public boolean isValid(Port port) {
+        Location anchor = port.getNavAnchor();
+        if (anchor == null || port.getNavAnchorVersion() != ANCHOR_VERSION) {
+            return false;
+        }
+
+        Boolean water = pathfinder.getValidator().getCache().isWater(anchor.getBlockX(), anchor.getBlockZ());
+        return water == null || water;
+    }
+
+    /**
+     * Якорь порта; если его нет или он устарел - считается сразу
+     * в текущем потоке (результат сохраняется)
+     *
+     * @return открытая вода у порта или null
+     */
+    public Location resolve(Port port) {
+        if (isValid(port)) {
+            return port.getNavAnchor().clone();
+        }
+
+        Anchor anchor = compute(port, false);
+        if (anchor == null) return null;
+
+        apply(port, anchor);
+        return anchor.location;
+    }
+
+    /**
+     * Пересчёт якоря в пуле поиска (команда игрока или фон), только по кешу
+     */
+    public CompletableFuture<Location> recompute(Port port, PathfindingExecutor.Priority priority) {
+        return executor.submit("anchor:" + port.getName().toLowerCase(), priority, () -> computeCached(port));
+    }
+
+    /**
+     * Пересчёт якоря в текущем потоке пула (например, внутри задачи
+     * connect-all), только по кешу; результат сохраняется в глобальном потоке
+     *
+     * @return открытая вода у порта или null
+     */
+    public Location computeCached(Port port) {
+        Anchor anchor = compute(port, true);
+        if (anchor == null) return null;
+
+        plugin.getTaskScheduler().runGlobal(() -> apply(port, anchor));
+        return anchor.location;
+    }
+
+    /**
+     * Поиск якоря; оценка берётся из данных поиска (в этом же потоке)
+     *
+     * @param cacheOnly true в потоке пула - только WaterWorldCache
+     */
+    private Anchor compute(Port port, boolean cacheOnly) {
+        Location point = port.getConvergencePoint();
+        if (point == null) return null;
+
+        NavigableWaterFinder navFinder = pathfinder.getNavFinder();
+        int[] score = new int[1];
+        Location location = cacheOnly
+                ? navFinder.findCachedNavigableWater(point, navFinder.getSearchRadius(), score)
+                : navFinder.findNavigableWater(point, navFinder.getSearchRadius(), score);
+        return location != null ? new Anchor(point.clone(), location, score[0]) : null;
+    }
+
+    private void apply(Port port, Anchor anchor) {
+        // Порт удалён, пока шёл поиск
+        if (plugin.getPortManager().getPort(port.getName()) != port) return;
+
+        // Точка навигации сменилась (portChanged) - результат для старой точки
+        if (!samePoint(anchor.point, port.getConvergencePoint())) return;
+
+        port.setNavAnchor(anchor.location.clone(), anchor.score, ANCHOR_VERSION);
+        plugin.getPortManager().savePort(port);
+        indexPort(port);
+        recomputed++;
+
+        plugin.getLogger().info("✓ Navigable water anchor for " + port.getName() + ": " +
+                anchor.location.getBlockX() + "," + anchor.location.getBlockZ() + " (score: " + anchor.score + ")");
+    }
+
+    private static boolean samePoint(Location a, Location b) {
+        return b != null && a.getWorld() == b.getWorld()
+                && a.getX() == b.getX() && a.getY() == b.getY() && a.getZ() == b.getZ();
+    }
+
+    /**
+     * Точка навигации порта изменилась
+     */
+    public void portChanged(Port port) {
+        port.clearNavAnchor();
+        if (!port.isFullySetup()) return;
+
+        indexPort(port);
+        dirty.add(port.getName().toLowerCase());
+    }
+
+    public void removePort(String portName) {
+        String name = portName.toLowerCase();
+        dirty.remove(name);
+        synchronized (cellIndex) {
+            unindexPort(name);
+        }
+    }
+
+    // ===== CACHE EVENTS =====
+
+    /**
+     * Вызывается из потока, пишущего в кеш - только помечаем порты
+     */
+    @Override
+    public void onCostChanged(int x, int z, int oldCost, int newCost) {
+        if ((oldCost >= BLOCKED_COST) == (newCost >= BLOCKED_COST)) return;
+
+        synchronized (cellIndex) {
+            Set<String> names = cellIndex.get(packCoords(x >> 4, z >> 4));
+            if (names != null) {
+                dirty.addAll(names);
+            }
+        }
+    }
+
+    private void processDirty() {
+        if (dirty.isEmpty()) return;
+
+        Iterator<String> it = dirty.iterator();
+        while (it.hasNext()) {
+            String name = it.next();
+            Port port = plugin.getPortManager().getPort(name);
+            if (port == null || !port.isFullySetup()) {
+                it.remove();
+                continue;
+            }
+
+            CompletableFuture<Location> job = recompute(port, PathfindingExecutor.Priority.BACKGROUND);
+            // Очередь поиска занята - попробуем в следующий раз
+            if (job.isCompletedExceptionally()) {
+                return;
+            }
+            it.remove();
+        }
+    }
+
+    // ===== SPATIAL INDEX =====
+
+    private void indexPort(Port port) {
+        Location point = port.getConvergencePoint();
+        if (point == null) return;
+
+        NavigableWaterFinder navFinder = pathfinder.getNavFinder();
+        int reach = navFinder.getInfluenceRadius(navFinder.getSearchRadius());
+
+        int minCx = (point.getBlockX() - reach) >> 4;
+        int maxCx = (point.getBlockX() + reach) >> 4;
+        int minCz = (point.getBlockZ() - reach) >> 4;
+        int maxCz = (point.getBlockZ() + reach) >> 4;
+
+        long[] cells = new long[(maxCx - minCx + 1) * (maxCz - minCz + 1)];
+        int n = 0;
+        for (int cx = minCx; cx <= maxCx; cx++) {
+            for (int cz = minCz; cz <= maxCz; cz++) {
+                cells[n++] = packCoords(cx, cz);
+            }
+        }
+
+        String name = port.getName().toLowerCase();
+        synchronized (cellIndex) {
+            unindexPort(name);
+            for (long cell : cells) {
+                cellIndex.computeIfAbsent(cell, k -> new HashSet<>()).add(name);
+            }
+            portCells.put(name, cells);
+        }
+    }
+
+    private void unindexPort(String name) {
+        long[] cells = portCells.remove(name);
+        if (cells == null) return;
+
+        for (long cell : cells) {
+            Set<String> names = cellIndex.get(cell);
+            if (names != null) {
+                names.remove(name);
+                if (names.isEmpty()) {
+                    cellIndex.remove(cell);
+                }
+            }
+        }
+    }
+
+    private static long packCoords(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    // ===== STATS =====
+
+    public int getRecomputedCount() {
+        return recomputed;
+    }
+
+    public int getPendingCount() {
+        return dirty.size();
+    }
+
+    /**
+     * Найденный якорь и точка навигации, от которой шёл поиск
+     */
+    private static final class Anchor {
+        final Location point;
+        final Location location;
+        final int score;
+
+        Anchor(Location point, Location location, int score) {
+            this.point = point;
+            this.location = location;
+            this.score = score;
+        }
+    }
+}
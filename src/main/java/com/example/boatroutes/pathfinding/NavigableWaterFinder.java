@@ -1,18 +1,31 @@
 package com.example.boatroutes.pathfinding;
 
 import com.example.boatroutes.BoatRoutesPlugin;
+import com.example.boatroutes.cache.WaterWorldCache;
 import org.bukkit.Location;
 import org.bukkit.World;
 
 /**
- * NavigableWaterFinder v4.0 - Поиск навигабельной воды
+ * NavigableWaterFinder v4.2 - Поиск навигабельной воды
  * 
  * Находит открытую воду для начала/конца маршрута.
  * Порт может быть в бухте, но нам нужна открытая вода
  * где лодка может свободно маневрировать.
  * 
+ * НОВОЕ v4.2:
+ * - Точка мельче pathfinding.min-depth получает 0 (глубина из слоя кеша)
+ * - Стартовая точка оценивается прямыми чтениями, сетка строится
+ *   только для спирали
+ * - Одни правила оценки для прямых чтений и сетки (WaterLookup)
+ * - findCachedNavigableWater(): только WaterWorldCache, для потока пула
+ * 
+ * НОВОЕ v4.1:
+ * - Область поиска читается один раз в WaterGrid
+ * - Площадь воды 11x11 - summed-area table, O(1)
+ * - Свободные направления - предрасчитанные длины воды, O(1)
+ * 
  * @author BoatRoutes Team
- * @version 4.0
+ * @version 4.2-MIN-DEPTH
  */
 public class NavigableWaterFinder {
     
@@ -25,6 +38,9 @@ public class NavigableWaterFinder {
     private int minClearDirections;
     private int directionDistance;
     
+    // Глубина колонки без данных - как у PathValidator для незагруженного чанка
+    private static final int UNKNOWN_DEPTH = 5;
+    
     // 8 направлений для проверки
     private static final int[][] DIRECTIONS = {
         {1, 0},   // E
@@ -60,6 +76,27 @@ public class NavigableWaterFinder {
      * @return Локация навигабельной воды или null
      */
     public Location findNavigableWater(Location start, int maxRadius) {
+        return findNavigableWater(start, maxRadius, null);
+    }
+    
+    /**
+     * То же, оценка найденной точки пишется в scoreOut[0]
+     * (посчитана по данным поиска - повторно блоки не читаются)
+     */
+    public Location findNavigableWater(Location start, int maxRadius, int[] scoreOut) {
+        return findNavigableWater(start, maxRadius, scoreOut, liveWater(start.getWorld()));
+    }
+    
+    /**
+     * То же, но только по WaterWorldCache - для потоков пула,
+     * блоки мира не читаются. Колонка без данных считается сушей
+     * (как незагруженный чанк в PathValidator).
+     */
+    public Location findCachedNavigableWater(Location start, int maxRadius, int[] scoreOut) {
+        return findNavigableWater(start, maxRadius, scoreOut, cachedWater());
+    }
+    
+    private Location findNavigableWater(Location start, int maxRadius, int[] scoreOut, WaterLookup water) {
         World world = start.getWorld();
         int seaLevel = validator.getSeaLevel();
         int startX = start.getBlockX();
@@ -68,13 +105,18 @@ public class NavigableWaterFinder {
         plugin.getLogger().info("Searching for navigable water from: " + 
             startX + "," + start.getBlockY() + "," + startZ);
         
-        // Сначала проверяем саму стартовую точку
-        if (isNavigable(startX, startZ, world)) {
+        // Сначала проверяем саму стартовую точку (прямые чтения, без сетки)
+        int startScore = getNavigabilityScore(water, startX, startZ);
+        if (startScore >= 60) {
             Location result = new Location(world, startX + 0.5, seaLevel, startZ + 0.5);
+            if (scoreOut != null) scoreOut[0] = startScore;
             plugin.getLogger().info("✓ Start point is navigable!");
             return result;
         }
         
+        // Спираль: вся область поиска + окно оценки читается один раз
+        WaterGrid grid = buildGrid(water, startX, startZ, maxRadius);
+        
         // Поиск по расширяющейся спирали
         Location best = null;
         int bestScore = 0;
@@ -86,11 +128,11 @@ public class NavigableWaterFinder {
                 int x = startX + (int)(radius * Math.cos(rad));
                 int z = startZ + (int)(radius * Math.sin(rad));
                 
-                if (!validator.isNavigableWater(x, seaLevel, z, world)) {
+                if (!grid.isWater(x, z)) {
                     continue;
                 }
                 
-                int score = getNavigabilityScore(x, z, world);
+                int score = getNavigabilityScore(grid, x, z);
                 
                 if (score > bestScore) {
                     bestScore = score;
@@ -98,6 +140,7 @@ public class NavigableWaterFinder {
                     
                     // Если нашли отличную точку - сразу возвращаем
                     if (score >= 80) {
+                        if (scoreOut != null) scoreOut[0] = score;
                         plugin.getLogger().info("✓ Found navigable water at: " + 
                             x + "," + seaLevel + "," + z + " (score: " + score + ")");
                         return best;
@@ -106,6 +149,8 @@ public class NavigableWaterFinder {
             }
         }
         
+        if (scoreOut != null) scoreOut[0] = bestScore;
+        
         if (best != null) {
             plugin.getLogger().info("✓ Found navigable water at: " + 
                 best.getBlockX() + "," + seaLevel + "," + best.getBlockZ() + 
@@ -118,52 +163,107 @@ public class NavigableWaterFinder {
     }
     
     /**
-     * Проверяет, является ли точка навигабельной
+     * Сетка вокруг точки: радиус поиска + окно 11x11 + лучи направлений
      */
-    private boolean isNavigable(int x, int z, World world) {
-        return getNavigabilityScore(x, z, world) >= 60;
+    private WaterGrid buildGrid(WaterLookup water, int x, int z, int radius) {
+        int reach = getInfluenceRadius(radius);
+        return WaterGrid.build(water, x - reach, z - reach, x + reach, z + reach, directionDistance);
+    }
+    
+    /**
+     * Прямые чтения через PathValidator (кеш, иначе блоки мира)
+     */
+    private WaterLookup liveWater(World world) {
+        int seaLevel = validator.getSeaLevel();
+        return new WaterLookup() {
+            @Override
+            public boolean isWater(int x, int z) {
+                return validator.isNavigableWater(x, seaLevel, z, world);
+            }
+            
+            @Override
+            public int getDepth(int x, int z) {
+                return validator.getWaterDepth(x, z, world);
+            }
+        };
+    }
+    
+    /**
+     * Только кеш: слой воды и слой глубин WaterWorldCache
+     */
+    private WaterLookup cachedWater() {
+        WaterWorldCache cache = validator.getCache();
+        return new WaterLookup() {
+            @Override
+            public boolean isWater(int x, int z) {
+                Boolean water = cache.isWater(x, z);
+                return water != null && water;
+            }
+            
+            @Override
+            public int getDepth(int x, int z) {
+                int depth = cache.getDepth(x, z);
+                return depth >= 0 ? depth : UNKNOWN_DEPTH;
+            }
+        };
+    }
+    
+    /**
+     * Как далеко от точки поиска блоки влияют на результат
+     * (радиус спирали + окно оценки / лучи направлений)
+     */
+    public int getInfluenceRadius(int radius) {
+        return radius + Math.max(5, directionDistance) + 1;
+    }
+    
+    public int getSearchRadius() {
+        return searchRadius;
     }
     
     /**
      * Вычисляет "навигабельность" точки (0-100)
      * 
+     * Одна точка - прямые чтения (~280 блоков) без сетки:
+     * WaterGrid окупается только для многих точек поиска
+     * 
      * @return Оценка от 0 (непроходимо) до 100 (отлично)
      */
     public int getNavigabilityScore(int x, int z, World world) {
-        int seaLevel = validator.getSeaLevel();
-        
+        return getNavigabilityScore(liveWater(world), x, z);
+    }
+    
+    /**
+     * Правила оценки - одни для прямых чтений и для сетки
+     */
+    private int getNavigabilityScore(WaterLookup water, int x, int z) {
         // Проверка 1: Сама точка должна быть водой
-        if (!validator.isNavigableWater(x, seaLevel, z, world)) {
+        if (!water.isWater(x, z)) {
+            return 0;
+        }
+        
+        // Мель - лодка не пройдёт
+        int depth = water.getDepth(x, z);
+        if (depth < validator.getMinDepth()) {
             return 0;
         }
         
         int score = 0;
         
-        // Проверка 2: Площадь воды вокруг (10x10)
-        int waterCount = 0;
-        int totalCount = 0;
-        for (int dx = -5; dx <= 5; dx++) {
-            for (int dz = -5; dz <= 5; dz++) {
-                totalCount++;
-                if (validator.isNavigableWater(x + dx, seaLevel, z + dz, world)) {
-                    waterCount++;
-                }
-            }
-        }
-        int areaPercent = (waterCount * 100) / totalCount;
+        // Проверка 2: Площадь воды вокруг (11x11)
+        int waterCount = water.countWater(x - 5, z - 5, x + 5, z + 5);
+        int areaPercent = (waterCount * 100) / 121;
         score += (areaPercent >= minWaterArea) ? 40 : (areaPercent / 2);
         
-        // Проверка 3: Количество свободных направлений
+        // Проверка 3: Свободные направления (луч обрывается на первой суше)
         int clearDirections = 0;
-        for (int[] dir : DIRECTIONS) {
-            if (isDirectionClear(x, z, dir[0], dir[1], directionDistance, world)) {
+        for (int d = 0; d < WaterLookup.DIRECTIONS.length; d++) {
+            if (water.clearRun(x, z, d, directionDistance) >= directionDistance) {
                 clearDirections++;
             }
         }
         score += (clearDirections >= minClearDirections) ? 40 : (clearDirections * 5);
         
         // Проверка 4: Глубина воды
-        int depth = validator.getWaterDepth(x, z, world);
         score += Math.min(depth * 4, 20);
         
         return Math.min(score, 100);
@@ -176,25 +276,6 @@ public class NavigableWaterFinder {
         return getNavigabilityScore(loc.getBlockX(), loc.getBlockZ(), loc.getWorld());
     }
     
-    /**
-     * Проверяет, свободно ли направление от препятствий
-     */
-    private boolean isDirectionClear(int startX, int startZ, int dirX, int dirZ, 
-                                     int distance, World world) {
-        int seaLevel = validator.getSeaLevel();
-        
-        for (int i = 1; i <= distance; i++) {
-            int x = startX + dirX * i;
-            int z = startZ + dirZ * i;
-            
-            if (!validator.isNavigableWater(x, seaLevel, z, world)) {
-                return false;
-            }
-        }
-        
-        return true;
-    }
-    
     /**
      * Находит направление к ближайшей открытой воде
      * (для выхода из бухты)
@@ -0,0 +1,266 @@
+package com.example.boatroutes.pathfinding;
+
+import com.example.boatroutes.BoatRoutesPlugin;
+import com.example.boatroutes.port.Port;
+import com.example.boatroutes.storage.RouteData;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * NetworkBuilder - Пакетное соединение портов (/port connect-all)
+ *
+ * - Навигационная вода (сохранённый якорь порта) и pre-cache -
+ *   один раз на порт, а не на каждую пару; недостающие якоря считаются
+ *   по кешу в задаче пула, pre-cache - в потоке региона якоря
+ * - От каждого порта-источника один multi-target Dijkstra до всех его
+ *   целей (вместо отдельного A* на каждую пару), источники по очереди
+ *   в одной задаче пула - размер сети не упирается в очередь поиска
+ * - Пара A-B считается один раз (цели источника - порты после него в списке)
+ * - Все найденные пути сохраняются вместе одной операцией RouteStore
+ *
+ * @author BoatRoutes Team
+ * @version 1.0
+ */
+public class NetworkBuilder {
+
+    private final BoatRoutesPlugin plugin;
+    private final PathfindingManager manager;
+
+    private volatile boolean running;
+
+    public NetworkBuilder(BoatRoutesPlugin plugin, PathfindingManager manager) {
+        this.plugin = plugin;
+        this.manager = manager;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Соединяет порты, между которыми ещё нет пути
+     *
+     * @param only если не null - только пары с этим портом
+     */
+    public void connectAll(Port only, Player player) {
+        if (running) {
+            player.sendMessage("§e⚠ Connect-all is already running");
+            return;
+        }
+
+        List<Port> ports = new ArrayList<>();
+        for (Port port : plugin.getPortManager().getAllPorts()) {
+            if (port.isFullySetup()) {
+                ports.add(port);
+            }
+        }
+
+        // Источник -> цели без пути
+        Map<Port, List<Port>> jobs = new LinkedHashMap<>();
+        int pairs = 0;
+        for (int i = 0; i < ports.size(); i++) {
+            for (int j = i + 1; j < ports.size(); j++) {
+                Port a = ports.get(i);
+                Port b = ports.get(j);
+                if (only != null && a != only && b != only) continue;
+                if (manager.hasPath(a.getName(), b.getName())) continue;
+
+                // Один порт - один Dijkstra: источником делаем выбранный порт
+                Port source = (only != null) ? only : a;
+                Port target = (source == a) ? b : a;
+                jobs.computeIfAbsent(source, k -> new ArrayList<>()).add(target);
+                pairs++;
+            }
+        }
+
+        if (pairs == 0) {
+            player.sendMessage("§a✓ All ports are already connected");
+            return;
+        }
+
+        player.sendMessage("");
+        player.sendMessage("§6⚓ BoatRoutes Connect-all");
+        player.sendMessage("§7Pairs to connect: §f" + pairs + " §7from §f" + jobs.size() + " §7source ports");
+
+        // ===== PHASE 1: навигационная вода, один раз на порт =====
+        running = true;
+        long startTime = System.currentTimeMillis();
+
+        Set<Port> involved = new LinkedHashSet<>();
+        for (Map.Entry<Port, List<Port>> job : jobs.entrySet()) {
+            involved.add(job.getKey());
+            involved.addAll(job.getValue());
+        }
+
+        // Актуальные якоря берём сразу, остальные считаются в задаче connect-all
+        NavAnchorManager anchorManager = manager.getAnchorManager();
+        Map<Port, Location> navPoints = new HashMap<>();
+        List<Port> missing = new ArrayList<>();
+        for (Port port : involved) {
+            if (anchorManager.isValid(port)) {
+                navPoints.put(port, port.getNavAnchor().clone());
+            } else {
+                missing.add(port);
+            }
+        }
+
+        int totalPairs = pairs;
+        boolean queued = manager.getExecutor().execute(PathfindingExecutor.Priority.INTERACTIVE, () -> {
+            for (Port port : missing) {
+                Location nav = anchorManager.computeCached(port);
+                if (nav != null) {
+                    navPoints.put(port, nav);
+                }
+            }
+
+            plugin.getTaskScheduler().runAtEntity(player, () ->
+                    player.sendMessage("§a✓ Navigable water ready §7(" + navPoints.size() + "/" +
+                            involved.size() + " ports, " + (System.currentTimeMillis() - startTime) + "ms)"));
+
+            preCache(navPoints, () -> queueSearch(jobs, navPoints, involved.size(), totalPairs, startTime, player));
+        });
+
+        if (!queued) {
+            running = false;
+            player.sendMessage("§c✗ Pathfinding queue is full, try again later");
+        }
+    }
+
+    /**
+     * PHASE 2: pre-cache вокруг каждого якоря в потоке его региона
+     * (блоки мира читаются только там), затем onDone
+     */
+    private void preCache(Map<Port, Location> navPoints, Runnable onDone) {
+        if (navPoints.isEmpty()) {
+            onDone.run();
+            return;
+        }
+
+        AtomicInteger remaining = new AtomicInteger(navPoints.size());
+        for (Location nav : navPoints.values()) {
+            plugin.getTaskScheduler().runAtLocation(nav, () -> {
+                try {
+                    preCache(nav);
+                } finally {
+                    if (remaining.decrementAndGet() == 0) {
+                        onDone.run();
+                    }
+                }
+            });
+        }
+    }
+
+    private void queueSearch(Map<Port, List<Port>> jobs, Map<Port, Location> navPoints, int portCount,
+                             int totalPairs, long startTime, Player player) {
+        boolean queued = manager.getExecutor().execute(PathfindingExecutor.Priority.INTERACTIVE,
+                () -> search(jobs, navPoints, portCount, totalPairs, startTime, player));
+
+        if (!queued) {
+            running = false;
+            plugin.getTaskScheduler().runAtEntity(player, () ->
+                    player.sendMessage("§c✗ Pathfinding queue is full, try again later"));
+        }
+    }
+
+    /**
+     * PHASE 3: multi-target Dijkstra от каждого источника по очереди
+     * (одна задача пула - очередь поиска не переполняется на больших сетях)
+     */
+    private void search(Map<Port, List<Port>> jobs, Map<Port, Location> navPoints, int portCount,
+                        int totalPairs, long startTime, Player player) {
+        int margin = plugin.getConfig().getInt("pathfinding.connect-all.margin", 64);
+        int maxIterations = plugin.getConfig().getInt("pathfinding.connect-all.max-iterations", 2000000);
+
+        List<RouteData> found = new ArrayList<>();
+        int noWater = 0;
+        int sourcesFailed = 0;
+        int sourcesDone = 0;
+
+        try {
+            for (Map.Entry<Port, List<Port>> job : jobs.entrySet()) {
+                Port source = job.getKey();
+                Location navStart = navPoints.get(source);
+
+                List<Port> targets = new ArrayList<>();
+                List<Location> targetPoints = new ArrayList<>();
+                for (Port target : job.getValue()) {
+                    Location navEnd = navPoints.get(target);
+                    if (navStart == null || navEnd == null || navEnd.getWorld() != navStart.getWorld()) {
+                        noWater++;
+                        continue;
+                    }
+                    targets.add(target);
+                    targetPoints.add(navEnd);
+                }
+
+                if (!targets.isEmpty()) {
+                    try {
+                        List<List<Location>> paths = manager.getPathfinder().findPathsToTargets(
+                                navStart, targetPoints, navStart.getWorld(), margin, maxIterations,
+                                reached -> plugin.getTaskScheduler().runAtEntity(player, () ->
+                                        player.sendActionBar("§6⚓ " + source.getName() + ": §e" +
+                                                reached + "/" + targetPoints.size() + " §7targets reached")));
+
+                        for (int i = 0; i < targets.size(); i++) {
+                            List<Location> path = paths.get(i);
+                            if (path != null && path.size() >= 2) {
+                                found.add(new RouteData(source.getName(), targets.get(i).getName(), path));
+                            }
+                        }
+                    } catch (RuntimeException e) {
+                        sourcesFailed++;
+                        plugin.getLogger().warning("Connect-all search from " + source.getName() +
+                                " failed: " + e.getMessage());
+                    }
+                }
+
+                int done = ++sourcesDone;
+                int foundSoFar = found.size();
+                plugin.getTaskScheduler().runAtEntity(player, () ->
+                        player.sendMessage("§7[" + done + "/" + jobs.size() + "] §e" + source.getName() +
+                                "§7: routes found so far §f" + foundSoFar + "/" + totalPairs));
+            }
+        } finally {
+            // Все пути одной записью (пары, соединённые за это время
+            // через /port connect, не перезаписываются - см. saveRoutes)
+            int saved = found.isEmpty() ? 0 : manager.saveRoutes(found);
+            running = false;
+
+            int notConnected = totalPairs - found.size();
+            int pairsWithoutWater = noWater;
+            int failedSources = sourcesFailed;
+            long totalTime = System.currentTimeMillis() - startTime;
+            plugin.getTaskScheduler().runAtEntity(player, () -> {
+                player.sendMessage("");
+                player.sendMessage("§a✓ CONNECT-ALL COMPLETE");
+                player.sendMessage("§7Routes created: §f" + saved + "/" + totalPairs);
+                if (navPoints.size() < portCount) {
+                    player.sendMessage("§7Ports without navigable water: §c" + (portCount - navPoints.size()) +
+                            " §7(" + pairsWithoutWater + " pairs, see §e/port find-nav§7)");
+                }
+                if (failedSources > 0) {
+                    player.sendMessage("§7Source searches failed: §c" + failedSources + " §7(see server log)");
+                }
+                if (notConnected > 0) {
+                    player.sendMessage("§7Not connected: §c" + notConnected +
+                            " §7(use §e/port connect <A> <B> §7for details)");
+                }
+                player.sendMessage("§7Total time: §a" + (totalTime / 1000.0) + "s");
+                player.sendMessage("");
+            });
+        }
+    }
+
+    /**
+     * Pre-cache вокруг якоря навигационной воды порта (поток региона якоря)
+     */
+    private void preCache(Location nav) {
+        int localRadius = 50;
+        manager.getPathfinder().getValidator().preCacheRegion(
+                new Location(nav.getWorld(), nav.getBlockX() - localRadius, 0, nav.getBlockZ() - localRadius),
+                new Location(nav.getWorld(), nav.getBlockX() + localRadius, 255, nav.getBlockZ() + localRadius));
+    }
+}
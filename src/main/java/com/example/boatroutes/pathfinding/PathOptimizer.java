@@ -1,25 +1,43 @@
 package com.example.boatroutes.pathfinding;
 
+import com.example.boatroutes.cache.WaterWorldCache;
 import org.bukkit.Location;
 
 import java.util.ArrayList;
 import java.util.List;
 
 /**
- * PathOptimizer v4.0 - Оптимизация пути
+ * PathOptimizer v5.0 - Оптимизация пути
  * 
  * Уменьшает количество waypoints используя алгоритм line-of-sight.
  * Путь из 500 точек может быть сокращён до 20-30.
  * 
+ * НОВОЕ v5.0 (сжатие пути перед сохранением):
+ * - Line-of-sight по сетке cost: supercover-линия проверяет КАЖДУЮ клетку,
+ *   через которую проходит отрезок (на углах - обе соседние клетки)
+ * - Coast buffer: срезка не может пройти ближе к берегу (cost выше),
+ *   чем заменяемый участок исходного пути; мель тоже запрещена
+ * - Greedy-farthest за один проход: от опорной точки идём вперёд,
+ *   пока видимость есть (раньше - O(n²) проверок до каждой следующей точки)
+ * - densify(): полный путь по блокам восстанавливается из сжатого по запросу
+ * 
  * @author BoatRoutes Team
- * @version 4.0
+ * @version 5.0-COMPACTION
  */
 public class PathOptimizer {
     
     private final PathValidator validator;
+    private final WaterWorldCache cache;
+    private final GridLineOfSight lineOfSight;
+    
+    // Максимальная длина сегмента сжатого пути (блоки)
+    private final double maxSegment;
     
-    public PathOptimizer(PathValidator validator) {
+    public PathOptimizer(PathValidator validator, double maxSegment) {
         this.validator = validator;
+        this.cache = validator.getCache();
+        this.lineOfSight = new GridLineOfSight(validator);
+        this.maxSegment = maxSegment;
     }
     
     /**
@@ -41,15 +59,24 @@ public class PathOptimizer {
         optimized.add(path.get(0));
         
         int currentIndex = 0;
+        double maxSegmentSq = maxSegment * maxSegment;
         
         while (currentIndex < path.size() - 1) {
-            // Ищем самую дальнюю точку, до которой есть прямой путь
+            Location anchor = path.get(currentIndex);
+            
+            // Самая дальняя точка, до которой есть прямой путь
             int farthest = currentIndex + 1;
+            // Самый "береговой" cost на заменяемом участке
+            int allowedCost = getCost(path.get(farthest));
             
             for (int i = currentIndex + 2; i < path.size(); i++) {
-                if (hasLineOfSight(path.get(currentIndex), path.get(i))) {
-                    farthest = i;
-                }
+                Location candidate = path.get(i);
+                allowedCost = Math.max(allowedCost, getCost(candidate));
+                
+                if (distanceSq(anchor, candidate) > maxSegmentSq) break;
+                if (!hasLineOfSight(anchor, candidate, allowedCost)) break;
+                
+                farthest = i;
             }
             
             // Добавляем эту точку
@@ -61,31 +88,59 @@ public class PathOptimizer {
     }
     
     /**
-     * Проверяет прямую видимость между двумя точками.
-     * "Видимость" означает, что вся линия проходит через воду.
+     * Проверяет прямую видимость между двумя точками по сетке cost.
+     * Supercover: все клетки, которые задевает отрезок; если отрезок
+     * проходит ровно через угол - обе клетки по сторонам угла.
+     * 
+     * @param maxCost максимально допустимый cost клетки (coast buffer)
      */
-    private boolean hasLineOfSight(Location from, Location to) {
-        double dx = to.getX() - from.getX();
-        double dz = to.getZ() - from.getZ();
-        double distance = Math.sqrt(dx * dx + dz * dz);
-        
-        // Для очень близких точек - всегда true
-        if (distance < 3) return true;
+    public boolean hasLineOfSight(Location from, Location to, int maxCost) {
+        return lineOfSight.isClear(from.getX(), from.getZ(), to.getX(), to.getZ(), maxCost);
+    }
+    
+    private int getCost(Location loc) {
+        Integer cost = cache.getCost(loc.getBlockX(), loc.getBlockZ());
+        // Точки без cost (кеш очищен) буфер не расширяют - LOS через неё и так не пройдёт
+        return cost != null ? cost : 1;
+    }
+    
+    private static double distanceSq(Location a, Location b) {
+        double dx = b.getX() - a.getX();
+        double dz = b.getZ() - a.getZ();
+        return dx * dx + dz * dz;
+    }
+    
+    /**
+     * Восстанавливает путь по блокам (один waypoint на блок, 8-связно)
+     * из сжатого пути - для визуализации и экспорта
+     */
+    public List<Location> densify(List<Location> path) {
+        if (path == null || path.size() < 2) {
+            return path;
+        }
         
-        // Проверяем точки вдоль линии каждые 2 блока
-        int steps = (int) Math.ceil(distance / 2);
+        List<Location> dense = new ArrayList<>();
+        dense.add(path.get(0).clone());
         
-        for (int i = 1; i < steps; i++) {
-            double t = (double) i / steps;
-            int x = (int) (from.getX() + dx * t);
-            int z = (int) (from.getZ() + dz * t);
+        for (int i = 0; i < path.size() - 1; i++) {
+            Location a = path.get(i);
+            Location b = path.get(i + 1);
+            
+            double dx = b.getX() - a.getX();
+            double dz = b.getZ() - a.getZ();
+            int steps = (int) Math.ceil(Math.max(Math.abs(dx), Math.abs(dz)));
             
-            if (!validator.isNavigableWater(x, validator.getSeaLevel(), z, from.getWorld())) {
-                return false;
+            for (int s = 1; s < steps; s++) {
+                double t = (double) s / steps;
+                dense.add(new Location(a.getWorld(),
+                        Math.floor(a.getX() + dx * t) + 0.5,
+                        a.getY(),
+                        Math.floor(a.getZ() + dz * t) + 0.5));
             }
+            dense.add(b.clone());
         }
         
-        return true;
+        return dense;
     }
     
     /**
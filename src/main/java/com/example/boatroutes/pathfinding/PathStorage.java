@@ -1,6 +1,10 @@
 package com.example.boatroutes.pathfinding;
 
 import com.example.boatroutes.BoatRoutesPlugin;
+import com.example.boatroutes.storage.RouteData;
+import com.example.boatroutes.storage.RouteInfo;
+import com.example.boatroutes.storage.RouteStore;
+import com.example.boatroutes.storage.WaypointCache;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.World;
@@ -10,146 +14,258 @@ import org.bukkit.configuration.file.YamlConfiguration;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.zip.CRC32;
 
 /**
- * PathStorage v4.0 - Сохранение и загрузка путей
- * 
- * Сохраняет рассчитанные пути в routes.yml для мгновенной загрузки.
- * Путь рассчитывается один раз и кешируется навсегда.
- * 
+ * PathStorage v5.0 - Шардированное хранилище путей
+ *
+ * НОВОЕ v5.0:
+ * - Каждый путь в отдельном файле routes/<key>.yml
+ * - Маленький индекс routes/index.yml (endpoints, waypoints, length, checksum)
+ * - При старте читается ТОЛЬКО индекс
+ * - Waypoints загружаются лениво при первом loadPath()
+ * - Ограниченный LRU кеш путей в памяти (cache.route-cache-size)
+ * - Автоматическая миграция старого routes.yml
+ *
  * @author BoatRoutes Team
- * @version 4.0
+ * @version 5.0-SHARDED
  */
-public class PathStorage {
-    
+public class PathStorage implements RouteStore {
+
     private final BoatRoutesPlugin plugin;
-    private final File routesFile;
-    private FileConfiguration routesConfig;
-    
-    // Кеш путей в памяти
-    private final Map<String, List<Location>> pathCache = new HashMap<>();
-    
+    private final File routesDir;
+    private final File indexFile;
+    private final File legacyFile;
+
+    // Индекс всех путей: key -> метаданные (без waypoints!)
+    private final Map<String, RouteInfo> index = new LinkedHashMap<>();
+
+    // LRU кеш waypoints (ограниченный)
+    private final WaypointCache pathCache;
+
     public PathStorage(BoatRoutesPlugin plugin) {
         this.plugin = plugin;
-        this.routesFile = new File(plugin.getDataFolder(), "routes.yml");
-        
-        loadRoutesFile();
+        this.routesDir = new File(plugin.getDataFolder(), "routes");
+        this.indexFile = new File(routesDir, "index.yml");
+        this.legacyFile = new File(plugin.getDataFolder(), "routes.yml");
+
+        this.pathCache = new WaypointCache(plugin.getConfig().getInt("cache.route-cache-size", 64));
     }
-    
+
     /**
-     * Загружает файл routes.yml
+     * Создаёт ключ для пути между портами
      */
-    private void loadRoutesFile() {
-        if (!routesFile.exists()) {
-            try {
-                routesFile.getParentFile().mkdirs();
-                routesFile.createNewFile();
-            } catch (IOException e) {
-                plugin.getLogger().warning("Could not create routes.yml: " + e.getMessage());
-            }
+    private String createPathKey(String from, String to) {
+        return RouteInfo.keyOf(from, to);
+    }
+
+    private File getRouteFile(String key) {
+        return new File(routesDir, key + ".yml");
+    }
+
+    // ===== ИНДЕКС =====
+
+    /**
+     * Загружает индекс routes/index.yml (без waypoints!)
+     */
+    private void loadIndex() {
+        index.clear();
+
+        if (!indexFile.exists()) {
+            return;
+        }
+
+        FileConfiguration indexConfig = YamlConfiguration.loadConfiguration(indexFile);
+        ConfigurationSection routesSection = indexConfig.getConfigurationSection("routes");
+        if (routesSection == null) {
+            return;
+        }
+
+        for (String key : routesSection.getKeys(false)) {
+            ConfigurationSection section = routesSection.getConfigurationSection(key);
+            if (section == null) continue;
+
+            index.put(key, new RouteInfo(
+                    key,
+                    section.getString("from"),
+                    section.getString("to"),
+                    section.getInt("waypoints"),
+                    section.getDouble("length"),
+                    section.getLong("checksum"),
+                    section.getLong("created")
+            ));
         }
-        
-        routesConfig = YamlConfiguration.loadConfiguration(routesFile);
     }
-    
+
     /**
-     * Сохраняет routes.yml на диск
+     * Сохраняет индекс на диск
      */
-    private void saveRoutesFile() {
+    private void saveIndex() {
+        FileConfiguration indexConfig = new YamlConfiguration();
+        indexConfig.set("meta.version", "5.0");
+        indexConfig.set("meta.routes", index.size());
+
+        for (RouteInfo info : index.values()) {
+            String path = "routes." + info.key;
+            indexConfig.set(path + ".from", info.from);
+            indexConfig.set(path + ".to", info.to);
+            indexConfig.set(path + ".waypoints", info.waypoints);
+            indexConfig.set(path + ".length", info.length);
+            indexConfig.set(path + ".checksum", info.checksum);
+            indexConfig.set(path + ".created", info.created);
+        }
+
         try {
-            routesConfig.save(routesFile);
+            routesDir.mkdirs();
+            indexConfig.save(indexFile);
         } catch (IOException e) {
-            plugin.getLogger().warning("Could not save routes.yml: " + e.getMessage());
+            plugin.getLogger().warning("Could not save routes/index.yml: " + e.getMessage());
         }
     }
-    
+
+    // ===== ПУТИ =====
+
     /**
-     * Создаёт ключ для пути между портами
+     * Сохраняет путь между портами
      */
-    private String createPathKey(String from, String to) {
-        // Сортируем имена для консистентности (A->B = B->A)
-        if (from.compareTo(to) > 0) {
-            String temp = from;
-            from = to;
-            to = temp;
+    @Override
+    public synchronized void savePath(String fromPort, String toPort, List<Location> path) {
+        if (writeRoute(fromPort, toPort, path, System.currentTimeMillis())) {
+            saveIndex();
         }
-        return from + "_to_" + to;
     }
-    
+
     /**
-     * Сохраняет путь между портами
+     * Заменяет путь, если индекс не изменился после чтения expected
+     */
+    @Override
+    public synchronized boolean replacePath(String fromPort, String toPort, RouteInfo expected, List<Location> path) {
+        if (!expected.isSameVersion(index.get(createPathKey(fromPort, toPort)))) {
+            return false;
+        }
+        if (!writeRoute(fromPort, toPort, path, System.currentTimeMillis())) {
+            return false;
+        }
+        saveIndex();
+        return true;
+    }
+
+    /**
+     * Сохраняет несколько путей, индекс пишется один раз
+     */
+    @Override
+    public synchronized void savePaths(List<RouteData> routes) {
+        int saved = 0;
+        for (RouteData route : routes) {
+            if (writeRoute(route.fromPort, route.toPort, route.path, route.createdOrNow())) {
+                saved++;
+            }
+        }
+
+        if (saved > 0) {
+            saveIndex();
+        }
+    }
+
+    /**
+     * Пишет шард пути и обновляет индекс в памяти
      */
-    public void savePath(String fromPort, String toPort, List<Location> path) {
+    private boolean writeRoute(String fromPort, String toPort, List<Location> path, long created) {
         String key = createPathKey(fromPort, toPort);
-        
-        // Сохраняем в кеш
-        pathCache.put(key, new ArrayList<>(path));
-        
-        // Сохраняем в YAML
-        ConfigurationSection pathSection = routesConfig.createSection("routes." + key);
-        
-        pathSection.set("from", fromPort);
-        pathSection.set("to", toPort);
-        pathSection.set("waypoints", path.size());
-        pathSection.set("created", System.currentTimeMillis());
-        
+
         // Сохраняем waypoints как список строк
         List<String> waypointStrings = new ArrayList<>();
         for (Location loc : path) {
-            String waypointStr = String.format("%s;%.2f;%.2f;%.2f",
-                loc.getWorld().getName(),
-                loc.getX(),
-                loc.getY(),
-                loc.getZ());
-            waypointStrings.add(waypointStr);
+            waypointStrings.add(formatLocation(loc));
+        }
+
+        FileConfiguration routeConfig = new YamlConfiguration();
+        routeConfig.set("from", fromPort);
+        routeConfig.set("to", toPort);
+        routeConfig.set("created", created);
+        routeConfig.set("path", waypointStrings);
+
+        try {
+            routesDir.mkdirs();
+            routeConfig.save(getRouteFile(key));
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not save route " + key + ": " + e.getMessage());
+            return false;
         }
-        pathSection.set("path", waypointStrings);
-        
-        saveRoutesFile();
-        
+
+        index.put(key, new RouteInfo(key, fromPort, toPort, path.size(),
+                RouteInfo.calculateLength(path), checksum(waypointStrings), created));
+
+        pathCache.put(key, new ArrayList<>(path));
+
         plugin.getLogger().info("Saved path: " + key + " (" + path.size() + " waypoints)");
+        return true;
     }
-    
+
     /**
-     * Загружает путь между портами
+     * Загружает путь между портами (лениво, из шарда)
      */
-    public List<Location> loadPath(String fromPort, String toPort) {
+    @Override
+    public synchronized List<Location> loadPath(String fromPort, String toPort) {
         String key = createPathKey(fromPort, toPort);
-        
+
         // Сначала проверяем кеш
-        if (pathCache.containsKey(key)) {
-            return new ArrayList<>(pathCache.get(key));
+        List<Location> cached = pathCache.get(key);
+        if (cached != null) {
+            return new ArrayList<>(cached);
+        }
+
+        RouteInfo info = index.get(key);
+        if (info == null) {
+            return null;
         }
-        
-        // Загружаем из YAML
-        ConfigurationSection pathSection = routesConfig.getConfigurationSection("routes." + key);
-        if (pathSection == null) {
+
+        File routeFile = getRouteFile(key);
+        if (!routeFile.exists()) {
+            plugin.getLogger().warning("Route file missing: " + routeFile.getName());
             return null;
         }
-        
-        List<String> waypointStrings = pathSection.getStringList("path");
+
+        FileConfiguration routeConfig = YamlConfiguration.loadConfiguration(routeFile);
+        List<String> waypointStrings = routeConfig.getStringList("path");
         if (waypointStrings.isEmpty()) {
             return null;
         }
-        
+
+        if (checksum(waypointStrings) != info.checksum) {
+            plugin.getLogger().warning("Checksum mismatch for route " + key + " - file was modified");
+        }
+
         List<Location> path = new ArrayList<>();
-        
         for (String waypointStr : waypointStrings) {
             Location loc = parseLocation(waypointStr);
             if (loc != null) {
                 path.add(loc);
             }
         }
-        
-        // Сохраняем в кеш
-        if (!path.isEmpty()) {
-            pathCache.put(key, path);
+
+        if (path.isEmpty()) {
+            return null;
         }
-        
-        return path;
+
+        pathCache.put(key, path);
+
+        return new ArrayList<>(path);
     }
-    
+
+    /**
+     * Форматирует Location в строку "world;x;y;z"
+     */
+    private String formatLocation(Location loc) {
+        return String.format(Locale.ROOT, "%s;%.2f;%.2f;%.2f",
+                loc.getWorld().getName(),
+                loc.getX(),
+                loc.getY(),
+                loc.getZ());
+    }
+
     /**
      * Парсит строку координат в Location
      */
@@ -157,144 +273,226 @@ public class PathStorage {
         try {
             String[] parts = str.split(";");
             if (parts.length < 4) return null;
-            
+
             World world = Bukkit.getWorld(parts[0]);
             if (world == null) {
                 // Пробуем найти первый доступный мир
                 world = Bukkit.getWorlds().get(0);
             }
-            
-            double x = Double.parseDouble(parts[1]);
-            double y = Double.parseDouble(parts[2]);
-            double z = Double.parseDouble(parts[3]);
-            
+
+            double x = Double.parseDouble(parts[1].replace(',', '.'));
+            double y = Double.parseDouble(parts[2].replace(',', '.'));
+            double z = Double.parseDouble(parts[3].replace(',', '.'));
+
             return new Location(world, x, y, z);
         } catch (Exception e) {
             return null;
         }
     }
-    
+
     /**
-     * Проверяет, существует ли путь
+     * CRC32 по строкам waypoints
      */
-    public boolean hasPath(String fromPort, String toPort) {
-        String key = createPathKey(fromPort, toPort);
-        
-        if (pathCache.containsKey(key)) {
-            return true;
+    private long checksum(List<String> waypointStrings) {
+        CRC32 crc = new CRC32();
+        for (String s : waypointStrings) {
+            crc.update(s.getBytes(StandardCharsets.UTF_8));
+            crc.update('\n');
         }
-        
-        return routesConfig.contains("routes." + key);
+        return crc.getValue();
+    }
+
+    /**
+     * Проверяет, существует ли путь (только индекс!)
+     */
+    @Override
+    public synchronized boolean hasPath(String fromPort, String toPort) {
+        return index.containsKey(createPathKey(fromPort, toPort));
     }
-    
+
     /**
      * Удаляет путь
      */
-    public void deletePath(String fromPort, String toPort) {
+    @Override
+    public synchronized void deletePath(String fromPort, String toPort) {
         String key = createPathKey(fromPort, toPort);
-        
+
         pathCache.remove(key);
-        routesConfig.set("routes." + key, null);
-        
-        saveRoutesFile();
-        
+        index.remove(key);
+
+        File routeFile = getRouteFile(key);
+        if (routeFile.exists() && !routeFile.delete()) {
+            plugin.getLogger().warning("Could not delete " + routeFile.getName());
+        }
+
+        saveIndex();
+
         plugin.getLogger().info("Deleted path: " + key);
     }
-    
+
     /**
      * Удаляет все пути
      */
-    public void clearAllPaths() {
+    @Override
+    public synchronized void clearAllPaths() {
+        for (String key : index.keySet()) {
+            File routeFile = getRouteFile(key);
+            if (routeFile.exists()) {
+                routeFile.delete();
+            }
+        }
+
         pathCache.clear();
-        routesConfig.set("routes", null);
-        
-        saveRoutesFile();
-        
+        index.clear();
+
+        saveIndex();
+
         plugin.getLogger().info("Cleared all paths");
     }
-    
+
     /**
-     * Загружает все пути в кеш
+     * Загружает индекс путей (waypoints НЕ загружаются!)
      */
-    public void loadAllPaths() {
+    @Override
+    public synchronized void loadAllPaths() {
         pathCache.clear();
-        
-        ConfigurationSection routesSection = routesConfig.getConfigurationSection("routes");
-        if (routesSection == null) {
+
+        if (!indexFile.exists() && legacyFile.exists()) {
+            migrateLegacyFile();
+        }
+
+        loadIndex();
+
+        if (index.isEmpty()) {
             plugin.getLogger().info("No saved routes found");
             return;
         }
-        
+
+        plugin.getLogger().info("Loaded index of " + index.size() + " routes from routes/index.yml");
+    }
+
+    /**
+     * Миграция старого routes.yml в шарды
+     */
+    private void migrateLegacyFile() {
+        plugin.getLogger().info("Migrating routes.yml to sharded routes/ storage...");
+
+        FileConfiguration legacyConfig = YamlConfiguration.loadConfiguration(legacyFile);
+        ConfigurationSection routesSection = legacyConfig.getConfigurationSection("routes");
+
         int count = 0;
-        for (String key : routesSection.getKeys(false)) {
-            ConfigurationSection pathSection = routesSection.getConfigurationSection(key);
-            if (pathSection == null) continue;
-            
-            List<String> waypointStrings = pathSection.getStringList("path");
-            if (waypointStrings.isEmpty()) continue;
-            
-            List<Location> path = new ArrayList<>();
-            for (String waypointStr : waypointStrings) {
-                Location loc = parseLocation(waypointStr);
-                if (loc != null) {
-                    path.add(loc);
+        if (routesSection != null) {
+            routesDir.mkdirs();
+
+            for (String key : routesSection.getKeys(false)) {
+                ConfigurationSection pathSection = routesSection.getConfigurationSection(key);
+                if (pathSection == null) continue;
+
+                List<String> waypointStrings = pathSection.getStringList("path");
+                if (waypointStrings.isEmpty()) continue;
+
+                List<Location> path = new ArrayList<>();
+                for (String waypointStr : waypointStrings) {
+                    Location loc = parseLocation(waypointStr);
+                    if (loc != null) {
+                        path.add(loc);
+                    }
                 }
-            }
-            
-            if (!path.isEmpty()) {
-                pathCache.put(key, path);
+
+                long created = pathSection.getLong("created", System.currentTimeMillis());
+
+                FileConfiguration routeConfig = new YamlConfiguration();
+                routeConfig.set("from", pathSection.getString("from"));
+                routeConfig.set("to", pathSection.getString("to"));
+                routeConfig.set("created", created);
+                routeConfig.set("path", waypointStrings);
+
+                try {
+                    routeConfig.save(getRouteFile(key));
+                } catch (IOException e) {
+                    plugin.getLogger().warning("Could not migrate route " + key + ": " + e.getMessage());
+                    continue;
+                }
+
+                index.put(key, new RouteInfo(key, pathSection.getString("from"), pathSection.getString("to"),
+                        waypointStrings.size(), RouteInfo.calculateLength(path), checksum(waypointStrings), created));
                 count++;
             }
         }
-        
-        plugin.getLogger().info("Loaded " + count + " routes from routes.yml");
+
+        saveIndex();
+
+        File backup = new File(legacyFile.getParentFile(), "routes.yml.migrated");
+        if (!legacyFile.renameTo(backup)) {
+            plugin.getLogger().warning("Could not rename routes.yml after migration");
+        }
+
+        plugin.getLogger().info("Migrated " + count + " routes (old file kept as routes.yml.migrated)");
     }
-    
+
     /**
      * Возвращает список всех сохранённых путей
      */
-    public List<String> getAllPathKeys() {
-        Set<String> keys = new HashSet<>(pathCache.keySet());
-        
-        ConfigurationSection routesSection = routesConfig.getConfigurationSection("routes");
-        if (routesSection != null) {
-            keys.addAll(routesSection.getKeys(false));
-        }
-        
-        return new ArrayList<>(keys);
+    @Override
+    public synchronized List<String> getAllPathKeys() {
+        return new ArrayList<>(index.keySet());
     }
-    
+
     /**
      * Возвращает Set ID закешированных маршрутов (для совместимости с PortCommand)
      */
-    public Set<String> getCachedRouteIds() {
-        Set<String> keys = new HashSet<>(pathCache.keySet());
-        
-        ConfigurationSection routesSection = routesConfig.getConfigurationSection("routes");
-        if (routesSection != null) {
-            keys.addAll(routesSection.getKeys(false));
+    @Override
+    public synchronized Set<String> getCachedRouteIds() {
+        return new HashSet<>(index.keySet());
+    }
+
+    /**
+     * Метаданные пути из индекса (без загрузки waypoints)
+     */
+    @Override
+    public synchronized RouteInfo getRouteInfo(String fromPort, String toPort) {
+        return index.get(createPathKey(fromPort, toPort));
+    }
+
+    /**
+     * Все записи индекса
+     */
+    @Override
+    public synchronized Collection<RouteInfo> getAllRouteInfo() {
+        return new ArrayList<>(index.values());
+    }
+
+    /**
+     * Пути порта (фильтр по индексу)
+     */
+    @Override
+    public synchronized List<RouteInfo> getRoutesForPort(String portName) {
+        List<RouteInfo> result = new ArrayList<>();
+        for (RouteInfo info : index.values()) {
+            if (info.touches(portName)) {
+                result.add(info);
+            }
         }
-        
-        return keys;
+        return result;
     }
-    
+
     /**
      * Возвращает информацию о пути
      */
-    public Map<String, Object> getPathInfo(String fromPort, String toPort) {
-        String key = createPathKey(fromPort, toPort);
-        
-        ConfigurationSection pathSection = routesConfig.getConfigurationSection("routes." + key);
-        if (pathSection == null) {
+    @Override
+    public synchronized Map<String, Object> getPathInfo(String fromPort, String toPort) {
+        RouteInfo routeInfo = index.get(createPathKey(fromPort, toPort));
+        if (routeInfo == null) {
             return null;
         }
-        
+
         Map<String, Object> info = new HashMap<>();
-        info.put("from", pathSection.getString("from"));
-        info.put("to", pathSection.getString("to"));
-        info.put("waypoints", pathSection.getInt("waypoints"));
-        info.put("created", pathSection.getLong("created"));
-        
+        info.put("from", routeInfo.from);
+        info.put("to", routeInfo.to);
+        info.put("waypoints", routeInfo.waypoints);
+        info.put("length", routeInfo.length);
+        info.put("created", routeInfo.created);
+
         return info;
     }
 }
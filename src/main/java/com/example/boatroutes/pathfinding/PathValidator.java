@@ -8,7 +8,11 @@ import org.bukkit.World;
 import org.bukkit.block.Block;
 
 /**
- * PathValidator v5.1 - С COST CALCULATION + DEADEND DETECTION!
+ * PathValidator v5.2 - С COST CALCULATION + DEADEND DETECTION!
+ *
+ * НОВОЕ v5.2:
+ * - getWaterDepth() читает слой глубин кеша, блоки - только если колонки нет
+ * - isDeepEnough(): проверка pathfinding.min-depth одним чтением кеша
  *
  * ИСПРАВЛЕНО v5.1:
  * - Добавлена проверка соединенности блоков воды
@@ -16,7 +20,7 @@ import org.bukkit.block.Block;
  * - Повышенный cost для изолированной воды
  *
  * @author BoatRoutes Team
- * @version 5.1-DEADEND-FIX
+ * @version 5.2-DEPTH-LAYER
  */
 public class PathValidator {
 
@@ -317,26 +321,42 @@ public class PathValidator {
      * @return Глубина воды (количество водных блоков вниз от sea level)
      */
     public int getWaterDepth(int x, int z, World world) {
-        int depth = 0;
+        int cached = cache.getDepth(x, z);
+        if (cached >= 0) {
+            return cached;
+        }
 
-        for (int y = seaLevel; y >= seaLevel - 10; y--) {
-            if (isChunkLoaded(world, x, z)) {
-                Block block = world.getBlockAt(x, y, z);
-                if (isWaterBlock(block)) {
-                    depth++;
-                } else {
-                    break;
-                }
+        // Если чанк не прогружен, считаем глубину достаточной
+        if (!isChunkLoaded(world, x, z)) {
+            return 5;
+        }
+
+        int depth = 0;
+        for (int y = seaLevel; y >= seaLevel - WaterWorldCache.MAX_DEPTH + 1; y--) {
+            Block block = world.getBlockAt(x, y, z);
+            if (isWaterBlock(block)) {
+                depth++;
             } else {
-                // Если чанк не прогружен, считаем глубину достаточной
-                depth = 5;
                 break;
             }
         }
 
+        cache.setDepth(x, z, depth);
         return depth;
     }
 
+    /**
+     * Достаточно ли глубоко для pathfinding.min-depth (только кеш).
+     * Колонка без данных о глубине не блокируется - как и cost,
+     * глубина появится после сканирования чанка.
+     */
+    public boolean isDeepEnough(int x, int z) {
+        if (minDepth <= 1) return true;
+
+        int depth = cache.getDepth(x, z);
+        return depth < 0 || depth >= minDepth;
+    }
+
     /**
      * Проверяет безопасность точки (расстояние от берега)
      */
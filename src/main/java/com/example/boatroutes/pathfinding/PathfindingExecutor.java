@@ -0,0 +1,233 @@
+package com.example.boatroutes.pathfinding;
+
+import com.example.boatroutes.BoatRoutesPlugin;
+
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * PathfindingExecutor - Отдельный пул потоков для поиска путей
+ *
+ * - Ограниченное число параллельных поисков (pathfinding.executor.threads)
+ * - Ограниченная очередь: лишние запросы отклоняются, а не копятся в памяти
+ * - Одинаковые запросы (A->B и B->A) получают один общий future -
+ *   и поиск игрока, и фоновый ремонт пути пары
+ * - Приоритеты: команды игроков раньше фонового ремонта путей;
+ *   фоновая задача, к которой присоединился игрок, поднимается в очереди
+ *
+ * @author BoatRoutes Team
+ * @version 1.0
+ */
+public class PathfindingExecutor {
+
+    /**
+     * Приоритет задачи (меньше ordinal = раньше)
+     */
+    public enum Priority {
+        INTERACTIVE,
+        BACKGROUND
+    }
+
+    private final BoatRoutesPlugin plugin;
+    private final ThreadPoolExecutor executor;
+    private final int threads;
+    private final int maxQueued;
+
+    // ключ пары портов -> задача в очереди / в работе
+    private final Map<String, Job<?>> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    // Статистика
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger coalesced = new AtomicInteger();
+    private final AtomicInteger rejected = new AtomicInteger();
+
+    public PathfindingExecutor(BoatRoutesPlugin plugin) {
+        this.plugin = plugin;
+
+        int configured = plugin.getConfig().getInt("pathfinding.executor.threads", 0);
+        this.threads = configured > 0 ? configured : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.maxQueued = plugin.getConfig().getInt("pathfinding.executor.max-queued", 32);
+
+        AtomicInteger threadId = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "BoatRoutes-Pathfinding-" + threadId.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+
+        plugin.getLogger().info("Pathfinding executor: " + threads + " threads, queue limit " + maxQueued);
+    }
+
+    /**
+     * Поиск для пары портов. Если такой же поиск уже идёт - возвращает его future.
+     * При переполненной очереди future завершается с RejectedExecutionException.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> submit(String key, Priority priority, Supplier<T> task) {
+        Job<?> existing = pending.get(key);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            promote(existing, priority);
+            return (CompletableFuture<T>) existing.future;
+        }
+
+        Job<T> job = new Job<>(key, priority, sequence.getAndIncrement(), task);
+        Job<?> raced = pending.putIfAbsent(key, job);
+        if (raced != null) {
+            coalesced.incrementAndGet();
+            promote(raced, priority);
+            return (CompletableFuture<T>) raced.future;
+        }
+
+        if (!enqueue(job)) {
+            pending.remove(key, job);
+            job.future.completeExceptionally(new RejectedExecutionException("Pathfinding queue is full"));
+        }
+        return job.future;
+    }
+
+    /**
+     * Задача без де-дупликации
+     *
+     * @return false если очередь переполнена
+     */
+    public boolean execute(Priority priority, Runnable task) {
+        Job<Void> job = new Job<>(null, priority, sequence.getAndIncrement(), () -> {
+            task.run();
+            return null;
+        });
+        return enqueue(job);
+    }
+
+    /**
+     * Future уже идущего поиска для пары портов (или null).
+     * Задача в очереди поднимается до priority - её теперь ждёт игрок.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> getPending(String key, Priority priority) {
+        Job<?> job = pending.get(key);
+        if (job == null) return null;
+
+        coalesced.incrementAndGet();
+        promote(job, priority);
+        return (CompletableFuture<T>) job.future;
+    }
+
+    /**
+     * Приоритет, с которым задача пары портов была поставлена (или null)
+     */
+    public Priority getPendingOrigin(String key) {
+        Job<?> job = pending.get(key);
+        return job != null ? job.origin : null;
+    }
+
+    private boolean enqueue(Job<?> job) {
+        if (executor.isShutdown() || executor.getQueue().size() >= maxQueued) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        try {
+            executor.execute(job);
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * Фоновая задача, которую ждёт игрок, поднимается в очереди
+     */
+    private void promote(Job<?> job, Priority priority) {
+        if (priority.ordinal() >= job.priority.ordinal()) return;
+
+        if (executor.getQueue().remove(job)) {
+            job.priority = priority;
+            executor.getQueue().offer(job);
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+        for (Job<?> job : pending.values()) {
+            job.future.cancel(false);
+        }
+        pending.clear();
+    }
+
+    // ===== STATS =====
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    public int getCompletedCount() {
+        return completed.get();
+    }
+
+    public int getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    public int getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Задача в очереди с приоритетом (FIFO внутри приоритета)
+     */
+    private final class Job<T> implements Runnable, Comparable<Job<?>> {
+        private final String key;
+        private final long order;
+        private final Supplier<T> task;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        // Приоритет при постановке (promote меняет только priority)
+        private final Priority origin;
+        private volatile Priority priority;
+
+        private Job(String key, Priority priority, long order, Supplier<T> task) {
+            this.key = key;
+            this.origin = priority;
+            this.priority = priority;
+            this.order = order;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            try {
+                future.complete(task.get());
+            } catch (Throwable t) {
+                plugin.getLogger().warning("Pathfinding task failed: " + t);
+                future.completeExceptionally(t);
+            } finally {
+                if (key != null) {
+                    pending.remove(key, this);
+                }
+                completed.incrementAndGet();
+            }
+        }
+
+        @Override
+        public int compareTo(Job<?> other) {
+            int byPriority = Integer.compare(priority.ordinal(), other.priority.ordinal());
+            return byPriority != 0 ? byPriority : Long.compare(order, other.order);
+        }
+    }
+}
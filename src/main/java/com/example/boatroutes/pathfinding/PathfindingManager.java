@@ -2,15 +2,59 @@ package com.example.boatroutes.pathfinding;
 
 import com.example.boatroutes.BoatRoutesPlugin;
 import com.example.boatroutes.cache.WaterWorldCache;
+import com.example.boatroutes.navigation.RouteSpline;
 import com.example.boatroutes.port.Port;
+import com.example.boatroutes.storage.RouteData;
+import com.example.boatroutes.storage.RouteInfo;
+import com.example.boatroutes.storage.RouteStore;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
- * PathfindingManager v6.1 - С BIDIRECTIONAL PATH SUPPORT!
+ * PathfindingManager v6.9 - С BIDIRECTIONAL PATH SUPPORT!
+ *
+ * НОВОЕ v6.9:
+ * - При сохранении пути строится гладкая кривая (RouteSpline,
+ *   pathfinding.spline) с параметризацией по длине дуги - autopilot
+ *   берёт её готовой; кривые обоих направлений строятся в фоне
+ *   (сохранение, загрузка путей, ремонт), не в потоке тика
+ *
+ * НОВОЕ v6.8:
+ * - pathfinding.search-mode: astar (сетка, 8 направлений) или theta
+ *   (Lazy Theta*, any-angle - прямые линии через открытую воду)
+ *
+ * НОВОЕ v6.7:
+ * - Phase 4 сжимает путь (PathOptimizer: line-of-sight по сетке cost с
+ *   coast buffer) - хранится только сжатый путь
+ * - Полный путь по блокам строится по запросу (getRawPath -> densify)
+ * - Уже сохранённые плотные пути сжимаются в фоне при загрузке
+ *
+ * НОВОЕ v6.6:
+ * - Phase 1 берёт сохранённый якорь навигационной воды порта
+ *   (NavAnchorManager), поиск только если якоря нет или он устарел
+ *
+ * НОВОЕ v6.5:
+ * - NetworkBuilder: /port connect-all, пакетное соединение портов
+ *
+ * НОВОЕ v6.4:
+ * - RouteNetwork: граф портов по сохранённым путям (маршруты с пересадками)
+ * - getPath() разворачивает путь по направлению, записанному в индексе
+ *   (ключ пути общий для A->B и B->A)
+ *
+ * НОВОЕ v6.3:
+ * - Поиск идёт в PathfindingExecutor (ограниченный пул, приоритеты)
+ * - Повторный /port connect для той же пары ждёт уже идущий поиск
+ *
+ * НОВОЕ v6.2:
+ * - RouteRepairManager: сохранённые пути чинятся, когда вода на них
+ *   становится непроходимой (индекс обновляется при save/delete)
  *
  * ИСПРАВЛЕНО v6.1:
  * - getPath() автоматически разворачивает путь если нужно
@@ -18,7 +62,7 @@ import java.util.*;
  * - hasPath() проверяет обе стороны
  *
  * @author BoatRoutes Team
- * @version 6.1-BIDIRECTIONAL-FIX
+ * @version 6.9-SPLINE
  */
 public class PathfindingManager {
 
@@ -26,19 +70,41 @@ public class PathfindingManager {
     private final WaterWorldCache cache;
     private final WaterPathfinderAStar pathfinder;
     private final PathOptimizer optimizer;
-    private final PathStorage storage;
+    private final RouteStore storage;
+    private final RouteRepairManager repairManager;
+    private final PathfindingExecutor executor;
+    private final RouteNetwork network;
+    private final NetworkBuilder networkBuilder;
+    private final NavAnchorManager anchorManager;
+    private final boolean compaction;
+    private final boolean anyAngle;
+    private final boolean splines;
+    private final double splineStep;
 
     // RAW PATH CACHE для визуализации!
-    private final Map<String, List<Location>> rawPathCache = new HashMap<>();
+    private final Map<String, List<Location>> rawPathCache = new ConcurrentHashMap<>();
+
+    // Кривые маршрутов по направлению ("A_to_B")
+    private final Map<String, RouteSpline> splineCache = new ConcurrentHashMap<>();
+    // Пары, кривые которых сейчас собираются
+    private final Set<String> splinesPending = ConcurrentHashMap.newKeySet();
 
     public PathfindingManager(BoatRoutesPlugin plugin) {
         this.plugin = plugin;
         this.cache = new WaterWorldCache(plugin);
         this.pathfinder = new WaterPathfinderAStar(plugin, cache);
-        this.optimizer = new PathOptimizer(pathfinder.getValidator());
-        this.storage = new PathStorage(plugin);
-
-        storage.loadAllPaths();
+        this.optimizer = new PathOptimizer(pathfinder.getValidator(),
+                plugin.getConfig().getDouble("pathfinding.compaction.max-segment", 48.0));
+        this.compaction = plugin.getConfig().getBoolean("pathfinding.compaction.enabled", true);
+        this.anyAngle = "theta".equalsIgnoreCase(plugin.getConfig().getString("pathfinding.search-mode", "astar"));
+        this.splines = plugin.getConfig().getBoolean("pathfinding.spline.enabled", true);
+        this.splineStep = Math.max(0.25, plugin.getConfig().getDouble("pathfinding.spline.step", 1.0));
+        this.storage = plugin.getStorageManager().getRouteStore();
+        this.executor = new PathfindingExecutor(plugin);
+        this.repairManager = new RouteRepairManager(plugin, pathfinder, executor, storage, cache);
+        this.network = new RouteNetwork(storage);
+        this.networkBuilder = new NetworkBuilder(plugin, this);
+        this.anchorManager = new NavAnchorManager(plugin, pathfinder, executor, cache);
 
         plugin.getLogger().info("PathfindingManager initialized with A* v6.1");
     }
@@ -61,6 +127,32 @@ public class PathfindingManager {
             return;
         }
 
+        // Этот же путь уже считается или ремонтируется (A->B или B->A) - ждём общий результат
+        String key = RouteInfo.keyOf(fromName, toName);
+        PathfindingExecutor.Priority origin = executor.getPendingOrigin(key);
+        CompletableFuture<List<Location>> running = origin != null
+                ? executor.getPending(key, PathfindingExecutor.Priority.INTERACTIVE) : null;
+        if (running != null) {
+            player.sendMessage("§e⚠ This route is already being calculated");
+            player.sendMessage("§7You will be notified when it is ready");
+            long joined = System.currentTimeMillis();
+
+            if (origin == PathfindingExecutor.Priority.BACKGROUND) {
+                // Ремонт пути, удалённого reconnect'ом, пути не даёт - тогда ищем сами
+                running.whenComplete((path, error) -> plugin.getTaskScheduler().runAtEntity(player, () -> {
+                    if (error == null && path == null && !storage.hasPath(fromName, toName)) {
+                        findPathBetweenPortsAsync(fromPort, toPort, player);
+                    } else {
+                        reportWhenDone(running, player, fromName, toName, portStart, portEnd, joined);
+                    }
+                }));
+                return;
+            }
+
+            reportWhenDone(running, player, fromName, toName, portStart, portEnd, joined);
+            return;
+        }
+
         player.sendMessage("");
         player.sendMessage("§6⚓ BoatRoutes Pathfinding");
         player.sendMessage("§7Calculating path...");
@@ -69,12 +161,14 @@ public class PathfindingManager {
         long totalStartTime = System.currentTimeMillis();
         long preCacheStart = totalStartTime;
 
-        // ===== PHASE 1: Find navigable water =====
-        player.sendMessage("§7Phase 1: Finding navigable water...");
+        // ===== PHASE 1: Navigable water (сохранённые якоря портов) =====
+        boolean cachedAnchors = anchorManager.isValid(fromPort) && anchorManager.isValid(toPort);
+        player.sendMessage(cachedAnchors
+                ? "§7Phase 1: Using cached navigable water..."
+                : "§7Phase 1: Finding navigable water...");
 
-        NavigableWaterFinder navFinder = pathfinder.getNavFinder();
-        Location navStart = navFinder.findNavigableWater(portStart, 50);
-        Location navEnd = navFinder.findNavigableWater(portEnd, 50);
+        Location navStart = anchorManager.resolve(fromPort);
+        Location navEnd = anchorManager.resolve(toPort);
 
         if (navStart == null) {
             player.sendMessage("§c✗ Cannot find navigable water near " + fromName + "!");
@@ -121,61 +215,95 @@ public class PathfindingManager {
         player.sendMessage("§7  Time: §f" + (preCacheTime / 1000.0) + "s");
         player.sendMessage("§7Note: A* will cache dynamically during search");
 
-        // ===== PHASE 3: Async A* pathfinding (UNLIMITED!) =====
-        player.sendMessage("§7Phase 3: A* pathfinding + validation...");
+        // ===== PHASE 3: A* pathfinding в пуле потоков =====
+        player.sendMessage(anyAngle
+                ? "§7Phase 3: Theta* (any-angle) pathfinding + validation..."
+                : "§7Phase 3: A* pathfinding + validation...");
 
         final Location finalNavStart = navStart;
         final Location finalNavEnd = navEnd;
 
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+        CompletableFuture<List<Location>> job = executor.submit(RouteInfo.keyOf(fromName, toName),
+                PathfindingExecutor.Priority.INTERACTIVE, () -> {
 
             long pathStart = System.currentTimeMillis();
-            List<Location> rawPath = pathfinder.findPath(finalNavStart, finalNavEnd, finalNavStart.getWorld());
+            List<Location> rawPath = anyAngle
+                    ? pathfinder.findAnyAnglePath(finalNavStart, finalNavEnd, finalNavStart.getWorld())
+                    : pathfinder.findPath(finalNavStart, finalNavEnd, finalNavStart.getWorld());
             long pathTime = System.currentTimeMillis() - pathStart;
 
             if (rawPath == null || rawPath.isEmpty()) {
-                Bukkit.getScheduler().runTask(plugin, () -> {
-                    player.sendMessage("§c✗ No path found!");
-                    player.sendMessage("§7Possible reasons:");
-                    player.sendMessage("§7  - Land blocks the water route");
-                    player.sendMessage("§7  - Ports are on different water bodies");
-                    player.sendMessage("§7  - Path validation failed (dead ends detected)");
-                });
-                return;
+                return null;
             }
 
             plugin.getLogger().info("✓ Raw path found: " + rawPath.size() + " waypoints in " + pathTime + "ms");
 
             // ===== СОХРАНЯЕМ RAW PATH ДЛЯ ВИЗУАЛИЗАЦИИ! =====
             String routeId = fromName + "_to_" + toName;
-            rawPathCache.put(routeId, new ArrayList<>(rawPath));
+            rawPathCache.put(routeId, anyAngle ? optimizer.densify(rawPath) : new ArrayList<>(rawPath));
             plugin.getLogger().info("✓ Cached raw path for visualization: " + rawPath.size() + " waypoints");
 
-            // ===== PHASE 4: Save route (БЕЗ ОПТИМИЗАЦИИ!) =====
-            List<Location> finalPath = new ArrayList<>(rawPath);
-
-            // ===== PHASE 5: Save route =====
-            Bukkit.getScheduler().runTask(plugin, () -> {
-                player.sendMessage("§a✓ Phase 3 complete");
-                player.sendMessage("§7  Waypoints: §f" + finalPath.size() + " (raw path)");
-                player.sendMessage("§7  Validation: §apassed (no dead ends)");
-
-                storage.savePath(fromName, toName, finalPath);
-
-                long totalTime = System.currentTimeMillis() - preCacheStart;
-                int pathDistance = (int) finalNavStart.distance(finalNavEnd);
-
-                player.sendMessage("");
-                player.sendMessage("§a✓ PATH FOUND!");
-                player.sendMessage("§7From: §f" + fromName);
-                player.sendMessage("§7To: §f" + toName);
-                player.sendMessage("§7Distance: §f" + pathDistance + " blocks");
-                player.sendMessage("§7Waypoints: §f" + finalPath.size() + " (full path)");
-                player.sendMessage("§7Total time: §a" + (totalTime / 1000.0) + "s");
-                player.sendMessage("");
-                player.sendMessage("§7Use §f/port visualize " + fromName + " §7to see the route!");
-            });
+            // ===== PHASE 4: Compact + save route =====
+            List<Location> finalPath = compactPath(rawPath);
+            plugin.getLogger().info("✓ Compacted path: " + rawPath.size() + " -> " +
+                    finalPath.size() + " waypoints");
+
+            storage.savePath(fromName, toName, finalPath);
+            repairManager.indexRoute(fromName, toName, finalPath);
+            network.invalidate();
+            cacheSpline(fromName, toName, finalPath);
+
+            return finalPath;
         });
+
+        reportWhenDone(job, player, fromName, toName, finalNavStart, finalNavEnd, preCacheStart);
+    }
+
+    /**
+     * Сообщает игроку результат поиска (поток игрока)
+     */
+    private void reportWhenDone(CompletableFuture<List<Location>> job, Player player, String fromName,
+                                String toName, Location navStart, Location navEnd, long startTime) {
+        job.whenComplete((finalPath, error) -> plugin.getTaskScheduler().runAtEntity(player, () -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                if (cause instanceof RejectedExecutionException) {
+                    player.sendMessage("§c✗ Pathfinding queue is full!");
+                    player.sendMessage("§7Too many routes are being calculated, try again later");
+                } else {
+                    player.sendMessage("§c✗ Pathfinding failed: " + cause.getMessage());
+                }
+                return;
+            }
+
+            if (finalPath == null) {
+                player.sendMessage("§c✗ No path found!");
+                player.sendMessage("§7Possible reasons:");
+                player.sendMessage("§7  - Land blocks the water route");
+                player.sendMessage("§7  - Ports are on different water bodies");
+                player.sendMessage("§7  - Path validation failed (dead ends detected)");
+                return;
+            }
+
+            // ===== PHASE 5: Report =====
+            player.sendMessage("§a✓ Phase 3 complete");
+            player.sendMessage("§7  Waypoints: §f" + finalPath.size() + (compaction ? " (compacted)" : " (raw path)"));
+            player.sendMessage("§7  Validation: §apassed (no dead ends)");
+
+            long totalTime = System.currentTimeMillis() - startTime;
+            int pathDistance = (int) navStart.distance(navEnd);
+
+            player.sendMessage("");
+            player.sendMessage("§a✓ PATH FOUND!");
+            player.sendMessage("§7From: §f" + fromName);
+            player.sendMessage("§7To: §f" + toName);
+            player.sendMessage("§7Distance: §f" + pathDistance + " blocks");
+            player.sendMessage("§7Waypoints: §f" + finalPath.size());
+            player.sendMessage("§7Total time: §a" + (totalTime / 1000.0) + "s");
+            player.sendMessage("");
+            player.sendMessage("§7Use §f/port visualize " + fromName + " §7to see the route!");
+        }));
     }
 
     public void recalculatePath(Port fromPort, Port toPort, Player player) {
@@ -184,7 +312,10 @@ public class PathfindingManager {
 
         if (storage.hasPath(fromName, toName)) {
             storage.deletePath(fromName, toName);
+            repairManager.removeRoute(fromName, toName);
+            network.invalidate();
             rawPathCache.remove(fromName + "_to_" + toName);
+            removeSplines(fromName, toName);
             player.sendMessage("§7Deleted old path");
         }
 
@@ -200,36 +331,32 @@ public class PathfindingManager {
     /**
      * ✅ ИСПРАВЛЕНО: Получить путь с автоматическим реверсом!
      *
-     * Пытается загрузить путь fromPort → toPort
-     * Если не найден, пытается toPort → fromPort и разворачивает
+     * Путь A->B и B->A хранится один раз; направление берётся из индекса
+     * и при необходимости путь разворачивается, чтобы начинаться у fromPort
      */
     public List<Location> getPath(String fromPort, String toPort) {
-        // 1. Пытаемся загрузить прямой путь
-        List<Location> path = storage.loadPath(fromPort, toPort);
+        RouteInfo info = storage.getRouteInfo(fromPort, toPort);
+        List<Location> path = info != null ? storage.loadPath(fromPort, toPort) : null;
 
-        if (path != null && !path.isEmpty()) {
+        if (path == null || path.isEmpty()) {
+            plugin.getLogger().warning("✗ No path found: " + fromPort + " ↔ " + toPort);
+            return null;
+        }
+
+        if (info.from.equals(fromPort)) {
             plugin.getLogger().info("✓ Loaded forward path: " + fromPort + " → " + toPort +
                     " (" + path.size() + " waypoints)");
             return path;
         }
 
-        // 2. ✅ НОВОЕ: Пытаемся загрузить ОБРАТНЫЙ путь и развернуть!
-        List<Location> reversePath = storage.loadPath(toPort, fromPort);
-
-        if (reversePath != null && !reversePath.isEmpty()) {
-            // Разворачиваем путь
-            Collections.reverse(reversePath);
-
-            plugin.getLogger().info("✓ Loaded REVERSED path: " + toPort + " → " + fromPort +
-                    " (reversed to " + fromPort + " → " + toPort + ", " +
-                    reversePath.size() + " waypoints)");
+        // Сохранён как toPort → fromPort - разворачиваем
+        Collections.reverse(path);
 
-            return reversePath;
-        }
+        plugin.getLogger().info("✓ Loaded REVERSED path: " + toPort + " → " + fromPort +
+                " (reversed to " + fromPort + " → " + toPort + ", " +
+                path.size() + " waypoints)");
 
-        // 3. Путь не найден ни в одну сторону
-        plugin.getLogger().warning("✗ No path found: " + fromPort + " ↔ " + toPort);
-        return null;
+        return path;
     }
 
     /**
@@ -260,9 +387,9 @@ public class PathfindingManager {
             return reversed;
         }
 
-        // 3. Fallback: пытаемся загрузить оптимизированный путь
-        plugin.getLogger().info("⚠ Raw path not in cache, trying optimized path...");
-        return getPath(fromPort, toPort);
+        // 3. Fallback: восстанавливаем полный путь из сохранённого сжатого
+        plugin.getLogger().info("⚠ Raw path not in cache, rebuilding from stored path...");
+        return optimizer.densify(getPath(fromPort, toPort));
     }
 
     /**
@@ -276,19 +403,224 @@ public class PathfindingManager {
 
     public void deletePath(String fromPort, String toPort) {
         storage.deletePath(fromPort, toPort);
+        repairManager.removeRoute(fromPort, toPort);
+        network.invalidate();
         rawPathCache.remove(fromPort + "_to_" + toPort);
 
         // ✅ ТАКЖЕ удаляем обратный путь из кеша
         rawPathCache.remove(toPort + "_to_" + fromPort);
+        removeSplines(fromPort, toPort);
     }
 
     public void clearAllPaths() {
         storage.clearAllPaths();
+        repairManager.clearIndex();
+        network.invalidate();
         rawPathCache.clear();
+        splineCache.clear();
+    }
+
+    /**
+     * Сохраняет несколько найденных путей одной операцией (connect-all).
+     * Пары, получившие путь за время поиска (/port connect), пропускаются.
+     *
+     * @return сколько путей сохранено
+     */
+    public int saveRoutes(List<RouteData> routes) {
+        Map<String, List<Location>> rawPaths = new HashMap<>();
+        List<RouteData> compacted = new ArrayList<>(routes.size());
+        for (RouteData route : routes) {
+            rawPaths.put(route.fromPort + "_to_" + route.toPort, route.path);
+            compacted.add(new RouteData(route.fromPort, route.toPort, compactPath(route.path)));
+        }
+
+        // Проверка прямо перед записью (сжатие выше занимает время)
+        compacted.removeIf(route -> storage.hasPath(route.fromPort, route.toPort));
+        if (compacted.isEmpty()) return 0;
+
+        storage.savePaths(compacted);
+
+        for (RouteData route : compacted) {
+            String routeId = route.fromPort + "_to_" + route.toPort;
+            rawPathCache.put(routeId, new ArrayList<>(rawPaths.get(routeId)));
+            repairManager.indexRoute(route.fromPort, route.toPort, route.path);
+            cacheSpline(route.fromPort, route.toPort, route.path);
+        }
+        network.invalidate();
+        return compacted.size();
+    }
+
+    /**
+     * Сохранённый путь заменён (ремонт): сбрасываем raw path и граф портов,
+     * кривые пересобираются в фоне
+     */
+    public void routeChanged(String fromPort, String toPort) {
+        rawPathCache.remove(fromPort + "_to_" + toPort);
+        rawPathCache.remove(toPort + "_to_" + fromPort);
+        removeSplines(fromPort, toPort);
+        network.invalidate();
+        requestSplines(fromPort, toPort);
+    }
+
+    // ===== SPLINES =====
+
+    /**
+     * Гладкая кривая маршрута fromPort -> toPort (pathfinding.spline).
+     * Кривые обоих направлений строятся в фоне (сохранение, загрузка,
+     * ремонт пути) - в потоке тика ничего не читается и не строится.
+     * Кривой ещё нет - её сборка ставится в очередь.
+     *
+     * @return кривая или null (кривые выключены, пути нет или кривая ещё строится)
+     */
+    public RouteSpline getSpline(String fromPort, String toPort) {
+        if (!splines) return null;
+
+        RouteSpline spline = splineCache.get(fromPort + "_to_" + toPort);
+        if (spline == null) {
+            requestSplines(fromPort, toPort);
+        }
+        return spline;
+    }
+
+    /**
+     * Кривые обоих направлений по пути fromPort -> toPort (поток поиска)
+     */
+    private void cacheSpline(String fromPort, String toPort, List<Location> path) {
+        removeSplines(fromPort, toPort);
+        if (!splines) return;
+
+        RouteSpline forward = RouteSpline.build(path, splineStep, pathfinder.getValidator());
+        List<Location> reversed = new ArrayList<>(path);
+        Collections.reverse(reversed);
+        RouteSpline backward = RouteSpline.build(reversed, splineStep, pathfinder.getValidator());
+
+        if (forward != null && backward != null) {
+            splineCache.put(fromPort + "_to_" + toPort, forward);
+            splineCache.put(toPort + "_to_" + fromPort, backward);
+        }
+    }
+
+    /**
+     * Сборка кривых пары в фоне (одна задача на пару)
+     */
+    private void requestSplines(String fromPort, String toPort) {
+        if (!splines) return;
+
+        String key = RouteInfo.keyOf(fromPort, toPort);
+        if (!splinesPending.add(key)) return;
+
+        boolean queued = executor.execute(PathfindingExecutor.Priority.BACKGROUND, () -> {
+            try {
+                RouteInfo info = storage.getRouteInfo(fromPort, toPort);
+                if (info != null) {
+                    buildSplines(info);
+                }
+            } finally {
+                splinesPending.remove(key);
+            }
+        });
+        if (!queued) {
+            splinesPending.remove(key);
+        }
+    }
+
+    /**
+     * Кривые сохранённого пути (фоновый поток). Путь, заменённый за время
+     * сборки, не получает кривых старой версии.
+     */
+    private void buildSplines(RouteInfo info) {
+        List<Location> path = storage.loadPath(info.from, info.to);
+        if (path == null || path.size() < 2) return;
+
+        RouteSpline forward = RouteSpline.build(path, splineStep, pathfinder.getValidator());
+        Collections.reverse(path);
+        RouteSpline backward = RouteSpline.build(path, splineStep, pathfinder.getValidator());
+        if (forward == null || backward == null) return;
+
+        if (!info.isSameVersion(storage.getRouteInfo(info.from, info.to))) return;
+
+        splineCache.put(info.from + "_to_" + info.to, forward);
+        splineCache.put(info.to + "_to_" + info.from, backward);
+    }
+
+    /**
+     * Кривые всех сохранённых путей после загрузки (одна фоновая задача)
+     */
+    private void buildAllSplines() {
+        if (!splines) return;
+
+        List<RouteInfo> routes = new ArrayList<>(storage.getAllRouteInfo());
+        if (routes.isEmpty()) return;
+
+        executor.execute(PathfindingExecutor.Priority.BACKGROUND, () -> {
+            long start = System.currentTimeMillis();
+            for (RouteInfo info : routes) {
+                buildSplines(info);
+            }
+            plugin.getLogger().info("✓ Route curves built for " + routes.size() + " routes (" +
+                    (System.currentTimeMillis() - start) + "ms)");
+        });
+    }
+
+    private void removeSplines(String fromPort, String toPort) {
+        splineCache.remove(fromPort + "_to_" + toPort);
+        splineCache.remove(toPort + "_to_" + fromPort);
     }
 
     public void loadAllPaths() {
         storage.loadAllPaths();
+        network.invalidate();
+        repairManager.rebuildIndex();
+        repairManager.start();
+        anchorManager.start();
+        compactStoredRoutes();
+        buildAllSplines();
+    }
+
+    /**
+     * Сжатие пути перед сохранением (pathfinding.compaction)
+     */
+    public List<Location> compactPath(List<Location> path) {
+        if (!compaction || path == null || path.size() <= 2) {
+            return path != null ? new ArrayList<>(path) : null;
+        }
+        return optimizer.optimize(path);
+    }
+
+    /**
+     * Пути, сохранённые до сжатия (~1 waypoint на блок), сжимаются в фоне
+     * (одной задачей - очередь поиска остаётся свободной для игроков)
+     */
+    private void compactStoredRoutes() {
+        if (!compaction) return;
+
+        List<RouteInfo> dense = new ArrayList<>();
+        for (RouteInfo info : storage.getAllRouteInfo()) {
+            if (info.waypoints > 2 && info.length / (info.waypoints - 1) < 2.0) {
+                dense.add(info);
+            }
+        }
+        if (dense.isEmpty()) return;
+
+        executor.execute(PathfindingExecutor.Priority.BACKGROUND, () -> {
+            for (RouteInfo info : dense) {
+                List<Location> path = storage.loadPath(info.from, info.to);
+                if (path == null || path.size() <= 2) continue;
+
+                List<Location> compact = optimizer.optimize(path);
+                // Кеш воды вокруг пути ещё не собран - сжатие почти ничего не даёт
+                if (compact.size() > path.size() * 0.8) continue;
+
+                // Путь перезаписан (reconnect, ремонт) или удалён после чтения индекса
+                if (!storage.replacePath(info.from, info.to, info, compact)) continue;
+
+                repairManager.indexRoute(info.from, info.to, compact);
+                plugin.getTaskScheduler().runGlobal(() -> routeChanged(info.from, info.to));
+
+                plugin.getLogger().info("✓ Compacted stored route " + info.key + ": " +
+                        path.size() + " -> " + compact.size() + " waypoints");
+            }
+        });
     }
 
     public void saveCache() {
@@ -299,7 +631,7 @@ public class PathfindingManager {
         return pathfinder;
     }
 
-    public PathStorage getStorage() {
+    public RouteStore getStorage() {
         return storage;
     }
 
@@ -307,6 +639,35 @@ public class PathfindingManager {
         return cache;
     }
 
+    /**
+     * Останавливает пул поиска и ремонт путей (выключение плагина)
+     */
+    public void shutdown() {
+        repairManager.stop();
+        anchorManager.stop();
+        executor.shutdown();
+    }
+
+    public NavAnchorManager getAnchorManager() {
+        return anchorManager;
+    }
+
+    public NetworkBuilder getNetworkBuilder() {
+        return networkBuilder;
+    }
+
+    public RouteNetwork getNetwork() {
+        return network;
+    }
+
+    public PathfindingExecutor getExecutor() {
+        return executor;
+    }
+
+    public RouteRepairManager getRepairManager() {
+        return repairManager;
+    }
+
     public PathOptimizer getOptimizer() {
         return optimizer;
     }
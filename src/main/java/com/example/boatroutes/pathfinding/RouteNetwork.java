@@ -0,0 +1,213 @@
+package com.example.boatroutes.pathfinding;
+
+import com.example.boatroutes.storage.RouteInfo;
+import com.example.boatroutes.storage.RouteStore;
+
+import java.util.*;
+
+/**
+ * RouteNetwork - Граф портов поверх сохранённых путей
+ *
+ * - Узлы: порты, рёбра: сохранённые пути (вес = длина пути)
+ * - Граф строится из индекса RouteStore (без загрузки waypoints)
+ *   и перестраивается лениво после изменения путей
+ * - Dijkstra по графу даёт маршрут из нескольких плеч за микросекунды,
+ *   новый A* по сетке для каждой пары портов не нужен
+ *
+ * НОВОЕ v1.1:
+ * - getDestinations(): все достижимые порты с маршрутами одним Dijkstra
+ * - getVersion(): меняется при каждом изменении путей (для кешей меню)
+ *
+ * @author BoatRoutes Team
+ * @version 1.1
+ */
+public class RouteNetwork {
+
+    private final RouteStore storage;
+
+    // порт -> рёбра к соседним портам
+    private final Map<String, List<Edge>> adjacency = new HashMap<>();
+    private boolean dirty = true;
+    private volatile long version;
+
+    public RouteNetwork(RouteStore storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * Пути изменились - граф перестроится при следующем запросе
+     */
+    public synchronized void invalidate() {
+        dirty = true;
+        version++;
+    }
+
+    /**
+     * Номер состояния сети: растёт при каждом invalidate()
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    private void rebuildIfDirty() {
+        if (!dirty) return;
+
+        adjacency.clear();
+        for (RouteInfo info : storage.getAllRouteInfo()) {
+            if (info.from == null || info.to == null) continue;
+            adjacency.computeIfAbsent(info.from, k -> new ArrayList<>()).add(new Edge(info.to, info.length));
+            adjacency.computeIfAbsent(info.to, k -> new ArrayList<>()).add(new Edge(info.from, info.length));
+        }
+        dirty = false;
+    }
+
+    /**
+     * Кратчайший маршрут по сети портов
+     *
+     * @return порты [from, ..., to] или null если to недостижим
+     */
+    public synchronized List<String> findRoute(String from, String to) {
+        rebuildIfDirty();
+
+        if (from.equals(to)) return List.of(from);
+
+        Map<String, String> previous = new HashMap<>();
+        Map<String, Double> distances = dijkstra(from, to, previous);
+        if (!distances.containsKey(to)) {
+            return null;
+        }
+
+        LinkedList<String> route = new LinkedList<>();
+        for (String port = to; port != null; port = previous.get(port)) {
+            route.addFirst(port);
+        }
+        return route;
+    }
+
+    /**
+     * Все порты, достижимые из from (порт -> длина маршрута)
+     */
+    public synchronized Map<String, Double> getReachable(String from) {
+        rebuildIfDirty();
+
+        Map<String, Double> distances = dijkstra(from, null, new HashMap<>());
+        distances.remove(from);
+        return distances;
+    }
+
+    /**
+     * Все порты, достижимые из from, с кратчайшими маршрутами
+     * (одним Dijkstra), по возрастанию длины
+     */
+    public synchronized List<Destination> getDestinations(String from) {
+        rebuildIfDirty();
+
+        Map<String, String> previous = new HashMap<>();
+        Map<String, Double> distances = dijkstra(from, null, previous);
+        distances.remove(from);
+
+        List<Destination> destinations = new ArrayList<>(distances.size());
+        for (Map.Entry<String, Double> entry : distances.entrySet()) {
+            LinkedList<String> route = new LinkedList<>();
+            for (String port = entry.getKey(); port != null; port = previous.get(port)) {
+                route.addFirst(port);
+            }
+            destinations.add(new Destination(entry.getKey(), entry.getValue(), route));
+        }
+
+        destinations.sort(Comparator.comparingDouble(d -> d.distance));
+        return destinations;
+    }
+
+    /**
+     * Сколько плеч в кратчайшем маршруте (0 если недостижим)
+     */
+    public synchronized int getLegCount(String from, String to) {
+        List<String> route = findRoute(from, to);
+        return route != null ? route.size() - 1 : 0;
+    }
+
+    /**
+     * Dijkstra от source; при target != null останавливается на нём
+     */
+    private Map<String, Double> dijkstra(String source, String target, Map<String, String> previous) {
+        Map<String, Double> distances = new HashMap<>();
+        Set<String> settled = new HashSet<>();
+        PriorityQueue<QueueEntry> queue = new PriorityQueue<>();
+
+        distances.put(source, 0.0);
+        queue.add(new QueueEntry(source, 0.0));
+
+        while (!queue.isEmpty()) {
+            QueueEntry current = queue.poll();
+            if (!settled.add(current.port)) continue;
+            if (current.port.equals(target)) break;
+
+            for (Edge edge : adjacency.getOrDefault(current.port, Collections.emptyList())) {
+                if (settled.contains(edge.to)) continue;
+
+                double distance = current.distance + edge.length;
+                Double known = distances.get(edge.to);
+                if (known == null || distance < known) {
+                    distances.put(edge.to, distance);
+                    previous.put(edge.to, current.port);
+                    queue.add(new QueueEntry(edge.to, distance));
+                }
+            }
+        }
+
+        return distances;
+    }
+
+    public synchronized int getPortCount() {
+        rebuildIfDirty();
+        return adjacency.size();
+    }
+
+    /**
+     * Достижимый порт: длина маршрута и порты по пути [from, ..., port]
+     */
+    public static class Destination {
+        public final String port;
+        public final double distance;
+        public final List<String> route;
+
+        Destination(String port, double distance, List<String> route) {
+            this.port = port;
+            this.distance = distance;
+            this.route = route;
+        }
+
+        public boolean isDirect() {
+            return route.size() == 2;
+        }
+    }
+
+    /**
+     * Ребро графа (сохранённый путь)
+     */
+    private static class Edge {
+        final String to;
+        final double length;
+
+        Edge(String to, double length) {
+            this.to = to;
+            this.length = length;
+        }
+    }
+
+    private static class QueueEntry implements Comparable<QueueEntry> {
+        final String port;
+        final double distance;
+
+        QueueEntry(String port, double distance) {
+            this.port = port;
+            this.distance = distance;
+        }
+
+        @Override
+        public int compareTo(QueueEntry other) {
+            return Double.compare(distance, other.distance);
+        }
+    }
+}
@@ -0,0 +1,411 @@
+package com.example.boatroutes.pathfinding;
+
+import com.example.boatroutes.BoatRoutesPlugin;
+import com.example.boatroutes.cache.WaterWorldCache;
+import com.example.boatroutes.scheduler.TaskScheduler;
+import com.example.boatroutes.storage.RouteInfo;
+import com.example.boatroutes.storage.RouteStore;
+import org.bukkit.Location;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * RouteRepairManager - Ремонт сохранённых путей при изменении воды
+ *
+ * - Пространственный индекс: чанк -> пути, проходящие через него
+ * - WaterWorldCache сообщает о блоках, ставших непроходимыми (cost >= 999)
+ * - Раз в repair.interval-ticks изменения сопоставляются с индексом,
+ *   в очередь попадают только задетые пути
+ * - Ремонт: локальный A* в коридоре вокруг перекрытого участка,
+ *   остальной путь не пересчитывается; фоновый приоритет в PathfindingExecutor
+ * - Новый путь записывается в RouteStore целиком (replacePath заменяет путь
+ *   под блокировкой хранилища - читатели видят старый или новый путь)
+ * - Путь, перезаписанный или удалённый во время ремонта, не затирается:
+ *   результат ремонта отбрасывается
+ *
+ * @author BoatRoutes Team
+ * @version 1.0
+ */
+public class RouteRepairManager implements WaterWorldCache.CostChangeListener {
+
+    private static final int BLOCKED_COST = 999;
+
+    private final BoatRoutesPlugin plugin;
+    private final WaterPathfinderAStar pathfinder;
+    private final PathfindingExecutor executor;
+    private final RouteStore storage;
+
+    private final boolean enabled;
+    private final int corridor;
+    private final double padding;
+    private final int margin;
+    private final int maxIterations;
+
+    // chunk key -> ключи путей
+    private final Map<Long, Set<String>> cellIndex = new HashMap<>();
+    // ключ пути -> чанки (для удаления из индекса)
+    private final Map<String, long[]> routeCells = new HashMap<>();
+
+    // Блоки, ставшие непроходимыми с прошлой проверки
+    private final Set<Long> pendingBlocks = ConcurrentHashMap.newKeySet();
+    // Пути, ремонт которых сейчас идёт
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private TaskScheduler.Task timer;
+
+    // Статистика
+    private final AtomicInteger routesRepaired = new AtomicInteger();
+    private final AtomicInteger repairsFailed = new AtomicInteger();
+
+    public RouteRepairManager(BoatRoutesPlugin plugin, WaterPathfinderAStar pathfinder,
+                              PathfindingExecutor executor, RouteStore storage, WaterWorldCache cache) {
+        this.plugin = plugin;
+        this.pathfinder = pathfinder;
+        this.executor = executor;
+        this.storage = storage;
+
+        this.enabled = plugin.getConfig().getBoolean("pathfinding.repair.enabled", true);
+        this.corridor = plugin.getConfig().getInt("pathfinding.repair.corridor", 1);
+        this.padding = plugin.getConfig().getDouble("pathfinding.repair.padding", 12.0);
+        this.margin = plugin.getConfig().getInt("pathfinding.repair.margin", 16);
+        this.maxIterations = plugin.getConfig().getInt("pathfinding.repair.max-iterations", 50000);
+
+        if (enabled) {
+            cache.addChangeListener(this);
+        }
+    }
+
+    /**
+     * Запускает периодическую проверку изменений
+     */
+    public void start() {
+        if (!enabled || timer != null) return;
+
+        long interval = Math.max(1, plugin.getConfig().getLong("pathfinding.repair.interval-ticks", 20));
+        timer = plugin.getTaskScheduler().runGlobalTimer(task -> processPending(), interval, interval);
+    }
+
+    public void stop() {
+        if (timer != null) {
+            timer.cancel();
+            timer = null;
+        }
+    }
+
+    // ===== CACHE EVENTS =====
+
+    /**
+     * Вызывается из потока, пишущего в кеш - только запоминаем блок
+     */
+    @Override
+    public void onCostChanged(int x, int z, int oldCost, int newCost) {
+        if (newCost >= BLOCKED_COST && oldCost < BLOCKED_COST) {
+            pendingBlocks.add(packCoords(x, z));
+        }
+    }
+
+    // ===== SPATIAL INDEX =====
+
+    /**
+     * Перестраивает индекс по всем сохранённым путям (асинхронно)
+     */
+    public void rebuildIndex() {
+        if (!enabled) return;
+
+        plugin.getTaskScheduler().runAsync(() -> {
+            int indexed = 0;
+            for (RouteInfo info : storage.getAllRouteInfo()) {
+                List<Location> path = storage.loadPath(info.from, info.to);
+                if (path != null && path.size() >= 2) {
+                    indexRoute(info.key, path);
+                    indexed++;
+                }
+            }
+            plugin.getLogger().info("Route repair index: " + indexed + " routes");
+        });
+    }
+
+    /**
+     * Добавляет (или обновляет) путь в индексе
+     */
+    public void indexRoute(String fromPort, String toPort, List<Location> path) {
+        if (!enabled || path == null || path.size() < 2) return;
+        indexRoute(RouteInfo.keyOf(fromPort, toPort), path);
+    }
+
+    private void indexRoute(String key, List<Location> path) {
+        Set<Long> cells = new HashSet<>();
+
+        for (int i = 0; i < path.size() - 1; i++) {
+            double x1 = path.get(i).getX();
+            double z1 = path.get(i).getZ();
+            double x2 = path.get(i + 1).getX();
+            double z2 = path.get(i + 1).getZ();
+
+            // Шаг 8 блоков - редкие (оптимизированные) пути тоже попадают во все чанки
+            double length = Math.sqrt((x2 - x1) * (x2 - x1) + (z2 - z1) * (z2 - z1));
+            int steps = Math.max(1, (int) Math.ceil(length / 8.0));
+            for (int s = 0; s <= steps; s++) {
+                double t = (double) s / steps;
+                int bx = (int) Math.floor(x1 + (x2 - x1) * t);
+                int bz = (int) Math.floor(z1 + (z2 - z1) * t);
+                cells.add(packCoords(bx >> 4, bz >> 4));
+            }
+        }
+
+        long[] packed = new long[cells.size()];
+        int n = 0;
+        for (long cell : cells) {
+            packed[n++] = cell;
+        }
+
+        synchronized (cellIndex) {
+            unindexRoute(key);
+            for (long cell : packed) {
+                cellIndex.computeIfAbsent(cell, k -> new HashSet<>()).add(key);
+            }
+            routeCells.put(key, packed);
+        }
+    }
+
+    public void removeRoute(String fromPort, String toPort) {
+        synchronized (cellIndex) {
+            unindexRoute(RouteInfo.keyOf(fromPort, toPort));
+        }
+    }
+
+    public void clearIndex() {
+        synchronized (cellIndex) {
+            cellIndex.clear();
+            routeCells.clear();
+        }
+    }
+
+    private void unindexRoute(String key) {
+        long[] cells = routeCells.remove(key);
+        if (cells == null) return;
+
+        for (long cell : cells) {
+            Set<String> keys = cellIndex.get(cell);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    cellIndex.remove(cell);
+                }
+            }
+        }
+    }
+
+    // ===== REPAIR QUEUE =====
+
+    /**
+     * Сопоставляет накопленные изменения с индексом и ставит ремонт в очередь
+     */
+    private void processPending() {
+        if (pendingBlocks.isEmpty()) return;
+
+        Map<String, List<Long>> affected = new HashMap<>();
+        int reach = corridor + 1;
+
+        Iterator<Long> it = pendingBlocks.iterator();
+        while (it.hasNext()) {
+            long block = it.next();
+            it.remove();
+
+            int bx = (int) (block >> 32);
+            int bz = (int) block;
+
+            // Блок у границы чанка может задеть путь в соседнем чанке
+            Set<Long> cells = new HashSet<>(4);
+            cells.add(packCoords((bx - reach) >> 4, (bz - reach) >> 4));
+            cells.add(packCoords((bx + reach) >> 4, (bz - reach) >> 4));
+            cells.add(packCoords((bx - reach) >> 4, (bz + reach) >> 4));
+            cells.add(packCoords((bx + reach) >> 4, (bz + reach) >> 4));
+
+            synchronized (cellIndex) {
+                for (long cell : cells) {
+                    Set<String> keys = cellIndex.get(cell);
+                    if (keys == null) continue;
+                    for (String key : keys) {
+                        affected.computeIfAbsent(key, k -> new ArrayList<>()).add(block);
+                    }
+                }
+            }
+        }
+
+        for (Map.Entry<String, List<Long>> entry : affected.entrySet()) {
+            String key = entry.getKey();
+            List<Long> blocks = entry.getValue();
+
+            // Путь уже ремонтируется - проверим эти блоки в следующий раз
+            if (!inFlight.add(key)) {
+                pendingBlocks.addAll(blocks);
+                continue;
+            }
+
+            // Ключ пары портов: поиск игрока для этой пары и ремонт - одна задача
+            // (игрок присоединяется к ремонту в очереди)
+            AtomicBoolean repaired = new AtomicBoolean();
+            CompletableFuture<List<Location>> job = executor.submit(key,
+                    PathfindingExecutor.Priority.BACKGROUND, () -> {
+                        repaired.set(true);
+                        return repairRoute(key, blocks);
+                    });
+
+            job.whenComplete((path, error) -> {
+                inFlight.remove(key);
+                // Очередь поиска занята или future чужой (поиск игрока, который
+                // мог посчитать путь до изменения блоков) - проверим в следующий раз
+                if (!repaired.get()) {
+                    pendingBlocks.addAll(blocks);
+                }
+            });
+        }
+    }
+
+    /**
+     * Ремонт одного пути (фоновый поток)
+     *
+     * @return путь пары после ремонта или null, если пути нет / ремонт не удался
+     */
+    private List<Location> repairRoute(String key, List<Long> blocks) {
+        RouteInfo info = findInfo(key);
+        if (info == null) return null;
+
+        List<Location> path = storage.loadPath(info.from, info.to);
+        if (path == null || path.size() < 2) return null;
+
+        // Сегменты, проходящие через новые препятствия
+        int firstHit = -1;
+        int lastHit = -1;
+        double limitSq = (corridor + 0.5) * (corridor + 0.5);
+
+        for (int i = 0; i < path.size() - 1; i++) {
+            for (long block : blocks) {
+                double cx = (int) (block >> 32) + 0.5;
+                double cz = (int) block + 0.5;
+                if (distanceToSegmentSq(cx, cz, path.get(i), path.get(i + 1)) <= limitSq) {
+                    if (firstHit < 0) firstHit = i;
+                    lastHit = i + 1;
+                    break;
+                }
+            }
+        }
+
+        // Чанк совпал, но сам путь не задет
+        if (firstHit < 0) return path;
+
+        int from = walk(path, firstHit, -1);
+        int to = walk(path, lastHit, 1);
+
+        long startTime = System.currentTimeMillis();
+        List<Location> detour = pathfinder.findLocalPath(path.get(from), path.get(to),
+                path.get(0).getWorld(), margin, maxIterations);
+        long time = System.currentTimeMillis() - startTime;
+
+        if (detour == null || detour.size() < 2) {
+            repairsFailed.incrementAndGet();
+            plugin.getLogger().warning("✗ Route " + key + " is blocked near " + formatLoc(path.get(firstHit)) +
+                    " and could not be repaired locally (" + time + "ms)");
+            plugin.getLogger().warning("  Use /port reconnect " + info.from + " " + info.to);
+            return null;
+        }
+
+        // Объезд сжимается так же, как новый путь
+        detour = plugin.getPathfindingManager().compactPath(detour);
+
+        List<Location> repaired = new ArrayList<>(from + detour.size() + (path.size() - to));
+        repaired.addAll(path.subList(0, from));
+        repaired.addAll(detour);
+        repaired.addAll(path.subList(to + 1, path.size()));
+
+        // Путь сменился (reconnect) или удалён, пока шёл ремонт
+        if (!storage.replacePath(info.from, info.to, info, repaired)) {
+            plugin.getLogger().info("Route " + key + " changed during repair - repair discarded");
+            return storage.loadPath(info.from, info.to);
+        }
+        indexRoute(key, repaired);
+        routesRepaired.incrementAndGet();
+
+        plugin.getTaskScheduler().runGlobal(() ->
+                plugin.getPathfindingManager().routeChanged(info.from, info.to));
+
+        plugin.getLogger().info("✓ Repaired route " + key + ": waypoints " + from + "-" + to +
+                " replaced by " + detour.size() + " (" + time + "ms)");
+        return repaired;
+    }
+
+    private RouteInfo findInfo(String key) {
+        for (RouteInfo info : storage.getAllRouteInfo()) {
+            if (info.key.equals(key)) {
+                return info;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Отступает от индекса на padding блоков по пути в направлении dir
+     */
+    private int walk(List<Location> path, int index, int dir) {
+        double walked = 0;
+        int i = index;
+        while (i + dir >= 0 && i + dir < path.size() && walked < padding) {
+            Location a = path.get(i);
+            Location b = path.get(i + dir);
+            double dx = b.getX() - a.getX();
+            double dz = b.getZ() - a.getZ();
+            walked += Math.sqrt(dx * dx + dz * dz);
+            i += dir;
+        }
+        return i;
+    }
+
+    private static double distanceToSegmentSq(double px, double pz, Location a, Location b) {
+        double segX = b.getX() - a.getX();
+        double segZ = b.getZ() - a.getZ();
+        double lengthSq = segX * segX + segZ * segZ;
+
+        double t = 0;
+        if (lengthSq > 0) {
+            t = ((px - a.getX()) * segX + (pz - a.getZ()) * segZ) / lengthSq;
+            t = Math.max(0, Math.min(1, t));
+        }
+
+        double dx = px - (a.getX() + segX * t);
+        double dz = pz - (a.getZ() + segZ * t);
+        return dx * dx + dz * dz;
+    }
+
+    private static long packCoords(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    private String formatLoc(Location loc) {
+        return loc.getBlockX() + "," + loc.getBlockZ();
+    }
+
+    // ===== STATS =====
+
+    public int getIndexedRouteCount() {
+        synchronized (cellIndex) {
+            return routeCells.size();
+        }
+    }
+
+    public int getRoutesRepaired() {
+        return routesRepaired.get();
+    }
+
+    public int getRepairsFailed() {
+        return repairsFailed.get();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+}
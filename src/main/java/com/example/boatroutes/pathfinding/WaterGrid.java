@@ -0,0 +1,137 @@
+package com.example.boatroutes.pathfinding;
+
+/**
+ * WaterGrid - Маска воды области с предрасчётом для оценки навигабельности
+ *
+ * - Область выровнена по границам чанков
+ * - Каждая клетка читается из источника (WaterLookup) один раз,
+ *   глубина берётся из источника напрямую
+ * - Summed-area table: количество воды в любом прямоугольнике за O(1)
+ * - Для 8 направлений: длина непрерывной воды от клетки (без неё самой),
+ *   ограниченная maxRun - проверка луча за O(1)
+ *
+ * @author BoatRoutes Team
+ * @version 1.0
+ */
+final class WaterGrid implements WaterLookup {
+
+    private final WaterLookup source;
+
+    private final int originX;
+    private final int originZ;
+    private final int width;
+    private final int depth;
+
+    private final boolean[] water;
+    // (width + 1) * (depth + 1), sat[0][*] = sat[*][0] = 0
+    private final int[] sat;
+    // runs[direction][cell]
+    private final short[][] runs;
+
+    private WaterGrid(WaterLookup source, int originX, int originZ, int width, int depth) {
+        this.source = source;
+        this.originX = originX;
+        this.originZ = originZ;
+        this.width = width;
+        this.depth = depth;
+        this.water = new boolean[width * depth];
+        this.sat = new int[(width + 1) * (depth + 1)];
+        this.runs = new short[DIRECTIONS.length][width * depth];
+    }
+
+    /**
+     * Строит сетку для прямоугольника [minX..maxX] x [minZ..maxZ]
+     * (расширяется до границ чанков)
+     */
+    static WaterGrid build(WaterLookup source, int minX, int minZ, int maxX, int maxZ, int maxRun) {
+        int x0 = Math.floorDiv(minX, 16) * 16;
+        int z0 = Math.floorDiv(minZ, 16) * 16;
+        int x1 = Math.floorDiv(maxX, 16) * 16 + 15;
+        int z1 = Math.floorDiv(maxZ, 16) * 16 + 15;
+
+        WaterGrid grid = new WaterGrid(source, x0, z0, x1 - x0 + 1, z1 - z0 + 1);
+
+        // Маска + summed-area table
+        for (int lz = 0; lz < grid.depth; lz++) {
+            int rowSum = 0;
+            for (int lx = 0; lx < grid.width; lx++) {
+                boolean isWater = source.isWater(x0 + lx, z0 + lz);
+                grid.water[lz * grid.width + lx] = isWater;
+                rowSum += isWater ? 1 : 0;
+                grid.sat[(lz + 1) * (grid.width + 1) + (lx + 1)] =
+                        grid.sat[lz * (grid.width + 1) + (lx + 1)] + rowSum;
+            }
+        }
+
+        // Длины свободной воды по направлениям: соседа по направлению
+        // обходим раньше самой клетки
+        for (int d = 0; d < DIRECTIONS.length; d++) {
+            int dx = DIRECTIONS[d][0];
+            int dz = DIRECTIONS[d][1];
+            short[] run = grid.runs[d];
+
+            for (int i = 0; i < grid.depth; i++) {
+                int lz = dz > 0 ? grid.depth - 1 - i : i;
+                for (int j = 0; j < grid.width; j++) {
+                    int lx = dx > 0 ? grid.width - 1 - j : j;
+
+                    int nx = lx + dx;
+                    int nz = lz + dz;
+                    if (nx < 0 || nx >= grid.width || nz < 0 || nz >= grid.depth) continue;
+
+                    int neighbor = nz * grid.width + nx;
+                    if (grid.water[neighbor]) {
+                        run[lz * grid.width + lx] = (short) Math.min(maxRun, run[neighbor] + 1);
+                    }
+                }
+            }
+        }
+
+        return grid;
+    }
+
+    boolean contains(int x, int z) {
+        int lx = x - originX;
+        int lz = z - originZ;
+        return lx >= 0 && lx < width && lz >= 0 && lz < depth;
+    }
+
+    @Override
+    public boolean isWater(int x, int z) {
+        return contains(x, z) && water[(z - originZ) * width + (x - originX)];
+    }
+
+    /**
+     * Количество воды в прямоугольнике (включительно), O(1).
+     * Клетки вне сетки считаются сушей.
+     */
+    @Override
+    public int countWater(int minX, int minZ, int maxX, int maxZ) {
+        int lx0 = Math.max(0, minX - originX);
+        int lz0 = Math.max(0, minZ - originZ);
+        int lx1 = Math.min(width - 1, maxX - originX);
+        int lz1 = Math.min(depth - 1, maxZ - originZ);
+        if (lx0 > lx1 || lz0 > lz1) return 0;
+
+        int stride = width + 1;
+        return sat[(lz1 + 1) * stride + (lx1 + 1)]
+                - sat[lz0 * stride + (lx1 + 1)]
+                - sat[(lz1 + 1) * stride + lx0]
+                + sat[lz0 * stride + lx0];
+    }
+
+    /**
+     * Сколько блоков воды подряд от клетки в направлении d, O(1)
+     * (не больше maxRun сетки)
+     */
+    @Override
+    public int clearRun(int x, int z, int direction, int maxRun) {
+        if (!contains(x, z)) return 0;
+        return Math.min(maxRun, runs[direction][(z - originZ) * width + (x - originX)]);
+    }
+
+    @Override
+    public int getDepth(int x, int z) {
+        return source.getDepth(x, z);
+    }
+}
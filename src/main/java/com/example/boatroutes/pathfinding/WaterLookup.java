@@ -0,0 +1,58 @@
+package com.example.boatroutes.pathfinding;
+
+/**
+ * WaterLookup - Источник данных о воде для оценки навигабельности
+ *
+ * - Прямые чтения (PathValidator) - для одной точки
+ * - WaterGrid - для многих точек области (площадь и лучи за O(1))
+ *
+ * Правила оценки одни - NavigableWaterFinder считает по любому источнику.
+ *
+ * @author BoatRoutes Team
+ * @version 1.0
+ */
+interface WaterLookup {
+
+    // Порядок совпадает с NavigableWaterFinder.DIRECTIONS
+    int[][] DIRECTIONS = {
+            {1, 0}, {-1, 0}, {0, 1}, {0, -1},
+            {1, 1}, {1, -1}, {-1, 1}, {-1, -1}
+    };
+
+    boolean isWater(int x, int z);
+
+    /**
+     * Глубина воды колонки (блоков вниз от sea level)
+     */
+    int getDepth(int x, int z);
+
+    /**
+     * Количество воды в прямоугольнике (включительно)
+     */
+    default int countWater(int minX, int minZ, int maxX, int maxZ) {
+        int count = 0;
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                if (isWater(x, z)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Сколько блоков воды подряд от клетки в направлении d
+     * (без неё самой, не больше maxRun)
+     */
+    default int clearRun(int x, int z, int direction, int maxRun) {
+        int dx = DIRECTIONS[direction][0];
+        int dz = DIRECTIONS[direction][1];
+        for (int i = 1; i <= maxRun; i++) {
+            if (!isWater(x + dx * i, z + dz * i)) {
+                return i - 1;
+            }
+        }
+        return maxRun;
+    }
+}
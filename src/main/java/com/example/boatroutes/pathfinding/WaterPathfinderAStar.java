@@ -6,6 +6,7 @@ import org.bukkit.Location;
 import org.bukkit.World;
 
 import java.util.*;
+import java.util.function.IntConsumer;
 
 /**
  * BIDIRECTIONAL A* v10.0 - NAVIGABLE WATER ONLY!
@@ -18,13 +19,28 @@ import java.util.*;
  * - ✅ Euclidean heuristic
  * - ✅ Безопасные диагонали
  *
+ * НОВОЕ v10.1:
+ * - findLocalPath(): быстрый A* в маленьком окне для ремонта маршрута
+ *   (застрявшая лодка, изменившийся участок)
+ *
+ * НОВОЕ v10.2:
+ * - findPathsToTargets(): один Dijkstra от порта до многих портов сразу
+ *   (connect-all), останавливается когда все цели достигнуты
+ *
+ * НОВОЕ v10.3:
+ * - pathfinding.min-depth соблюдается: глубина колонки из слоя глубин
+ *   WaterWorldCache (одно чтение кеша, без обхода блоков)
+ *
+ * НОВОЕ v10.4:
+ * - findAnyAnglePath(): Lazy Theta*, прямые морские участки без "лесенки"
+ *
  * РЕЗУЛЬТАТ:
  * - НЕ сворачивает в подземные озёра
  * - Держится рек и океана
  * - Плавные морские маршруты
  *
  * @author BoatRoutes Team
- * @version 10.0-NAVIGABLE-WATER
+ * @version 10.4-THETA
  */
 public class WaterPathfinderAStar {
 
@@ -32,13 +48,15 @@ public class WaterPathfinderAStar {
     private final WaterWorldCache cache;
     private final PathValidator validator;
     private final NavigableWaterFinder navFinder;
+    private final GridLineOfSight lineOfSight;
     private final int seaLevel = 62;
 
-    private org.bukkit.World world;
 
     // Параметры навигации
     private static final int COAST_PENALTY_RADIUS = 3;
     private static final int MIN_NAVIGABLE_LENGTH = 6; // Минимальная ширина реки/океана
+    // Минимальный вес клетки в Theta* (cost 1, без coast penalty) - для эвристики
+    private static final double MIN_CELL_WEIGHT = 3.0;
 
     // 8 направлений
     private static final int[][] DIRECTIONS = {
@@ -65,6 +83,7 @@ public class WaterPathfinderAStar {
         this.cache = cache;
         this.validator = new PathValidator(plugin, cache);
         this.navFinder = new NavigableWaterFinder(plugin, validator);
+        this.lineOfSight = new GridLineOfSight(validator);
     }
 
     /**
@@ -73,7 +92,6 @@ public class WaterPathfinderAStar {
     public List<Location> findPath(Location start, Location end, World world) {
         long startTime = System.currentTimeMillis();
 
-        this.world = world;
 
         int startX = start.getBlockX();
         int startZ = start.getBlockZ();
@@ -117,6 +135,7 @@ public class WaterPathfinderAStar {
         int blockedByNoCache = 0;
         int blockedByDiagonal = 0;
         int blockedByNonNavigable = 0; // НОВОЕ!
+        int blockedByShallow = 0;
 
         // MAIN LOOP
         while (!openStart.isEmpty() && !openEnd.isEmpty() && iterations < maxIterations) {
@@ -128,7 +147,8 @@ public class WaterPathfinderAStar {
                         ", blocked: land=" + blockedByLand +
                         ", no-cache=" + blockedByNoCache +
                         ", diagonal=" + blockedByDiagonal +
-                        ", non-navigable=" + blockedByNonNavigable);
+                        ", non-navigable=" + blockedByNonNavigable +
+                    ", shallow=" + blockedByShallow);
             }
 
             // === EXPAND FROM START ===
@@ -178,6 +198,11 @@ public class WaterPathfinderAStar {
                         continue; // Подземное озеро или лужа!
                     }
 
+                    if (!validator.isDeepEnough(nx, nz)) {
+                        blockedByShallow++;
+                        continue; // Мель
+                    }
+
                     // Coast penalty
                     double moveCost = Math.sqrt(dir[0] * dir[0] + dir[1] * dir[1]);
                     int coastPenalty = getCoastPenalty(nx, nz);
@@ -250,6 +275,11 @@ public class WaterPathfinderAStar {
                         continue;
                     }
 
+                    if (!validator.isDeepEnough(nx, nz)) {
+                        blockedByShallow++;
+                        continue;
+                    }
+
                     double moveCost = Math.sqrt(dir[0] * dir[0] + dir[1] * dir[1]);
                     int coastPenalty = getCoastPenalty(nx, nz);
 
@@ -285,7 +315,8 @@ public class WaterPathfinderAStar {
             plugin.getLogger().warning("Blocked: land=" + blockedByLand +
                     ", no-cache=" + blockedByNoCache +
                     ", diagonal=" + blockedByDiagonal +
-                    ", non-navigable=" + blockedByNonNavigable);
+                    ", non-navigable=" + blockedByNonNavigable +
+                    ", shallow=" + blockedByShallow);
             plugin.getLogger().warning("Time: " + (elapsedTime / 1000.0) + "s");
             return null;
         }
@@ -301,7 +332,7 @@ public class WaterPathfinderAStar {
         }
         fullPath.addAll(pathFromEnd);
 
-        if (!validatePath(fullPath)) {
+        if (!validatePath(fullPath, world)) {
             plugin.getLogger().severe("✗ PATH VALIDATION FAILED");
             return null;
         }
@@ -311,6 +342,7 @@ public class WaterPathfinderAStar {
         plugin.getLogger().info("Visited: " + (visitedStart.size() + visitedEnd.size()));
         plugin.getLogger().info("Waypoints: " + fullPath.size());
         plugin.getLogger().info("Blocked non-navigable water: " + blockedByNonNavigable);
+        plugin.getLogger().info("Blocked shallow water: " + blockedByShallow);
         plugin.getLogger().info("Time: " + (elapsedTime / 1000.0) + "s");
 
         List<Location> finalPath = new ArrayList<>();
@@ -321,6 +353,394 @@ public class WaterPathfinderAStar {
         return finalPath;
     }
 
+    /**
+     * Lazy Theta* - any-angle поиск (pathfinding.search-mode: theta)
+     *
+     * - Соседи и фильтры клеток те же, что в findPath()
+     * - Родителем соседа сразу назначается родитель текущей клетки;
+     *   прямая видимость (GridLineOfSight, только кеш) проверяется лениво,
+     *   когда клетка достаётся из очереди - одна проверка на клетку
+     * - Видимость с coast buffer: линия не проходит ближе к берегу,
+     *   чем её концы (cost клеток <= max cost концов)
+     * - Стоимость отрезка: длина * средний вес концов,
+     *   вес клетки = 1 + cost * 2 + coast penalty (как шаг в findPath)
+     * - Результат - прямые участки открытой воды, waypoints только на поворотах
+     *
+     * @return путь от start до end или null
+     */
+    public List<Location> findAnyAnglePath(Location start, Location end, World world) {
+        long startTime = System.currentTimeMillis();
+
+        int startX = start.getBlockX();
+        int startZ = start.getBlockZ();
+        int endX = end.getBlockX();
+        int endZ = end.getBlockZ();
+        long goalHash = hash(endX, endZ);
+
+        plugin.getLogger().info("=== LAZY THETA* (ANY-ANGLE) ===");
+        plugin.getLogger().info("From: " + startX + "," + seaLevel + "," + startZ);
+        plugin.getLogger().info("To: " + endX + "," + seaLevel + "," + endZ);
+
+        PriorityQueue<AStarNode> open = new PriorityQueue<>();
+        Map<Long, AStarNode> best = new HashMap<>();
+        Set<Long> closed = new HashSet<>();
+        Map<Long, Double> weights = new HashMap<>();
+
+        AStarNode startNode = new AStarNode(startX, startZ, 0,
+                calculateHeuristic(startX, startZ, endX, endZ) * MIN_CELL_WEIGHT, null, true);
+        open.add(startNode);
+        best.put(hash(startX, startZ), startNode);
+
+        int iterations = 0;
+        int maxIterations = 1000000;
+        int losChecks = 0;
+        int losFailed = 0;
+        AStarNode goal = null;
+
+        while (!open.isEmpty() && iterations < maxIterations) {
+            AStarNode current = open.poll();
+            long currentHash = hash(current.x, current.z);
+
+            // Устаревшая запись очереди
+            if (best.get(currentHash) != current || closed.contains(currentHash)) continue;
+            iterations++;
+
+            // Ленивая проверка: видна ли клетка из назначенного родителя
+            AStarNode parent = current.parent;
+            if (parent != null && !isGridNeighbor(parent, current)) {
+                losChecks++;
+                if (!hasSegmentSight(parent.x, parent.z, current.x, current.z)) {
+                    losFailed++;
+                    current = attachToBestClosedNeighbor(current, best, closed, weights, endX, endZ);
+                    if (current == null) continue;
+                    best.put(currentHash, current);
+                }
+            }
+
+            if (currentHash == goalHash) {
+                goal = current;
+                break;
+            }
+            closed.add(currentHash);
+
+            for (int[] dir : DIRECTIONS) {
+                int nx = current.x + dir[0];
+                int nz = current.z + dir[1];
+                long neighborHash = hash(nx, nz);
+
+                if (closed.contains(neighborHash)) continue;
+                if (!canMoveDiagonal(current.x, current.z, dir[0], dir[1])) continue;
+
+                int blockCost = getBlockCostFromCache(nx, nz);
+                if (blockCost < 0 || blockCost >= 999) continue;
+
+                if (!isNavigableWater(nx, nz)) continue;
+                if (!validator.isDeepEnough(nx, nz)) continue;
+
+                // Путь 2 Theta*: сразу из родителя текущей клетки
+                AStarNode from = current.parent != null ? current.parent : current;
+                double newGCost = from.gCost + segmentCost(from.x, from.z, nx, nz, weights);
+
+                AStarNode known = best.get(neighborHash);
+                if (known == null || newGCost < known.gCost) {
+                    AStarNode neighbor = new AStarNode(nx, nz, newGCost,
+                            calculateHeuristic(nx, nz, endX, endZ) * MIN_CELL_WEIGHT, from, true);
+                    best.put(neighborHash, neighbor);
+                    open.add(neighbor);
+                }
+            }
+        }
+
+        long elapsedTime = System.currentTimeMillis() - startTime;
+
+        if (goal == null) {
+            plugin.getLogger().warning("✗ No any-angle path found (iterations: " + iterations +
+                    ", time: " + (elapsedTime / 1000.0) + "s)");
+            return null;
+        }
+
+        List<Location> path = new ArrayList<>();
+        for (AStarNode node = goal; node != null; node = node.parent) {
+            path.add(new Location(world, node.x + 0.5, seaLevel, node.z + 0.5));
+        }
+        Collections.reverse(path);
+
+        if (!validatePath(path, world)) {
+            plugin.getLogger().severe("✗ PATH VALIDATION FAILED");
+            return null;
+        }
+
+        plugin.getLogger().info("✓ ANY-ANGLE PATH FOUND!");
+        plugin.getLogger().info("Iterations: " + iterations + ", closed: " + closed.size());
+        plugin.getLogger().info("Line-of-sight checks: " + losChecks + " (" + losFailed + " failed)");
+        plugin.getLogger().info("Waypoints: " + path.size());
+        plugin.getLogger().info("Time: " + (elapsedTime / 1000.0) + "s");
+
+        return path;
+    }
+
+    /**
+     * Родитель не виден - лучший уже закрытый сосед становится родителем
+     */
+    private AStarNode attachToBestClosedNeighbor(AStarNode node, Map<Long, AStarNode> best, Set<Long> closed,
+                                                 Map<Long, Double> weights, int endX, int endZ) {
+        AStarNode bestParent = null;
+        double bestG = Double.POSITIVE_INFINITY;
+
+        for (int[] dir : DIRECTIONS) {
+            int px = node.x + dir[0];
+            int pz = node.z + dir[1];
+            long parentHash = hash(px, pz);
+            if (!closed.contains(parentHash)) continue;
+            if (!canMoveDiagonal(px, pz, -dir[0], -dir[1])) continue;
+
+            AStarNode candidate = best.get(parentHash);
+            double g = candidate.gCost + segmentCost(px, pz, node.x, node.z, weights);
+            if (g < bestG) {
+                bestG = g;
+                bestParent = candidate;
+            }
+        }
+
+        if (bestParent == null) return null;
+        return new AStarNode(node.x, node.z, bestG,
+                calculateHeuristic(node.x, node.z, endX, endZ) * MIN_CELL_WEIGHT, bestParent, true);
+    }
+
+    private boolean isGridNeighbor(AStarNode a, AStarNode b) {
+        return Math.abs(a.x - b.x) <= 1 && Math.abs(a.z - b.z) <= 1;
+    }
+
+    /**
+     * Прямая видимость между центрами клеток с coast buffer по концам
+     */
+    private boolean hasSegmentSight(int x1, int z1, int x2, int z2) {
+        int maxCost = Math.max(getBlockCostFromCache(x1, z1), getBlockCostFromCache(x2, z2));
+        return lineOfSight.isClear(x1 + 0.5, z1 + 0.5, x2 + 0.5, z2 + 0.5, maxCost);
+    }
+
+    /**
+     * Стоимость прямого отрезка: длина * средний вес концов
+     */
+    private double segmentCost(int x1, int z1, int x2, int z2, Map<Long, Double> weights) {
+        double length = calculateDistance(x1, z1, x2, z2);
+        return length * (cellWeight(x1, z1, weights) + cellWeight(x2, z2, weights)) / 2.0;
+    }
+
+    private double cellWeight(int x, int z, Map<Long, Double> weights) {
+        return weights.computeIfAbsent(hash(x, z),
+                k -> 1.0 + getBlockCostFromCache(x, z) * 2.0 + getCoastPenalty(x, z));
+    }
+
+    /**
+     * Локальный A* в окне вокруг start/end (ремонт участка маршрута).
+     *
+     * - Однонаправленный, та же стоимость клеток что и в findPath()
+     * - Не выходит за прямоугольник start/end ± margin
+     * - Не трогает общее состояние - можно вызывать из любого потока
+     *
+     * @return путь от start до end (включительно) или null
+     */
+    public List<Location> findLocalPath(Location start, Location end, World world, int margin, int maxIterations) {
+        int startX = start.getBlockX();
+        int startZ = start.getBlockZ();
+        int endX = end.getBlockX();
+        int endZ = end.getBlockZ();
+
+        int minX = Math.min(startX, endX) - margin;
+        int maxX = Math.max(startX, endX) + margin;
+        int minZ = Math.min(startZ, endZ) - margin;
+        int maxZ = Math.max(startZ, endZ) + margin;
+
+        PriorityQueue<AStarNode> open = new PriorityQueue<>();
+        Set<Long> visited = new HashSet<>();
+        Map<Long, AStarNode> nodes = new HashMap<>();
+
+        AStarNode startNode = new AStarNode(startX, startZ, 0,
+                calculateHeuristic(startX, startZ, endX, endZ), null, true);
+        open.add(startNode);
+        nodes.put(hash(startX, startZ), startNode);
+
+        int iterations = 0;
+        AStarNode found = null;
+
+        while (!open.isEmpty() && iterations < maxIterations) {
+            iterations++;
+
+            AStarNode current = open.poll();
+            long currentHash = hash(current.x, current.z);
+
+            if (current.x == endX && current.z == endZ) {
+                found = current;
+                break;
+            }
+
+            if (!visited.add(currentHash)) continue;
+
+            for (int[] dir : DIRECTIONS) {
+                int nx = current.x + dir[0];
+                int nz = current.z + dir[1];
+
+                if (nx < minX || nx > maxX || nz < minZ || nz > maxZ) continue;
+
+                long neighborHash = hash(nx, nz);
+                if (visited.contains(neighborHash)) continue;
+
+                if (!canMoveDiagonal(current.x, current.z, dir[0], dir[1])) continue;
+
+                int blockCost = getBlockCostFromCache(nx, nz);
+                if (blockCost < 0 || blockCost >= 999) continue;
+
+                if (!isNavigableWater(nx, nz)) continue;
+                if (!validator.isDeepEnough(nx, nz)) continue;
+
+                double moveCost = Math.sqrt(dir[0] * dir[0] + dir[1] * dir[1]);
+                double newGCost = current.gCost + moveCost + (blockCost * 2.0) + getCoastPenalty(nx, nz);
+                double hCost = calculateHeuristic(nx, nz, endX, endZ);
+
+                AStarNode neighbor = nodes.get(neighborHash);
+                if (neighbor == null) {
+                    neighbor = new AStarNode(nx, nz, newGCost, hCost, current, true);
+                    nodes.put(neighborHash, neighbor);
+                    open.add(neighbor);
+                } else if (newGCost < neighbor.gCost) {
+                    open.remove(neighbor);
+                    neighbor.gCost = newGCost;
+                    neighbor.fCost = newGCost + hCost;
+                    neighbor.parent = current;
+                    open.add(neighbor);
+                }
+            }
+        }
+
+        if (found == null) {
+            return null;
+        }
+
+        List<Location> path = new ArrayList<>();
+        for (AStarNode node = found; node != null; node = node.parent) {
+            path.add(new Location(world, node.x + 0.5, seaLevel, node.z + 0.5));
+        }
+        Collections.reverse(path);
+
+        return path;
+    }
+
+    /**
+     * Multi-target Dijkstra: пути от start до каждой цели за один проход.
+     *
+     * - Та же стоимость клеток что и в findPath()
+     * - Область поиска: прямоугольник всех точек ± margin
+     * - Останавливается, когда все цели достигнуты (или maxIterations)
+     * - Не трогает общее состояние - можно вызывать из любого потока
+     *
+     * @param onReached вызывается с числом достигнутых целей (прогресс), может быть null
+     * @return пути в порядке targets (null для недостижимых)
+     */
+    public List<List<Location>> findPathsToTargets(Location start, List<Location> targets, World world,
+                                                   int margin, int maxIterations, IntConsumer onReached) {
+        int startX = start.getBlockX();
+        int startZ = start.getBlockZ();
+
+        int minX = startX, maxX = startX, minZ = startZ, maxZ = startZ;
+        Map<Long, List<Integer>> targetIndex = new HashMap<>();
+        for (int i = 0; i < targets.size(); i++) {
+            int tx = targets.get(i).getBlockX();
+            int tz = targets.get(i).getBlockZ();
+            minX = Math.min(minX, tx);
+            maxX = Math.max(maxX, tx);
+            minZ = Math.min(minZ, tz);
+            maxZ = Math.max(maxZ, tz);
+            targetIndex.computeIfAbsent(hash(tx, tz), k -> new ArrayList<>()).add(i);
+        }
+        minX -= margin;
+        maxX += margin;
+        minZ -= margin;
+        maxZ += margin;
+
+        PriorityQueue<AStarNode> open = new PriorityQueue<>();
+        Set<Long> settled = new HashSet<>();
+        Map<Long, AStarNode> best = new HashMap<>();
+
+        AStarNode startNode = new AStarNode(startX, startZ, 0, 0, null, true);
+        open.add(startNode);
+        best.put(hash(startX, startZ), startNode);
+
+        AStarNode[] reached = new AStarNode[targets.size()];
+        int reachedCount = 0;
+        int iterations = 0;
+
+        while (!open.isEmpty() && iterations < maxIterations && reachedCount < targets.size()) {
+            iterations++;
+
+            AStarNode current = open.poll();
+            long currentHash = hash(current.x, current.z);
+
+            // Устаревшая запись очереди (узел уже улучшен)
+            if (best.get(currentHash) != current || !settled.add(currentHash)) continue;
+
+            List<Integer> hits = targetIndex.get(currentHash);
+            if (hits != null) {
+                for (int index : hits) {
+                    reached[index] = current;
+                    reachedCount++;
+                }
+                if (onReached != null) {
+                    onReached.accept(reachedCount);
+                }
+            }
+
+            for (int[] dir : DIRECTIONS) {
+                int nx = current.x + dir[0];
+                int nz = current.z + dir[1];
+
+                if (nx < minX || nx > maxX || nz < minZ || nz > maxZ) continue;
+
+                long neighborHash = hash(nx, nz);
+                if (settled.contains(neighborHash)) continue;
+
+                if (!canMoveDiagonal(current.x, current.z, dir[0], dir[1])) continue;
+
+                int blockCost = getBlockCostFromCache(nx, nz);
+                if (blockCost < 0 || blockCost >= 999) continue;
+
+                if (!isNavigableWater(nx, nz)) continue;
+                if (!validator.isDeepEnough(nx, nz)) continue;
+
+                double moveCost = Math.sqrt(dir[0] * dir[0] + dir[1] * dir[1]);
+                double newGCost = current.gCost + moveCost + (blockCost * 2.0) + getCoastPenalty(nx, nz);
+
+                AStarNode known = best.get(neighborHash);
+                if (known == null || newGCost < known.gCost) {
+                    AStarNode neighbor = new AStarNode(nx, nz, newGCost, 0, current, true);
+                    best.put(neighborHash, neighbor);
+                    open.add(neighbor);
+                }
+            }
+        }
+
+        plugin.getLogger().info("Multi-target search: " + reachedCount + "/" + targets.size() +
+                " targets, " + iterations + " iterations, " + settled.size() + " settled");
+
+        List<List<Location>> paths = new ArrayList<>(targets.size());
+        for (AStarNode end : reached) {
+            if (end == null) {
+                paths.add(null);
+                continue;
+            }
+
+            List<Location> path = new ArrayList<>();
+            for (AStarNode node = end; node != null; node = node.parent) {
+                path.add(new Location(world, node.x + 0.5, seaLevel, node.z + 0.5));
+            }
+            Collections.reverse(path);
+
+            paths.add(validatePath(path, world) ? path : null);
+        }
+
+        return paths;
+    }
+
     /**
      * ✅ НОВЫЙ МЕТОД: Проверка навигационной воды
      *
@@ -401,7 +821,7 @@ public class WaterPathfinderAStar {
         return -1;
     }
 
-    private boolean validatePath(List<Location> path) {
+    private boolean validatePath(List<Location> path, World world) {
         if (path == null || path.size() < 2) return false;
 
         int blockedCount = 0;
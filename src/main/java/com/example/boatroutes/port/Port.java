@@ -27,6 +27,11 @@ public class Port {
     // Calculated points for pathfinding
     private Location navigationPoint;  // Single point for entry AND exit
     
+    // Cached open-water anchor near the navigation point (pathfinding start/end)
+    private Location navAnchor;
+    private int navScore;
+    private int navAnchorVersion;
+    
     // Legacy fields (deprecated but kept for compatibility)
     @Deprecated
     private Location convergencePoint;
@@ -79,6 +84,18 @@ public class Port {
         return navigationPoint;
     }
     
+    public Location getNavAnchor() {
+        return navAnchor;
+    }
+    
+    public int getNavScore() {
+        return navScore;
+    }
+    
+    public int getNavAnchorVersion() {
+        return navAnchorVersion;
+    }
+    
     // === SETTERS ===
     
     public void setCreator(UUID creator) {
@@ -110,6 +127,18 @@ public class Port {
         // Also set legacy points for compatibility
         this.convergencePoint = navigationPoint;
         this.splitPoint = navigationPoint;
+        // Anchor was computed for the old point
+        clearNavAnchor();
+    }
+    
+    public void setNavAnchor(Location navAnchor, int navScore, int navAnchorVersion) {
+        this.navAnchor = navAnchor;
+        this.navScore = navScore;
+        this.navAnchorVersion = navAnchorVersion;
+    }
+    
+    public void clearNavAnchor() {
+        setNavAnchor(null, 0, 0);
     }
     
     // === DOCK MANAGEMENT ===
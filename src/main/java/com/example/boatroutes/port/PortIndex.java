@@ -0,0 +1,258 @@
+package com.example.boatroutes.port;
+
+import com.example.boatroutes.dock.Dock;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * PortIndex - Пространственный индекс портов и причалов
+ *
+ * - Сетка по мирам: клетка -> NPC портов / причалы в ней
+ * - Клетка не меньше радиуса поиска: запрос смотрит 3x3 клетки
+ *   независимо от числа портов
+ * - UUID лодки -> занятый ею причал (события лодок - один lookup)
+ *
+ * @author BoatRoutes Team
+ * @version 1.0
+ */
+public class PortIndex {
+
+    // Лодка "у порта" - не дальше этого от NPC порта
+    public static final double PORT_RADIUS = 100.0;
+    // Лодка "у причала" - не дальше этого от причала
+    public static final double DOCK_RADIUS = 5.0;
+
+    private final Grid<Port> ports = new Grid<>(128);
+    private final Grid<Dock> docks = new Grid<>(16);
+    // Порт -> его проиндексированные причалы
+    private final Map<Port, List<Dock>> portDocks = new HashMap<>();
+
+    // UUID сущности лодки -> причал
+    private final Map<UUID, Dock> boatDocks = new ConcurrentHashMap<>();
+
+    /**
+     * Полная перестройка (после загрузки портов)
+     */
+    public synchronized void rebuild(Collection<Port> all) {
+        ports.clear();
+        docks.clear();
+        portDocks.clear();
+        boatDocks.clear();
+
+        for (Port port : all) {
+            addPort(port);
+        }
+    }
+
+    /**
+     * Порт изменился (NPC, причалы) - переиндексируем его
+     */
+    public synchronized void updatePort(Port port) {
+        removePort(port);
+        addPort(port);
+    }
+
+    public synchronized void removePort(Port port) {
+        ports.remove(port);
+
+        List<Dock> indexed = portDocks.remove(port);
+        if (indexed == null) return;
+
+        for (Dock dock : indexed) {
+            docks.remove(dock);
+            if (dock.getCurrentBoatUUID() != null) {
+                boatDocks.remove(dock.getCurrentBoatUUID(), dock);
+            }
+        }
+    }
+
+    private void addPort(Port port) {
+        Location npc = port.getNPCLocation();
+        if (npc != null && npc.getWorld() != null) {
+            ports.add(port, npc);
+        }
+
+        List<Dock> list = port.getDocks();
+        portDocks.put(port, list);
+        for (Dock dock : list) {
+            Location location = dock.getLocation();
+            if (location.getWorld() != null) {
+                docks.add(dock, location);
+            }
+            if (dock.getCurrentBoatUUID() != null) {
+                boatDocks.put(dock.getCurrentBoatUUID(), dock);
+            }
+        }
+    }
+
+    // ===== QUERIES =====
+
+    /**
+     * Ближайший порт, NPC которого не дальше PORT_RADIUS
+     */
+    public synchronized Port findPort(Location location) {
+        return ports.nearest(location, PORT_RADIUS);
+    }
+
+    /**
+     * Ближайший причал не дальше DOCK_RADIUS
+     */
+    public synchronized Dock findDock(Location location) {
+        return docks.nearest(location, DOCK_RADIUS);
+    }
+
+    /**
+     * Причал, занятый лодкой, или null
+     */
+    public Dock getDockForBoat(UUID boatUUID) {
+        return boatUUID != null ? boatDocks.get(boatUUID) : null;
+    }
+
+    public boolean isPortBoat(UUID boatUUID) {
+        return boatUUID != null && boatDocks.containsKey(boatUUID);
+    }
+
+    // ===== DOCK OCCUPANCY =====
+
+    /**
+     * Ставит лодку в причал (или освобождает его при boatUUID = null)
+     */
+    public void assignBoat(Dock dock, UUID boatUUID) {
+        UUID previous = dock.getCurrentBoatUUID();
+        if (previous != null) {
+            boatDocks.remove(previous, dock);
+        }
+
+        dock.setCurrentBoat(boatUUID);
+        if (boatUUID != null) {
+            boatDocks.put(boatUUID, dock);
+        }
+    }
+
+    /**
+     * Освобождает причал лодки
+     *
+     * @return освобождённый причал или null
+     */
+    public Dock releaseBoat(UUID boatUUID) {
+        Dock dock = boatUUID != null ? boatDocks.remove(boatUUID) : null;
+        if (dock != null) {
+            dock.setCurrentBoat(null);
+        }
+        return dock;
+    }
+
+    /**
+     * Сетка одного типа объектов по мирам
+     */
+    private static final class Grid<T> {
+
+        private final int cellSize;
+        // мир -> клетка -> объекты
+        private final Map<UUID, Map<Long, List<Entry<T>>>> worlds = new HashMap<>();
+        private final Map<T, Entry<T>> entries = new HashMap<>();
+
+        Grid(int cellSize) {
+            this.cellSize = cellSize;
+        }
+
+        void add(T value, Location location) {
+            Entry<T> entry = new Entry<>(value, location.getWorld().getUID(),
+                    location.getX(), location.getY(), location.getZ());
+            entries.put(value, entry);
+            worlds.computeIfAbsent(entry.world, k -> new HashMap<>())
+                    .computeIfAbsent(cellKey(cell(entry.x), cell(entry.z)), k -> new ArrayList<>())
+                    .add(entry);
+        }
+
+        void remove(T value) {
+            Entry<T> entry = entries.remove(value);
+            if (entry == null) return;
+
+            Map<Long, List<Entry<T>>> cells = worlds.get(entry.world);
+            if (cells == null) return;
+
+            long key = cellKey(cell(entry.x), cell(entry.z));
+            List<Entry<T>> list = cells.get(key);
+            if (list != null) {
+                list.remove(entry);
+                if (list.isEmpty()) {
+                    cells.remove(key);
+                }
+            }
+        }
+
+        void clear() {
+            worlds.clear();
+            entries.clear();
+        }
+
+        /**
+         * Ближайший объект не дальше radius (3D, как Location.distance)
+         */
+        T nearest(Location location, double radius) {
+            World world = location.getWorld();
+            if (world == null) return null;
+
+            Map<Long, List<Entry<T>>> cells = worlds.get(world.getUID());
+            if (cells == null) return null;
+
+            double px = location.getX();
+            double py = location.getY();
+            double pz = location.getZ();
+
+            int minCx = cell(px - radius);
+            int maxCx = cell(px + radius);
+            int minCz = cell(pz - radius);
+            int maxCz = cell(pz + radius);
+
+            T best = null;
+            double bestSq = radius * radius;
+            for (int cx = minCx; cx <= maxCx; cx++) {
+                for (int cz = minCz; cz <= maxCz; cz++) {
+                    List<Entry<T>> list = cells.get(cellKey(cx, cz));
+                    if (list == null) continue;
+
+                    for (Entry<T> entry : list) {
+                        double dx = entry.x - px;
+                        double dy = entry.y - py;
+                        double dz = entry.z - pz;
+                        double distSq = dx * dx + dy * dy + dz * dz;
+                        if (distSq < bestSq) {
+                            bestSq = distSq;
+                            best = entry.value;
+                        }
+                    }
+                }
+            }
+            return best;
+        }
+
+        private int cell(double coord) {
+            return Math.floorDiv((int) Math.floor(coord), cellSize);
+        }
+
+        private static long cellKey(int cx, int cz) {
+            return ((long) cx << 32) | (cz & 0xFFFFFFFFL);
+        }
+    }
+
+    private static final class Entry<T> {
+        final T value;
+        final UUID world;
+        final double x;
+        final double y;
+        final double z;
+
+        Entry(T value, UUID world, double x, double y, double z) {
+            this.value = value;
+            this.world = world;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.boatroutes.port;
 
 import com.example.boatroutes.BoatRoutesPlugin;
+import com.example.boatroutes.storage.PortStore;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
@@ -23,9 +24,12 @@ public class PortManager {
     // All ports: name -> Port object
     private final Map<String, Port> ports;
     
+    // Spatial index: NPC / dock positions, boat -> dock
+    private final PortIndex index = new PortIndex();
+    
     // Helper classes
     private final PortCreator portCreator;
-    private final PortStorage portStorage;
+    private final PortStore portStorage;
     
     public PortManager(BoatRoutesPlugin plugin) {
         this.plugin = plugin;
@@ -34,10 +38,12 @@ public class PortManager {
         
         // Initialize helpers
         this.portCreator = new PortCreator(plugin);
-        this.portStorage = new PortStorage(plugin, portsFile);
+        this.portStorage = plugin.getStorageManager().getPortStore();
         
-        // Create ports file if doesn't exist
-        if (!portsFile.exists()) {
+        // ports.yml нужен только YAML бэкенду (sqlite хранит порты в data.db)
+        if (plugin.getStorageManager().isSqlite()) {
+            portsConfig = new YamlConfiguration();
+        } else if (!portsFile.exists()) {
             portsFile.getParentFile().mkdirs();
             portsConfig = new YamlConfiguration();
         } else {
@@ -55,6 +61,7 @@ public class PortManager {
         
         if (port != null) {
             ports.put(name.toLowerCase(), port);
+            plugin.getNavigationManager().getDestinationMenus().invalidate();
             plugin.getLogger().info("Port created: " + name);
         }
         
@@ -69,6 +76,10 @@ public class PortManager {
         
         if (port != null) {
             // TODO: Remove NPC, cleanup docks
+            portStorage.delete(port.getName());
+            index.removePort(port);
+            plugin.getNavigationManager().getDestinationMenus().invalidate();
+            plugin.getPathfindingManager().getAnchorManager().removePort(port.getName());
             plugin.getLogger().info("Port deleted: " + name);
             return true;
         }
@@ -113,6 +124,7 @@ public class PortManager {
         Map<String, Port> loadedPorts = portStorage.loadAll();
         ports.clear();
         ports.putAll(loadedPorts);
+        index.rebuild(ports.values());
         
         plugin.getLogger().info("Loaded " + ports.size() + " ports");
         
@@ -133,6 +145,14 @@ public class PortManager {
      */
     public void savePort(Port port) {
         portStorage.save(port);
+        index.updatePort(port);
+    }
+    
+    /**
+     * Spatial index of ports, docks and docked boats
+     */
+    public PortIndex getIndex() {
+        return index;
     }
     
     /**
@@ -2,6 +2,7 @@ package com.example.boatroutes.port;
 
 import com.example.boatroutes.BoatRoutesPlugin;
 import com.example.boatroutes.dock.Dock;
+import com.example.boatroutes.storage.PortStore;
 import org.bukkit.Location;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
@@ -15,7 +16,7 @@ import java.util.*;
  * COMPLETE Port Storage with ALL fields
  * Saves: NPC location, NPC UUID, docks, navigation point
  */
-public class PortStorage {
+public class PortStorage implements PortStore {
     
     private final BoatRoutesPlugin plugin;
     private final File file;
@@ -41,6 +42,7 @@ public class PortStorage {
     /**
      * Load all ports from file
      */
+    @Override
     public Map<String, Port> loadAll() {
         Map<String, Port> ports = new HashMap<>();
         
@@ -98,6 +100,13 @@ public class PortStorage {
             port.setNavigationPoint((Location) config.get(path + ".navigation-point"));
         }
         
+        // 3b. Cached navigable-water anchor
+        if (config.contains(path + ".nav-anchor")) {
+            port.setNavAnchor((Location) config.get(path + ".nav-anchor"),
+                    config.getInt(path + ".nav-score"),
+                    config.getInt(path + ".nav-anchor-version"));
+        }
+        
         // 4. Legacy: Convergence/Split points (backward compatibility)
         if (config.contains(path + ".convergence")) {
             port.setConvergencePoint((Location) config.get(path + ".convergence"));
@@ -143,6 +152,7 @@ public class PortStorage {
     /**
      * Save all ports to file
      */
+    @Override
     public void saveAll(Map<String, Port> ports) {
         // Clear existing data
         config.set("ports", null);
@@ -165,6 +175,7 @@ public class PortStorage {
     /**
      * Save single port (also writes to disk!)
      */
+    @Override
     public void save(Port port) {
         String path = "ports." + port.getName();
         
@@ -183,6 +194,17 @@ public class PortStorage {
             config.set(path + ".navigation-point", port.getNavigationPoint());
         }
         
+        // 3b. Cached navigable-water anchor (cleared when it becomes stale)
+        if (port.getNavAnchor() != null) {
+            config.set(path + ".nav-anchor", port.getNavAnchor());
+            config.set(path + ".nav-score", port.getNavScore());
+            config.set(path + ".nav-anchor-version", port.getNavAnchorVersion());
+        } else {
+            config.set(path + ".nav-anchor", null);
+            config.set(path + ".nav-score", null);
+            config.set(path + ".nav-anchor-version", null);
+        }
+        
         // 4. Legacy: Convergence/Split points (for backward compatibility)
         if (port.getConvergencePoint() != null) {
             config.set(path + ".convergence", port.getConvergencePoint());
@@ -219,4 +241,18 @@ public class PortStorage {
             plugin.getLogger().severe("Failed to save port " + port.getName() + ": " + e.getMessage());
         }
     }
+    
+    /**
+     * Remove port from file
+     */
+    @Override
+    public void delete(String portName) {
+        config.set("ports." + portName, null);
+        
+        try {
+            config.save(file);
+        } catch (IOException e) {
+            plugin.getLogger().severe("Failed to delete port " + portName + ": " + e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,210 @@
+package com.example.boatroutes.scheduler;
+
+import com.example.boatroutes.BoatRoutesPlugin;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.function.Consumer;
+
+/**
+ * TaskScheduler - Планировщик для Paper и Folia
+ *
+ * Folia (региональные потоки):
+ * - Лодки / игроки  -> EntityScheduler (поток региона сущности)
+ * - Чанки / частицы -> RegionScheduler (поток региона локации)
+ * - Pathfinding     -> AsyncScheduler
+ * - Общие задачи    -> GlobalRegionScheduler
+ *
+ * Paper / Spigot: всё через обычный Bukkit.getScheduler()
+ *
+ * @author BoatRoutes Team
+ * @version 1.0
+ */
+public class TaskScheduler {
+
+    /**
+     * Отменяемая задача (BukkitTask или Folia ScheduledTask)
+     */
+    public interface Task {
+        void cancel();
+
+        boolean isCancelled();
+    }
+
+    private final BoatRoutesPlugin plugin;
+    private final boolean folia;
+
+    public TaskScheduler(BoatRoutesPlugin plugin) {
+        this.plugin = plugin;
+        this.folia = detectFolia();
+
+        plugin.getLogger().info("Scheduler: " + (folia ? "Folia region threads" : "Bukkit main thread"));
+    }
+
+    private static boolean detectFolia() {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    public boolean isFolia() {
+        return folia;
+    }
+
+    // ===== ASYNC =====
+
+    /**
+     * Фоновый поток (pathfinding, сканирование чанков, экспорт)
+     */
+    public void runAsync(Runnable task) {
+        if (folia) {
+            Bukkit.getServer().getAsyncScheduler().runNow(plugin, t -> task.run());
+        } else {
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, task);
+        }
+    }
+
+    // ===== GLOBAL =====
+
+    /**
+     * Главный поток / глобальный регион
+     */
+    public void runGlobal(Runnable task) {
+        if (folia) {
+            Bukkit.getServer().getGlobalRegionScheduler().execute(plugin, task);
+        } else {
+            Bukkit.getScheduler().runTask(plugin, task);
+        }
+    }
+
+    public Task runGlobalTimer(Consumer<Task> task, long delay, long period) {
+        if (folia) {
+            Holder holder = new Holder(task);
+            holder.folia = Bukkit.getServer().getGlobalRegionScheduler()
+                    .runAtFixedRate(plugin, t -> holder.run(), Math.max(1, delay), period);
+            return holder;
+        }
+        return bukkitTimer(task, delay, period);
+    }
+
+    // ===== ENTITY =====
+
+    /**
+     * Поток региона, где находится сущность (игрок, лодка)
+     */
+    public void runAtEntity(Entity entity, Runnable task) {
+        if (folia) {
+            entity.getScheduler().execute(plugin, task, null, 1L);
+        } else {
+            Bukkit.getScheduler().runTask(plugin, task);
+        }
+    }
+
+    /**
+     * Таймер, привязанный к сущности (едет вместе с ней между регионами).
+     * retired вызывается на Folia, если сущность удалена.
+     */
+    public Task runAtEntityTimer(Entity entity, Consumer<Task> task, Runnable retired, long delay, long period) {
+        if (folia) {
+            Holder holder = new Holder(task);
+            holder.folia = entity.getScheduler()
+                    .runAtFixedRate(plugin, t -> holder.run(), retired, Math.max(1, delay), period);
+            if (holder.folia == null && retired != null) {
+                retired.run();
+            }
+            return holder;
+        }
+        return bukkitTimer(task, delay, period);
+    }
+
+    // ===== REGION =====
+
+    /**
+     * Поток региона, которому принадлежит локация (чанки, частицы)
+     */
+    public void runAtLocation(Location location, Runnable task) {
+        if (folia) {
+            Bukkit.getServer().getRegionScheduler().execute(plugin, location, task);
+        } else {
+            Bukkit.getScheduler().runTask(plugin, task);
+        }
+    }
+
+    public void runAtChunk(World world, int chunkX, int chunkZ, Runnable task) {
+        if (folia) {
+            Bukkit.getServer().getRegionScheduler().execute(plugin, world, chunkX, chunkZ, task);
+        } else {
+            Bukkit.getScheduler().runTask(plugin, task);
+        }
+    }
+
+    public Task runAtLocationTimer(Location location, Consumer<Task> task, long delay, long period) {
+        if (folia) {
+            Holder holder = new Holder(task);
+            holder.folia = Bukkit.getServer().getRegionScheduler()
+                    .runAtFixedRate(plugin, location, t -> holder.run(), Math.max(1, delay), period);
+            return holder;
+        }
+        return bukkitTimer(task, delay, period);
+    }
+
+    public void runAtLocationLater(Location location, Runnable task, long delay) {
+        if (folia) {
+            Bukkit.getServer().getRegionScheduler()
+                    .runDelayed(plugin, location, t -> task.run(), Math.max(1, delay));
+        } else {
+            Bukkit.getScheduler().runTaskLater(plugin, task, delay);
+        }
+    }
+
+    // ===== INTERNAL =====
+
+    private Task bukkitTimer(Consumer<Task> task, long delay, long period) {
+        Holder holder = new Holder(task);
+        holder.bukkit = Bukkit.getScheduler().runTaskTimer(plugin, holder::run, delay, period);
+        return holder;
+    }
+
+    /**
+     * Обёртка над задачей конкретного планировщика
+     */
+    private static final class Holder implements Task {
+        private final Consumer<Task> body;
+        private volatile BukkitTask bukkit;
+        private volatile ScheduledTask folia;
+        private volatile boolean cancelled;
+
+        private Holder(Consumer<Task> body) {
+            this.body = body;
+        }
+
+        private void run() {
+            if (cancelled) {
+                // cancel() мог быть вызван до того, как задача была сохранена
+                if (bukkit != null) bukkit.cancel();
+                if (folia != null) folia.cancel();
+                return;
+            }
+            body.accept(this);
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            if (bukkit != null) bukkit.cancel();
+            if (folia != null) folia.cancel();
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.boatroutes.storage;
+
+import com.example.boatroutes.boat.PlayerBoat;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Хранилище лодок игроков
+ *
+ * Реализации: BoatStorage (boats.yml), SqliteBoatStore (data.db)
+ */
+public interface BoatStore {
+
+    List<PlayerBoat> loadAll();
+
+    void saveAll(Collection<PlayerBoat> boats);
+}
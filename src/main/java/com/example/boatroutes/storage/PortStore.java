@@ -0,0 +1,24 @@
+package com.example.boatroutes.storage;
+
+import com.example.boatroutes.port.Port;
+
+import java.util.Map;
+
+/**
+ * Хранилище портов и их доков
+ *
+ * Реализации: PortStorage (ports.yml), SqlitePortStore (data.db)
+ */
+public interface PortStore {
+
+    /**
+     * @return name (lowercase) -> Port
+     */
+    Map<String, Port> loadAll();
+
+    void save(Port port);
+
+    void saveAll(Map<String, Port> ports);
+
+    void delete(String portName);
+}
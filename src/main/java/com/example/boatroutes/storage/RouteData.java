@@ -0,0 +1,38 @@
+package com.example.boatroutes.storage;
+
+import org.bukkit.Location;
+
+import java.util.List;
+
+/**
+ * Путь для пакетной записи (RouteStore.savePaths)
+ */
+public class RouteData {
+
+    public final String fromPort;
+    public final String toPort;
+    public final List<Location> path;
+    // Время создания пути; 0 - время записи
+    public final long created;
+
+    public RouteData(String fromPort, String toPort, List<Location> path) {
+        this(fromPort, toPort, path, 0);
+    }
+
+    /**
+     * Путь со своим временем создания (перенос между хранилищами)
+     */
+    public RouteData(String fromPort, String toPort, List<Location> path, long created) {
+        this.fromPort = fromPort;
+        this.toPort = toPort;
+        this.path = path;
+        this.created = created;
+    }
+
+    /**
+     * Время создания для записи в хранилище
+     */
+    public long createdOrNow() {
+        return created > 0 ? created : System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.boatroutes.storage;
+
+import org.bukkit.Location;
+
+import java.util.List;
+
+/**
+ * Запись индекса путей (метаданные без waypoints)
+ */
+public class RouteInfo {
+
+    public final String key;
+    public final String from;
+    public final String to;
+    public final int waypoints;
+    public final double length;
+    public final long checksum;
+    public final long created;
+
+    public RouteInfo(String key, String from, String to, int waypoints,
+                     double length, long checksum, long created) {
+        this.key = key;
+        this.from = from;
+        this.to = to;
+        this.waypoints = waypoints;
+        this.length = length;
+        this.checksum = checksum;
+        this.created = created;
+    }
+
+    /**
+     * Проверяет, касается ли путь порта (в любую сторону)
+     */
+    public boolean touches(String portName) {
+        return portName.equalsIgnoreCase(from) || portName.equalsIgnoreCase(to);
+    }
+
+    /**
+     * Та же версия пути (не перезаписан с момента чтения этой записи)
+     */
+    public boolean isSameVersion(RouteInfo other) {
+        return other != null && key.equals(other.key)
+                && checksum == other.checksum && created == other.created;
+    }
+
+    /**
+     * Создаёт ключ для пути между портами (A->B = B->A)
+     */
+    public static String keyOf(String from, String to) {
+        if (from.compareTo(to) > 0) {
+            String temp = from;
+            from = to;
+            to = temp;
+        }
+        return from + "_to_" + to;
+    }
+
+    /**
+     * Длина пути по XZ
+     */
+    public static double calculateLength(List<Location> path) {
+        double length = 0;
+        for (int i = 1; i < path.size(); i++) {
+            double dx = path.get(i).getX() - path.get(i - 1).getX();
+            double dz = path.get(i).getZ() - path.get(i - 1).getZ();
+            length += Math.sqrt(dx * dx + dz * dz);
+        }
+        return length;
+    }
+}
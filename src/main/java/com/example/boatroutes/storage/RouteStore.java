@@ -0,0 +1,63 @@
+package com.example.boatroutes.storage;
+
+import org.bukkit.Location;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Хранилище путей между портами
+ *
+ * Реализации: PathStorage (YAML шарды), SqliteRouteStore (data.db)
+ */
+public interface RouteStore {
+
+    /**
+     * Загружает индекс путей (waypoints загружаются лениво)
+     */
+    void loadAllPaths();
+
+    void savePath(String fromPort, String toPort, List<Location> path);
+
+    /**
+     * Заменяет путь, только если он не менялся после чтения expected
+     * (сверка под блокировкой хранилища - фоновые задачи не затирают
+     * reconnect / удаление, завершившиеся во время их работы)
+     *
+     * @return false если путь удалён или перезаписан - ничего не сохранено
+     */
+    boolean replacePath(String fromPort, String toPort, RouteInfo expected, List<Location> path);
+
+    /**
+     * Сохраняет несколько путей одной операцией
+     */
+    void savePaths(List<RouteData> routes);
+
+    /**
+     * @return копия пути или null
+     */
+    List<Location> loadPath(String fromPort, String toPort);
+
+    boolean hasPath(String fromPort, String toPort);
+
+    void deletePath(String fromPort, String toPort);
+
+    void clearAllPaths();
+
+    List<String> getAllPathKeys();
+
+    Set<String> getCachedRouteIds();
+
+    RouteInfo getRouteInfo(String fromPort, String toPort);
+
+    Collection<RouteInfo> getAllRouteInfo();
+
+    /**
+     * Все пути, начинающиеся или заканчивающиеся в порту
+     */
+    List<RouteInfo> getRoutesForPort(String portName);
+
+    Map<String, Object> getPathInfo(String fromPort, String toPort);
+}
@@ -0,0 +1,110 @@
+package com.example.boatroutes.storage;
+
+import com.example.boatroutes.BoatRoutesPlugin;
+import com.example.boatroutes.boat.PlayerBoat;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * SqliteBoatStore v1.0 - Хранилище лодок игроков в data.db
+ *
+ * - Таблица boats, ключ - UUID сущности лодки
+ * - saveAll заменяет все записи одной транзакцией
+ * - Битые записи пропускаются с предупреждением в лог
+ *
+ * @author BoatRoutes Team
+ * @version 1.0
+ */
+public class SqliteBoatStore implements BoatStore {
+
+    private final BoatRoutesPlugin plugin;
+    private final SqliteDatabase database;
+
+    public SqliteBoatStore(BoatRoutesPlugin plugin, SqliteDatabase database) {
+        this.plugin = plugin;
+        this.database = database;
+    }
+
+    @Override
+    public List<PlayerBoat> loadAll() {
+        List<PlayerBoat> boats = new ArrayList<>();
+
+        try {
+            database.query(c -> {
+                try (PreparedStatement ps = c.prepareStatement("SELECT * FROM boats");
+                     ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        String entityId = rs.getString("entity_uuid");
+                        try {
+                            PlayerBoat boat = new PlayerBoat(UUID.fromString(rs.getString("owner")),
+                                    rs.getString("name"));
+                            boat.setBoatEntityUUID(UUID.fromString(entityId));
+                            boat.setCreatedAt(rs.getLong("created_at"));
+                            boat.setTotalTrips(rs.getInt("trips"));
+
+                            String portName = rs.getString("port_name");
+                            if (portName != null) {
+                                boat.setCurrentPort(portName, rs.getInt("dock_number"));
+                            }
+
+                            boats.add(boat);
+                        } catch (IllegalArgumentException e) {
+                            plugin.getLogger().warning("Invalid boat entry '" + entityId + "' in data.db");
+                        }
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Failed to load boats from data.db: " + e.getMessage());
+        }
+
+        return boats;
+    }
+
+    /**
+     * Заменяет все лодки одной транзакцией
+     */
+    @Override
+    public void saveAll(Collection<PlayerBoat> boats) {
+        try {
+            database.transaction(c -> {
+                try (Statement st = c.createStatement()) {
+                    st.executeUpdate("DELETE FROM boats");
+                }
+
+                try (PreparedStatement ps = c.prepareStatement(
+                        "INSERT INTO boats (entity_uuid, owner, name, port_name, dock_number, created_at, trips) " +
+                                "VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+                    for (PlayerBoat boat : boats) {
+                        if (boat.getBoatEntityUUID() == null) continue;
+
+                        ps.setString(1, boat.getBoatEntityUUID().toString());
+                        ps.setString(2, boat.getOwnerUUID().toString());
+                        ps.setString(3, boat.getName());
+                        ps.setString(4, boat.getCurrentPortName());
+                        if (boat.getCurrentDockNumber() != null) {
+                            ps.setInt(5, boat.getCurrentDockNumber());
+                        } else {
+                            ps.setNull(5, java.sql.Types.INTEGER);
+                        }
+                        ps.setLong(6, boat.getCreatedAt());
+                        ps.setInt(7, boat.getTotalTrips());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Failed to save boats to data.db: " + e.getMessage());
+        }
+    }
+}
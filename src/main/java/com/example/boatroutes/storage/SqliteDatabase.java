@@ -0,0 +1,218 @@
+package com.example.boatroutes.storage;
+
+import com.example.boatroutes.BoatRoutesPlugin;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+
+/**
+ * SqliteDatabase - Встроенная база данных (data.db)
+ *
+ * Один файл вместо ports.yml + routes/ + boats.yml:
+ * - Индексы по имени порта
+ * - Транзакции для пакетной записи
+ * - WAL журнал (запись не блокирует чтение)
+ *
+ * Драйвер org.sqlite.JDBC уже есть в Paper - шейдинг не нужен.
+ *
+ * @author BoatRoutes Team
+ * @version 1.0
+ */
+public class SqliteDatabase {
+
+    private final BoatRoutesPlugin plugin;
+    private final File file;
+    private Connection connection;
+
+    /**
+     * Работа внутри транзакции
+     */
+    public interface SqlWork<T> {
+        T run(Connection connection) throws SQLException;
+    }
+
+    public SqliteDatabase(BoatRoutesPlugin plugin) {
+        this.plugin = plugin;
+        this.file = new File(plugin.getDataFolder(), "data.db");
+    }
+
+    /**
+     * Открывает соединение и создаёт схему
+     */
+    public synchronized void open() throws SQLException {
+        file.getParentFile().mkdirs();
+
+        try {
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("SQLite driver not found", e);
+        }
+
+        connection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+
+        try (Statement st = connection.createStatement()) {
+            st.execute("PRAGMA journal_mode=WAL");
+            st.execute("PRAGMA synchronous=NORMAL");
+            st.execute("PRAGMA foreign_keys=ON");
+        }
+
+        createSchema();
+
+        plugin.getLogger().info("SQLite storage opened: " + file.getName());
+    }
+
+    private void createSchema() throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS ports (" +
+                    "name TEXT PRIMARY KEY COLLATE NOCASE, " +
+                    "creator TEXT, " +
+                    "created_at INTEGER, " +
+                    "npc_uuid TEXT, " +
+                    "npc_location TEXT, " +
+                    "navigation_point TEXT, " +
+                    "convergence TEXT, " +
+                    "split TEXT, " +
+                    "nav_anchor TEXT, " +
+                    "nav_score INTEGER NOT NULL DEFAULT 0, " +
+                    "nav_version INTEGER NOT NULL DEFAULT 0)");
+            // data.db из версий без якорей навигационной воды
+            addColumnIfMissing(st, "ports", "nav_anchor", "TEXT");
+            addColumnIfMissing(st, "ports", "nav_score", "INTEGER NOT NULL DEFAULT 0");
+            addColumnIfMissing(st, "ports", "nav_version", "INTEGER NOT NULL DEFAULT 0");
+
+            st.execute("CREATE TABLE IF NOT EXISTS docks (" +
+                    "port_name TEXT NOT NULL COLLATE NOCASE REFERENCES ports(name) ON DELETE CASCADE, " +
+                    "number INTEGER NOT NULL, " +
+                    "location TEXT NOT NULL, " +
+                    "PRIMARY KEY (port_name, number))");
+
+            st.execute("CREATE TABLE IF NOT EXISTS routes (" +
+                    "route_key TEXT PRIMARY KEY, " +
+                    "from_port TEXT NOT NULL COLLATE NOCASE, " +
+                    "to_port TEXT NOT NULL COLLATE NOCASE, " +
+                    "world TEXT NOT NULL, " +
+                    "waypoints INTEGER NOT NULL, " +
+                    "length REAL NOT NULL, " +
+                    "checksum INTEGER NOT NULL, " +
+                    "created INTEGER NOT NULL, " +
+                    "path BLOB NOT NULL)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_routes_from ON routes(from_port)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_routes_to ON routes(to_port)");
+
+            st.execute("CREATE TABLE IF NOT EXISTS boats (" +
+                    "entity_uuid TEXT PRIMARY KEY, " +
+                    "owner TEXT NOT NULL, " +
+                    "name TEXT NOT NULL, " +
+                    "port_name TEXT COLLATE NOCASE, " +
+                    "dock_number INTEGER, " +
+                    "created_at INTEGER, " +
+                    "trips INTEGER)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_boats_owner ON boats(owner)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_boats_port ON boats(port_name)");
+        }
+    }
+
+    private void addColumnIfMissing(Statement st, String table, String column, String type) throws SQLException {
+        try (var rs = st.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name"))) {
+                    return;
+                }
+            }
+        }
+        st.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + type);
+    }
+
+    /**
+     * Выполняет работу в одной транзакции (commit / rollback)
+     */
+    public synchronized <T> T transaction(SqlWork<T> work) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            T result = work.run(connection);
+            connection.commit();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Выполняет запрос без явной транзакции
+     */
+    public synchronized <T> T query(SqlWork<T> work) throws SQLException {
+        return work.run(connection);
+    }
+
+    /**
+     * Пустая ли таблица (для миграции из YAML)
+     */
+    public boolean isEmpty(String table) throws SQLException {
+        return query(c -> {
+            try (Statement st = c.createStatement();
+                 var rs = st.executeQuery("SELECT 1 FROM " + table + " LIMIT 1")) {
+                return !rs.next();
+            }
+        });
+    }
+
+    public synchronized void close() {
+        if (connection == null) return;
+
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            plugin.getLogger().warning("Could not close data.db: " + e.getMessage());
+        }
+        connection = null;
+    }
+
+    // ===== Location <-> TEXT =====
+
+    /**
+     * Кодирует Location в "world;x;y;z;yaw;pitch"
+     */
+    public static String encodeLocation(Location loc) {
+        if (loc == null || loc.getWorld() == null) return null;
+
+        return String.format(Locale.ROOT, "%s;%.3f;%.3f;%.3f;%.2f;%.2f",
+                loc.getWorld().getName(), loc.getX(), loc.getY(), loc.getZ(),
+                loc.getYaw(), loc.getPitch());
+    }
+
+    /**
+     * Декодирует Location из "world;x;y;z;yaw;pitch"
+     */
+    public static Location decodeLocation(String str) {
+        if (str == null) return null;
+
+        try {
+            String[] parts = str.split(";");
+            if (parts.length < 4) return null;
+
+            World world = Bukkit.getWorld(parts[0]);
+            if (world == null) return null;
+
+            float yaw = parts.length > 4 ? Float.parseFloat(parts[4]) : 0f;
+            float pitch = parts.length > 5 ? Float.parseFloat(parts[5]) : 0f;
+
+            return new Location(world,
+                    Double.parseDouble(parts[1]),
+                    Double.parseDouble(parts[2]),
+                    Double.parseDouble(parts[3]),
+                    yaw, pitch);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.boatroutes.storage;
+
+import com.example.boatroutes.BoatRoutesPlugin;
+import com.example.boatroutes.dock.Dock;
+import com.example.boatroutes.port.Port;
+import org.bukkit.Location;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * SqlitePortStore v1.0 - Хранилище портов в data.db
+ *
+ * - Таблицы ports + docks, доки удаляются каскадом вместе с портом
+ * - Каждое сохранение - одна транзакция: строка порта + все его доки
+ * - saveAll пишет все порты одной транзакцией
+ *
+ * @author BoatRoutes Team
+ * @version 1.0
+ */
+public class SqlitePortStore implements PortStore {
+
+    private final BoatRoutesPlugin plugin;
+    private final SqliteDatabase database;
+
+    public SqlitePortStore(BoatRoutesPlugin plugin, SqliteDatabase database) {
+        this.plugin = plugin;
+        this.database = database;
+    }
+
+    /**
+     * Загружает все порты вместе с доками
+     */
+    @Override
+    public Map<String, Port> loadAll() {
+        Map<String, Port> ports = new HashMap<>();
+
+        try {
+            database.query(c -> {
+                try (PreparedStatement ps = c.prepareStatement("SELECT * FROM ports");
+                     ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        Port port = readPort(rs);
+                        ports.put(port.getName().toLowerCase(), port);
+                    }
+                }
+
+                try (PreparedStatement ps = c.prepareStatement(
+                        "SELECT port_name, number, location FROM docks ORDER BY port_name, number");
+                     ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        Port port = ports.get(rs.getString("port_name").toLowerCase());
+                        Location loc = SqliteDatabase.decodeLocation(rs.getString("location"));
+                        if (port != null && loc != null) {
+                            port.addDock(new Dock(port, rs.getInt("number"), loc));
+                        }
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Failed to load ports from data.db: " + e.getMessage());
+        }
+
+        return ports;
+    }
+
+    private Port readPort(ResultSet rs) throws SQLException {
+        Port port = new Port(rs.getString("name"));
+
+        port.setNPCLocation(SqliteDatabase.decodeLocation(rs.getString("npc_location")));
+        port.setNpcUUID(parseUUID(rs.getString("npc_uuid")));
+
+        Location navPoint = SqliteDatabase.decodeLocation(rs.getString("navigation_point"));
+        if (navPoint != null) {
+            port.setNavigationPoint(navPoint);
+        }
+
+        // Сохранённая точка судоходной воды
+        Location navAnchor = SqliteDatabase.decodeLocation(rs.getString("nav_anchor"));
+        if (navAnchor != null) {
+            port.setNavAnchor(navAnchor, rs.getInt("nav_score"), rs.getInt("nav_version"));
+        }
+
+        // Старые точки (совместимость)
+        Location convergence = SqliteDatabase.decodeLocation(rs.getString("convergence"));
+        if (convergence != null) {
+            port.setConvergencePoint(convergence);
+        }
+        Location split = SqliteDatabase.decodeLocation(rs.getString("split"));
+        if (split != null) {
+            port.setSplitPoint(split);
+        }
+
+        port.setCreator(parseUUID(rs.getString("creator")));
+        port.setCreatedAt(rs.getLong("created_at"));
+
+        return port;
+    }
+
+    private UUID parseUUID(String value) {
+        if (value == null) return null;
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Сохраняет один порт (одна транзакция)
+     */
+    @Override
+    public void save(Port port) {
+        try {
+            database.transaction(c -> {
+                writePort(c, port);
+                return null;
+            });
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Failed to save port " + port.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Сохраняет все порты одной транзакцией
+     */
+    @Override
+    public void saveAll(Map<String, Port> ports) {
+        try {
+            database.transaction(c -> {
+                for (Port port : ports.values()) {
+                    writePort(c, port);
+                }
+                return null;
+            });
+            plugin.getLogger().info("Saved " + ports.size() + " ports to data.db");
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Failed to save ports to data.db: " + e.getMessage());
+        }
+    }
+
+    private void writePort(Connection c, Port port) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(
+                "INSERT INTO ports (name, creator, created_at, npc_uuid, npc_location, " +
+                        "navigation_point, convergence, split, nav_anchor, nav_score, nav_version) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                        "ON CONFLICT(name) DO UPDATE SET creator = excluded.creator, " +
+                        "created_at = excluded.created_at, npc_uuid = excluded.npc_uuid, " +
+                        "npc_location = excluded.npc_location, navigation_point = excluded.navigation_point, " +
+                        "convergence = excluded.convergence, split = excluded.split, " +
+                        "nav_anchor = excluded.nav_anchor, nav_score = excluded.nav_score, " +
+                        "nav_version = excluded.nav_version")) {
+            ps.setString(1, port.getName());
+            ps.setString(2, port.getCreator() != null ? port.getCreator().toString() : null);
+            ps.setLong(3, port.getCreatedAt());
+            ps.setString(4, port.getNpcUUID() != null ? port.getNpcUUID().toString() : null);
+            ps.setString(5, SqliteDatabase.encodeLocation(port.getNPCLocation()));
+            ps.setString(6, SqliteDatabase.encodeLocation(port.getNavigationPoint()));
+            ps.setString(7, SqliteDatabase.encodeLocation(port.getConvergencePoint()));
+            ps.setString(8, SqliteDatabase.encodeLocation(port.getSplitPoint()));
+            ps.setString(9, SqliteDatabase.encodeLocation(port.getNavAnchor()));
+            ps.setInt(10, port.getNavScore());
+            ps.setInt(11, port.getNavAnchorVersion());
+            ps.executeUpdate();
+        }
+
+        try (PreparedStatement ps = c.prepareStatement("DELETE FROM docks WHERE port_name = ?")) {
+            ps.setString(1, port.getName());
+            ps.executeUpdate();
+        }
+
+        try (PreparedStatement ps = c.prepareStatement(
+                "INSERT INTO docks (port_name, number, location) VALUES (?, ?, ?)")) {
+            for (Dock dock : port.getDocks()) {
+                ps.setString(1, port.getName());
+                ps.setInt(2, dock.getNumber());
+                ps.setString(3, SqliteDatabase.encodeLocation(dock.getLocation()));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * Удаляет порт (доки удаляет ON DELETE CASCADE)
+     */
+    @Override
+    public void delete(String portName) {
+        try {
+            database.transaction(c -> {
+                try (PreparedStatement ps = c.prepareStatement("DELETE FROM ports WHERE name = ?")) {
+                    ps.setString(1, portName);
+                    ps.executeUpdate();
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Failed to delete port " + portName + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.example.boatroutes.storage;
+
+import com.example.boatroutes.BoatRoutesPlugin;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * SqliteRouteStore v1.0 - Хранилище маршрутов в data.db
+ *
+ * - Таблица routes, индекс (концы, длина, checksum) держится в памяти
+ * - Waypoints - упакованный BLOB (x,y,z doubles), грузится лениво в LRU кэш
+ * - Пакетная запись одной транзакцией
+ *
+ * @author BoatRoutes Team
+ * @version 1.0
+ */
+public class SqliteRouteStore implements RouteStore {
+
+    private final BoatRoutesPlugin plugin;
+    private final SqliteDatabase database;
+
+    private final Map<String, RouteInfo> index = new LinkedHashMap<>();
+    private final WaypointCache pathCache;
+
+    public SqliteRouteStore(BoatRoutesPlugin plugin, SqliteDatabase database) {
+        this.plugin = plugin;
+        this.database = database;
+        this.pathCache = new WaypointCache(plugin.getConfig().getInt("cache.route-cache-size", 64));
+    }
+
+    /**
+     * Загружает индекс путей (без BLOB)
+     */
+    @Override
+    public synchronized void loadAllPaths() {
+        pathCache.clear();
+        index.clear();
+
+        try {
+            database.query(c -> {
+                try (PreparedStatement ps = c.prepareStatement(
+                        "SELECT route_key, from_port, to_port, waypoints, length, checksum, created FROM routes");
+                     ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        String key = rs.getString("route_key");
+                        index.put(key, new RouteInfo(
+                                key,
+                                rs.getString("from_port"),
+                                rs.getString("to_port"),
+                                rs.getInt("waypoints"),
+                                rs.getDouble("length"),
+                                rs.getLong("checksum"),
+                                rs.getLong("created")
+                        ));
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Failed to load routes from data.db: " + e.getMessage());
+            return;
+        }
+
+        if (index.isEmpty()) {
+            plugin.getLogger().info("No saved routes found");
+            return;
+        }
+
+        plugin.getLogger().info("Loaded index of " + index.size() + " routes from data.db");
+    }
+
+    @Override
+    public synchronized void savePath(String fromPort, String toPort, List<Location> path) {
+        savePaths(List.of(new RouteData(fromPort, toPort, path)));
+    }
+
+    @Override
+    public synchronized boolean replacePath(String fromPort, String toPort, RouteInfo expected, List<Location> path) {
+        RouteInfo current = index.get(RouteInfo.keyOf(fromPort, toPort));
+        if (!expected.isSameVersion(current)) {
+            return false;
+        }
+
+        savePath(fromPort, toPort, path);
+        // Ошибка записи - в индексе осталась старая запись
+        return index.get(current.key) != current;
+    }
+
+    /**
+     * Все пути одной транзакцией
+     */
+    @Override
+    public synchronized void savePaths(List<RouteData> routes) {
+        List<RouteInfo> written = new ArrayList<>();
+
+        try {
+            database.transaction(c -> {
+                try (PreparedStatement ps = c.prepareStatement(
+                        "INSERT OR REPLACE INTO routes (route_key, from_port, to_port, world, waypoints, " +
+                                "length, checksum, created, path) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+                    for (RouteData route : routes) {
+                        if (route.path.isEmpty() || route.path.get(0).getWorld() == null) continue;
+
+                        String key = RouteInfo.keyOf(route.fromPort, route.toPort);
+                        byte[] blob = encodePath(route.path);
+                        RouteInfo info = new RouteInfo(key, route.fromPort, route.toPort, route.path.size(),
+                                RouteInfo.calculateLength(route.path), checksum(blob), route.createdOrNow());
+
+                        ps.setString(1, key);
+                        ps.setString(2, info.from);
+                        ps.setString(3, info.to);
+                        ps.setString(4, route.path.get(0).getWorld().getName());
+                        ps.setInt(5, info.waypoints);
+                        ps.setDouble(6, info.length);
+                        ps.setLong(7, info.checksum);
+                        ps.setLong(8, info.created);
+                        ps.setBytes(9, blob);
+                        ps.addBatch();
+
+                        written.add(info);
+                    }
+                    ps.executeBatch();
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Failed to save routes to data.db: " + e.getMessage());
+            return;
+        }
+
+        Map<String, List<Location>> paths = new HashMap<>();
+        for (RouteData route : routes) {
+            paths.put(RouteInfo.keyOf(route.fromPort, route.toPort), route.path);
+        }
+
+        for (RouteInfo info : written) {
+            index.put(info.key, info);
+            pathCache.put(info.key, new ArrayList<>(paths.get(info.key)));
+            plugin.getLogger().info("Saved path: " + info.key + " (" + info.waypoints + " waypoints)");
+        }
+    }
+
+    /**
+     * Загружает путь (лениво, из BLOB)
+     */
+    @Override
+    public synchronized List<Location> loadPath(String fromPort, String toPort) {
+        String key = RouteInfo.keyOf(fromPort, toPort);
+
+        List<Location> cached = pathCache.get(key);
+        if (cached != null) {
+            return new ArrayList<>(cached);
+        }
+
+        RouteInfo info = index.get(key);
+        if (info == null) {
+            return null;
+        }
+
+        List<Location> path;
+        try {
+            path = database.query(c -> {
+                try (PreparedStatement ps = c.prepareStatement(
+                        "SELECT world, path FROM routes WHERE route_key = ?")) {
+                    ps.setString(1, key);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (!rs.next()) return null;
+
+                        byte[] blob = rs.getBytes("path");
+                        if (checksum(blob) != info.checksum) {
+                            plugin.getLogger().warning("Checksum mismatch for route " + key);
+                        }
+                        return decodePath(rs.getString("world"), blob);
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            plugin.getLogger().warning("Could not load route " + key + ": " + e.getMessage());
+            return null;
+        }
+
+        if (path == null || path.isEmpty()) {
+            return null;
+        }
+
+        pathCache.put(key, path);
+
+        return new ArrayList<>(path);
+    }
+
+    @Override
+    public synchronized boolean hasPath(String fromPort, String toPort) {
+        return index.containsKey(RouteInfo.keyOf(fromPort, toPort));
+    }
+
+    @Override
+    public synchronized void deletePath(String fromPort, String toPort) {
+        String key = RouteInfo.keyOf(fromPort, toPort);
+
+        try {
+            database.transaction(c -> {
+                try (PreparedStatement ps = c.prepareStatement("DELETE FROM routes WHERE route_key = ?")) {
+                    ps.setString(1, key);
+                    ps.executeUpdate();
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            plugin.getLogger().warning("Could not delete route " + key + ": " + e.getMessage());
+            return;
+        }
+
+        pathCache.remove(key);
+        index.remove(key);
+
+        plugin.getLogger().info("Deleted path: " + key);
+    }
+
+    @Override
+    public synchronized void clearAllPaths() {
+        try {
+            database.transaction(c -> {
+                try (Statement st = c.createStatement()) {
+                    st.executeUpdate("DELETE FROM routes");
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            plugin.getLogger().warning("Could not clear routes: " + e.getMessage());
+            return;
+        }
+
+        pathCache.clear();
+        index.clear();
+
+        plugin.getLogger().info("Cleared all paths");
+    }
+
+    @Override
+    public synchronized List<String> getAllPathKeys() {
+        return new ArrayList<>(index.keySet());
+    }
+
+    @Override
+    public synchronized Set<String> getCachedRouteIds() {
+        return new HashSet<>(index.keySet());
+    }
+
+    @Override
+    public synchronized RouteInfo getRouteInfo(String fromPort, String toPort) {
+        return index.get(RouteInfo.keyOf(fromPort, toPort));
+    }
+
+    @Override
+    public synchronized Collection<RouteInfo> getAllRouteInfo() {
+        return new ArrayList<>(index.values());
+    }
+
+    @Override
+    public synchronized List<RouteInfo> getRoutesForPort(String portName) {
+        List<RouteInfo> result = new ArrayList<>();
+        for (RouteInfo info : index.values()) {
+            if (info.touches(portName)) {
+                result.add(info);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized Map<String, Object> getPathInfo(String fromPort, String toPort) {
+        RouteInfo routeInfo = index.get(RouteInfo.keyOf(fromPort, toPort));
+        if (routeInfo == null) {
+            return null;
+        }
+
+        Map<String, Object> info = new HashMap<>();
+        info.put("from", routeInfo.from);
+        info.put("to", routeInfo.to);
+        info.put("waypoints", routeInfo.waypoints);
+        info.put("length", routeInfo.length);
+        info.put("created", routeInfo.created);
+
+        return info;
+    }
+
+    // ===== BLOB =====
+
+    /**
+     * Упаковывает waypoints в x,y,z doubles (24 байта на точку)
+     */
+    private byte[] encodePath(List<Location> path) {
+        ByteBuffer buffer = ByteBuffer.allocate(path.size() * 24);
+        for (Location loc : path) {
+            buffer.putDouble(loc.getX());
+            buffer.putDouble(loc.getY());
+            buffer.putDouble(loc.getZ());
+        }
+        return buffer.array();
+    }
+
+    private List<Location> decodePath(String worldName, byte[] blob) {
+        World world = Bukkit.getWorld(worldName);
+        if (world == null) {
+            plugin.getLogger().warning("World " + worldName + " not loaded for route");
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(blob);
+        List<Location> path = new ArrayList<>(blob.length / 24);
+        while (buffer.remaining() >= 24) {
+            path.add(new Location(world, buffer.getDouble(), buffer.getDouble(), buffer.getDouble()));
+        }
+        return path;
+    }
+
+    private long checksum(byte[] blob) {
+        CRC32 crc = new CRC32();
+        crc.update(blob);
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.boatroutes.storage;
+
+import com.example.boatroutes.BoatRoutesPlugin;
+import com.example.boatroutes.boat.BoatStorage;
+import com.example.boatroutes.boat.PlayerBoat;
+import com.example.boatroutes.pathfinding.PathStorage;
+import com.example.boatroutes.port.Port;
+import com.example.boatroutes.port.PortStorage;
+import org.bukkit.Location;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * StorageManager v1.0 - Выбор бэкенда хранения
+ *
+ * storage.type в config.yml:
+ * - yaml   : ports.yml + routes/ + boats.yml (по умолчанию)
+ * - sqlite : один файл data.db
+ *
+ * При первом запуске с sqlite данные из YAML переносятся автоматически.
+ * Если data.db не открывается - откат на YAML.
+ *
+ * @author BoatRoutes Team
+ * @version 1.0
+ */
+public class StorageManager {
+
+    private final BoatRoutesPlugin plugin;
+
+    private SqliteDatabase database;
+    private PortStore portStore;
+    private RouteStore routeStore;
+    private BoatStore boatStore;
+
+    public StorageManager(BoatRoutesPlugin plugin) {
+        this.plugin = plugin;
+
+        String type = plugin.getConfig().getString("storage.type", "yaml");
+
+        if (type.equalsIgnoreCase("sqlite") && openSqlite()) {
+            plugin.getLogger().info("Storage backend: SQLite (data.db)");
+        } else {
+            useYaml();
+            plugin.getLogger().info("Storage backend: YAML");
+        }
+    }
+
+    private boolean openSqlite() {
+        database = new SqliteDatabase(plugin);
+
+        try {
+            database.open();
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Could not open data.db, falling back to YAML: " + e.getMessage());
+            database.close();
+            database = null;
+            return false;
+        }
+
+        portStore = new SqlitePortStore(plugin, database);
+        routeStore = new SqliteRouteStore(plugin, database);
+        boatStore = new SqliteBoatStore(plugin, database);
+        return true;
+    }
+
+    private void useYaml() {
+        portStore = createYamlPortStore();
+        routeStore = new PathStorage(plugin);
+        boatStore = createYamlBoatStore();
+    }
+
+    private PortStorage createYamlPortStore() {
+        return new PortStorage(plugin, new File(plugin.getDataFolder(), "ports.yml"));
+    }
+
+    private BoatStorage createYamlBoatStore() {
+        return new BoatStorage(plugin, new File(plugin.getDataFolder(), "boats.yml"));
+    }
+
+    /**
+     * Переносит данные из YAML в data.db (только в пустые таблицы).
+     * Вызывается после загрузки миров, до загрузки данных.
+     */
+    public void migrateFromYaml() {
+        if (database == null) return;
+
+        try {
+            if (database.isEmpty("ports") && new File(plugin.getDataFolder(), "ports.yml").exists()) {
+                Map<String, Port> ports = createYamlPortStore().loadAll();
+                if (!ports.isEmpty()) {
+                    portStore.saveAll(ports);
+                    plugin.getLogger().info("Migrated " + ports.size() + " ports from ports.yml to data.db");
+                }
+            }
+
+            if (database.isEmpty("routes")) {
+                File dataFolder = plugin.getDataFolder();
+                if (new File(dataFolder, "routes").isDirectory() || new File(dataFolder, "routes.yml").exists()) {
+                    migrateRoutes();
+                }
+            }
+
+            if (database.isEmpty("boats") && new File(plugin.getDataFolder(), "boats.yml").exists()) {
+                List<PlayerBoat> boats = createYamlBoatStore().loadAll();
+                if (!boats.isEmpty()) {
+                    boatStore.saveAll(boats);
+                    plugin.getLogger().info("Migrated " + boats.size() + " boats from boats.yml to data.db");
+                }
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().severe("YAML -> data.db migration failed: " + e.getMessage());
+        }
+    }
+
+    private void migrateRoutes() {
+        PathStorage yamlRoutes = new PathStorage(plugin);
+        yamlRoutes.loadAllPaths();
+
+        List<RouteData> routes = new ArrayList<>();
+        for (RouteInfo info : yamlRoutes.getAllRouteInfo()) {
+            List<Location> path = yamlRoutes.loadPath(info.from, info.to);
+            if (path != null) {
+                routes.add(new RouteData(info.from, info.to, path, info.created));
+            }
+        }
+
+        if (!routes.isEmpty()) {
+            routeStore.savePaths(routes);
+            plugin.getLogger().info("Migrated " + routes.size() + " routes from routes/ to data.db");
+        }
+    }
+
+    public void close() {
+        if (database != null) {
+            database.close();
+            database = null;
+        }
+    }
+
+    public boolean isSqlite() {
+        return database != null;
+    }
+
+    public PortStore getPortStore() {
+        return portStore;
+    }
+
+    public RouteStore getRouteStore() {
+        return routeStore;
+    }
+
+    public BoatStore getBoatStore() {
+        return boatStore;
+    }
+}
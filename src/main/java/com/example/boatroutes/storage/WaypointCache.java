@@ -0,0 +1,25 @@
+package com.example.boatroutes.storage;
+
+import org.bukkit.Location;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ограниченный LRU кеш waypoints путей (key -> path)
+ */
+public class WaypointCache extends LinkedHashMap<String, List<Location>> {
+
+    private final int maxRoutes;
+
+    public WaypointCache(int maxRoutes) {
+        super(16, 0.75f, true);
+        this.maxRoutes = Math.max(1, maxRoutes);
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, List<Location>> eldest) {
+        return size() > maxRoutes;
+    }
+}